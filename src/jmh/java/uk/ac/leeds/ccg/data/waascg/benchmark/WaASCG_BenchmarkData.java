@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import uk.ac.leeds.ccg.data.core.Data_Environment;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Environment;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Strings;
+import uk.ac.leeds.ccg.data.waascg.io.WaASCG_SyntheticData;
+import uk.ac.leeds.ccg.generic.core.Generic_Environment;
+import uk.ac.leeds.ccg.generic.io.Generic_Defaults;
+
+/**
+ * A temporary data directory holding synthetic input files (see
+ * {@link WaASCG_SyntheticData}), and the environment for it.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_BenchmarkData {
+
+    /**
+     * The data directory.
+     */
+    public final Path dir;
+
+    /**
+     * The environment.
+     */
+    public final WaASCG_Environment we;
+
+    /**
+     * Creates a temporary data directory and writes the input files.
+     *
+     * @param nwaves The number of waves.
+     * @param nfields The number of fields other than the identifiers.
+     * @param types The types (hhold, person).
+     * @param rows The number of rows of each input file.
+     * @param seed The seed for the values.
+     * @throws Exception If encountered.
+     */
+    public WaASCG_BenchmarkData(int nwaves, int nfields, String[] types,
+            int rows, long seed) throws Exception {
+        dir = Files.createTempDirectory(WaASCG_Strings.s_WaASCG);
+        Data_Environment de = new Data_Environment(new Generic_Environment(
+                new Generic_Defaults(dir)));
+        we = new WaASCG_Environment(de, de.files.getDir());
+        WaASCG_SyntheticData d = new WaASCG_SyntheticData(we.files, rows, seed);
+        d.nwaves = nwaves;
+        d.nfields = nfields;
+        d.write(types);
+    }
+    /**
+     * Deletes the data directory.
+     *
+     * @throws IOException If encountered.
+     */
+    public void delete() throws IOException {
+        try (Stream<Path> s = Files.walk(dir)) {
+            Iterator<Path> ite = s.sorted(Comparator.reverseOrder())
+                    .iterator();
+            while (ite.hasNext()) {
+                Files.delete(ite.next());
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so the allocation rate is
+ * reported alongside the rates of operations, rows and bytes. The arguments
+ * are JMH command line options, for example a regular expression to select
+ * the benchmarks to run:
+ * <pre>
+ * mvn -P jmh clean package
+ * java -jar target/benchmarks.jar WaASCG_LoaderBenchmark -p rows=100000
+ * </pre>
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_Benchmarks {
+
+    /**
+     * @param args JMH command line options.
+     * @throws Exception If encountered.
+     */
+    public static void main(String[] args) throws Exception {
+        Options o = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(o).run();
+    }
+}
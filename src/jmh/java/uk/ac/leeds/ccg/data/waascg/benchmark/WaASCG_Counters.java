@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts of the rows and bytes processed by a benchmark. These are reported by
+ * JMH as rates alongside the rate of operations, so in rows per second and
+ * bytes per second for a throughput benchmark.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class WaASCG_Counters {
+
+    /**
+     * The number of rows processed.
+     */
+    public long rows;
+
+    /**
+     * The number of bytes processed.
+     */
+    public long bytes;
+
+    /**
+     * Resets the counts at the start of each iteration.
+     */
+    @Setup(Level.Iteration)
+    public void reset() {
+        rows = 0;
+        bytes = 0;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.benchmark;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * For compiling generated source code and loading the classes. The classes of
+ * the generated packages are loaded from the compiled classes in preference
+ * to any of the same name on the class path (such as those of a released
+ * version of the WaAS library), so that the classes benchmarked are those
+ * just generated.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_GeneratedClassLoader extends URLClassLoader {
+
+    /**
+     * The prefix of the names of the generated classes.
+     */
+    public static final String PREFIX = "uk.ac.leeds.ccg.data.waas.data.";
+
+    /**
+     * @param classes The directory of the compiled classes.
+     * @param parent The parent class loader.
+     * @throws IOException If encountered.
+     */
+    public WaASCG_GeneratedClassLoader(Path classes, ClassLoader parent)
+            throws IOException {
+        super(new URL[]{classes.toUri().toURL()}, parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve)
+            throws ClassNotFoundException {
+        if (!name.startsWith(PREFIX)) {
+            return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> r = findLoadedClass(name);
+            if (r == null) {
+                try {
+                    r = findClass(name);
+                } catch (ClassNotFoundException ex) {
+                    return super.loadClass(name, resolve);
+                }
+            }
+            if (resolve) {
+                resolveClass(r);
+            }
+            return r;
+        }
+    }
+
+    /**
+     * Compiles the source code files in a directory (and its subdirectories)
+     * against the class path of this JVM.
+     *
+     * @param src The directory of the source code files.
+     * @param classes The directory to write the compiled classes to.
+     * @throws IOException If there is no Java compiler (the JVM is not that
+     * of a JDK), if the source code does not compile or if otherwise
+     * encountered.
+     */
+    public static void compile(Path src, Path classes) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IOException("No Java compiler, run with a JDK.");
+        }
+        Files.createDirectories(classes);
+        ArrayList<String> args = new ArrayList<>(Arrays.asList("-nowarn",
+                "-proc:none", "-classpath",
+                System.getProperty("java.class.path"), "-d",
+                classes.toString()));
+        try (Stream<Path> s = Files.walk(src)) {
+            Iterator<Path> ite = s.iterator();
+            while (ite.hasNext()) {
+                Path f = ite.next();
+                if (f.toString().endsWith(".java")) {
+                    args.add(f.toString());
+                }
+            }
+        }
+        if (compiler.run(null, null, null, args.toArray(new String[0])) != 0) {
+            throw new IOException("Failed to compile " + src);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Strings;
+import uk.ac.leeds.ccg.data.waascg.process.WaASCG_ColumnTypes;
+import uk.ac.leeds.ccg.data.waascg.process.WaASCG_Main;
+import uk.ac.leeds.ccg.data.waascg.process.WaASCG_TokenClassifier;
+
+/**
+ * Benchmarks of working out the types of the fields of an input file:
+ * {@link WaASCG_Main#loadTest(int, java.lang.String, java.nio.file.Path)}
+ * which reads and scans the file;
+ * {@link WaASCG_Main#parse(byte[], int, int, int, uk.ac.leeds.ccg.data.waascg.process.WaASCG_ColumnTypes, uk.ac.leeds.ccg.data.waascg.process.WaASCG_TokenClassifier)}
+ * for each cell of the file already in memory; and
+ * {@link WaASCG_Main#parseHeader(java.lang.String, int)}. The cache of
+ * types is not used so every file is scanned.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WaASCG_InferenceBenchmark {
+
+    /**
+     * The number of rows of the input file.
+     */
+    @Param({"10000", "100000"})
+    public int rows;
+
+    /**
+     * The type (hhold or person).
+     */
+    @Param({WaASCG_Strings.s_hhold, WaASCG_Strings.s_person})
+    public String type;
+
+    /**
+     * The number of fields other than the identifiers.
+     */
+    @Param({"200"})
+    public int fields;
+
+    /**
+     * The input files.
+     */
+    protected WaASCG_BenchmarkData data;
+
+    /**
+     * The generator.
+     */
+    protected WaASCG_Main p;
+
+    /**
+     * The input directory.
+     */
+    protected Path indir;
+
+    /**
+     * The header of the input file.
+     */
+    protected String header;
+
+    /**
+     * The field names of the input file.
+     */
+    protected String[] names;
+
+    /**
+     * The bytes of the input file.
+     */
+    protected byte[] b;
+
+    /**
+     * The index of the first byte after the header.
+     */
+    protected int dataStart;
+
+    /**
+     * Writes the input file of wave 1 and reads it into memory.
+     *
+     * @throws Exception If encountered.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        data = new WaASCG_BenchmarkData(1, fields,
+                new String[]{type}, rows, 1L);
+        p = new WaASCG_Main(data.we);
+        p.cache = null;
+        indir = data.we.files.getInputDir();
+        Path f = data.we.files.getInputFile((byte) 1, type);
+        b = Files.readAllBytes(f);
+        dataStart = 0;
+        while (b[dataStart] != '\n') {
+            dataStart++;
+        }
+        header = new String(b, 0, dataStart, StandardCharsets.UTF_8).trim();
+        dataStart++;
+        names = p.parseHeader(header, 1);
+    }
+
+    /**
+     * Deletes the input files.
+     *
+     * @throws Exception If encountered.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        data.delete();
+    }
+
+    /**
+     * @param c For counting the rows and bytes.
+     * @return The type state of each column of the input file.
+     * @throws Exception If encountered.
+     */
+    @Benchmark
+    public WaASCG_ColumnTypes loadTest(WaASCG_Counters c) throws Exception {
+        WaASCG_ColumnTypes r = p.loadTest(1, type, indir);
+        c.rows += rows;
+        c.bytes += b.length;
+        return r;
+    }
+
+    /**
+     * @param c For counting the rows and bytes.
+     * @return The type state of each column of the input file.
+     */
+    @Benchmark
+    public WaASCG_ColumnTypes parse(WaASCG_Counters c) {
+        WaASCG_ColumnTypes r = new WaASCG_ColumnTypes(names, p.dictionaries);
+        WaASCG_TokenClassifier tc = new WaASCG_TokenClassifier();
+        int col = 0;
+        int start = dataStart;
+        for (int i = dataStart; i < b.length; i++) {
+            byte x = b[i];
+            if (x == '\t') {
+                p.parse(b, start, i, col, r, tc);
+                col++;
+                start = i + 1;
+            } else if (x == '\n') {
+                int end = i > start && b[i - 1] == '\r' ? i - 1 : i;
+                p.parse(b, start, end, col, r, tc);
+                col = 0;
+                start = i + 1;
+            }
+        }
+        c.rows += rows;
+        c.bytes += b.length - dataStart;
+        return r;
+    }
+
+    /**
+     * @param c For counting the rows and bytes.
+     * @return The fields of the input file.
+     */
+    @Benchmark
+    public String[] parseHeader(WaASCG_Counters c) {
+        c.rows++;
+        c.bytes += dataStart;
+        return p.parseHeader(header, 1);
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.benchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Strings;
+import uk.ac.leeds.ccg.data.waascg.process.WaASCG_Main;
+
+/**
+ * Benchmarks of loading the records of wave 1 with the generated source code
+ * in different layouts:
+ * <ul>
+ * <li>{@link #RECORDS} constructs a record object from each line.</li>
+ * <li>{@link #LAZY} constructs a lazy record object from each line (see
+ * {@link WaASCG_Main#lazyRecords}), which only decodes the values of the
+ * fields that are got.</li>
+ * <li>{@link #COLUMNS} adds each line to a column store.</li>
+ * <li>{@link #BINARY} reads the records from a binary cache file.</li>
+ * <li>{@link #STREAM} reads and constructs the records from the input file
+ * with a parallel stream of the generated loader class.</li>
+ * <li>{@link #FILTERED} is as {@link #STREAM} but only constructs the records
+ * of the lines with a CASEW1 of at most a tenth of {@link #rows}, which are
+ * selected by testing the raw tokens of CASEW1.</li>
+ * <li>{@link #PROJECTED} is as {@link #STREAM} but only parses the values of
+ * {@link #PROJECTED_FIELDS} fields spread over the columns.</li>
+ * </ul>
+ * In setup the input files of all waves are written and scanned, the source
+ * code is generated and compiled, and the classes are loaded with a
+ * {@link WaASCG_GeneratedClassLoader}. The lines are read into memory in
+ * setup (other than for {@link #STREAM}, {@link #FILTERED} and
+ * {@link #PROJECTED}), so the rows and bytes rates are those of decoding. The
+ * bytes counted are those of the lines of the input file for every layout.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WaASCG_LoaderBenchmark {
+
+    /**
+     * For records constructed from lines.
+     */
+    public static final String RECORDS = "records";
+
+    /**
+     * For lazy records constructed from lines.
+     */
+    public static final String LAZY = "lazy";
+
+    /**
+     * For a column store.
+     */
+    public static final String COLUMNS = "columns";
+
+    /**
+     * For records read from a binary cache file.
+     */
+    public static final String BINARY = "binary";
+
+    /**
+     * For a parallel stream of records read from the input file.
+     */
+    public static final String STREAM = "stream";
+
+    /**
+     * For a parallel stream of the records of the lines of the input file
+     * that pass a filter.
+     */
+    public static final String FILTERED = "filtered";
+
+    /**
+     * For a parallel stream of records read from the input file with only the
+     * values of some fields parsed.
+     */
+    public static final String PROJECTED = "projected";
+
+    /**
+     * The number of fields parsed for {@link #PROJECTED}.
+     */
+    public static final int PROJECTED_FIELDS = 10;
+
+    /**
+     * The number of waves of the input files.
+     */
+    public static final int NWAVES = 5;
+
+    /**
+     * The number of rows of each input file.
+     */
+    @Param({"10000", "100000"})
+    public int rows;
+
+    /**
+     * The type (hhold or person).
+     */
+    @Param({WaASCG_Strings.s_hhold, WaASCG_Strings.s_person})
+    public String type;
+
+    /**
+     * The number of fields other than the identifiers.
+     */
+    @Param({"200"})
+    public int fields;
+
+    /**
+     * The layout.
+     */
+    @Param({RECORDS, LAZY, COLUMNS, BINARY, STREAM, FILTERED, PROJECTED})
+    public String layout;
+
+    /**
+     * The input files.
+     */
+    protected WaASCG_BenchmarkData data;
+
+    /**
+     * The lines of the input file of wave 1 without the header.
+     */
+    protected String[] lines;
+
+    /**
+     * The number of bytes of the lines.
+     */
+    protected long bytes;
+
+    /**
+     * For creating the id of each record from its index or the position of
+     * its line.
+     */
+    protected LongFunction<Object> ids;
+
+    /**
+     * (Object, String)Object for constructing a record.
+     */
+    protected MethodHandle record;
+
+    /**
+     * (int)Object for constructing a column store.
+     */
+    protected MethodHandle columns;
+
+    /**
+     * (Object, String)void for adding a line to a column store.
+     */
+    protected MethodHandle add;
+
+    /**
+     * (Path, LongFunction)Object for loading records from a binary cache
+     * file.
+     */
+    protected MethodHandle load;
+
+    /**
+     * (Path, LongFunction)Stream for streaming the records of an input file.
+     */
+    protected MethodHandle stream;
+
+    /**
+     * The filter for {@link #FILTERED}.
+     */
+    protected Object filter;
+
+    /**
+     * The fields for {@link #PROJECTED}.
+     */
+    protected Object fieldSet;
+
+    /**
+     * The binary cache file.
+     */
+    protected Path bin;
+
+    /**
+     * The input file of wave 1.
+     */
+    protected Path tab;
+
+    /**
+     * Writes and scans the input files, generates, compiles and loads the
+     * classes for {@link #layout} and reads the lines of wave 1 into memory.
+     *
+     * @throws Throwable If encountered.
+     */
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        data = new WaASCG_BenchmarkData(NWAVES, fields,
+                new String[]{type}, rows, 1L);
+        WaASCG_Main p = new WaASCG_Main(data.we);
+        p.cache = null;
+        p.lazyRecords = layout.equals(LAZY);
+        HashMap<String, Object[]> types = p.getFieldTypes(new String[]{type});
+        Path outdir = p.getOutputDir(type);
+        p.write(p.getSources(type, types.get(type), outdir));
+        Path classes = Paths.get(data.dir.toString(), "classes");
+        WaASCG_GeneratedClassLoader.compile(outdir, classes);
+        ClassLoader cl = new WaASCG_GeneratedClassLoader(classes,
+                getClass().getClassLoader());
+        String name = WaASCG_GeneratedClassLoader.PREFIX + type + ".WaAS_W1"
+                + type.substring(0, 1).toUpperCase();
+        MethodHandles.Lookup l = MethodHandles.publicLookup();
+        Class<?> idClass = cl.loadClass(WaASCG_GeneratedClassLoader.PREFIX
+                + "id.WaAS_RecordID");
+        MethodHandle id = l.findConstructor(idClass,
+                MethodType.methodType(void.class, long.class))
+                .asType(MethodType.methodType(Object.class, long.class));
+        ids = i -> {
+            try {
+                return (Object) id.invokeExact(i);
+            } catch (Throwable t) {
+                throw new RuntimeException(t);
+            }
+        };
+        tab = data.we.files.getInputFile((byte) 1, type);
+        List<String> all = Files.readAllLines(tab, StandardCharsets.UTF_8);
+        lines = all.subList(1, all.size()).toArray(new String[0]);
+        bytes = Files.size(tab) - all.get(0).length() - 2;
+        if (layout.equals(COLUMNS)) {
+            Class<?> c = cl.loadClass(name + "Columns");
+            columns = l.findConstructor(c, MethodType.methodType(void.class,
+                    int.class)).asType(MethodType.methodType(Object.class,
+                    int.class));
+            add = l.findVirtual(c, "add", MethodType.methodType(void.class,
+                    String.class)).asType(MethodType.methodType(void.class,
+                    Object.class, String.class));
+        } else if (layout.equals(BINARY)) {
+            Class<?> c = cl.loadClass(name + "Binary");
+            bin = (Path) l.findStatic(c, "getBinaryFile", MethodType.methodType(
+                    Path.class, Path.class)).invoke(tab);
+            l.findStatic(c, "convert", MethodType.methodType(long.class,
+                    Path.class, Path.class)).invoke(tab, bin);
+            load = l.findStatic(c, "load", MethodType.methodType(
+                    ArrayList.class, Path.class, LongFunction.class))
+                    .asType(MethodType.methodType(Object.class, Path.class,
+                            LongFunction.class));
+        } else if (layout.equals(STREAM)) {
+            Class<?> c = cl.loadClass(name + "Loader");
+            stream = l.findStatic(c, "stream", MethodType.methodType(
+                    Stream.class, Path.class, LongFunction.class));
+        } else if (layout.equals(FILTERED)) {
+            Class<?> c = cl.loadClass(name + "Loader");
+            Class<?> fc = cl.loadClass(name + "Loader$Filter");
+            Class<?> tc = cl.loadClass(name + "Loader$TokenTest");
+            Object test = l.findStatic(c, "between", MethodType.methodType(tc,
+                    long.class, long.class)).invoke(1L, (long) rows / 10);
+            filter = l.findStatic(fc, "where", MethodType.methodType(fc,
+                    String.class, tc)).invoke("CASEW1", test);
+            stream = l.findStatic(c, "stream", MethodType.methodType(
+                    Stream.class, Path.class, LongFunction.class, fc))
+                    .asType(MethodType.methodType(Stream.class, Path.class,
+                            LongFunction.class, Object.class));
+        } else if (layout.equals(PROJECTED)) {
+            Class<?> c = cl.loadClass(name + "Loader");
+            Class<?> fc = cl.loadClass(name + "Fields");
+            int n = ((String[]) c.getField("FIELDS").get(null)).length;
+            int[] cols = new int[Math.min(n, PROJECTED_FIELDS)];
+            for (int i = 0; i < cols.length; i++) {
+                cols[i] = (int) ((long) i * n / cols.length);
+            }
+            fieldSet = l.findConstructor(fc, MethodType.methodType(void.class,
+                    int[].class)).invoke(cols);
+            stream = l.findStatic(c, "stream", MethodType.methodType(
+                    Stream.class, Path.class, LongFunction.class, fc))
+                    .asType(MethodType.methodType(Stream.class, Path.class,
+                            LongFunction.class, Object.class));
+        } else {
+            Class<?> c = cl.loadClass(name + "Record");
+            record = l.findConstructor(c, MethodType.methodType(void.class,
+                    idClass, String.class)).asType(MethodType.methodType(
+                    Object.class, Object.class, String.class));
+        }
+    }
+
+    /**
+     * Deletes the input files.
+     *
+     * @throws Exception If encountered.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        data.delete();
+    }
+
+    /**
+     * Loads the records of wave 1 in {@link #layout}.
+     *
+     * @param c For counting the rows and bytes.
+     * @param bh For consuming the records.
+     * @throws Throwable If encountered.
+     */
+    @Benchmark
+    public void load(WaASCG_Counters c, Blackhole bh) throws Throwable {
+        if (load != null) {
+            bh.consume((Object) load.invokeExact(bin, ids));
+        } else if (filter != null) {
+            try (Stream<?> s = (Stream<?>) stream.invokeExact(tab, ids,
+                    filter)) {
+                s.parallel().forEach(bh::consume);
+            }
+        } else if (fieldSet != null) {
+            try (Stream<?> s = (Stream<?>) stream.invokeExact(tab, ids,
+                    fieldSet)) {
+                s.parallel().forEach(bh::consume);
+            }
+        } else if (stream != null) {
+            try (Stream<?> s = (Stream<?>) stream.invokeExact(tab, ids)) {
+                s.parallel().forEach(bh::consume);
+            }
+        } else if (columns != null) {
+            Object r = (Object) columns.invokeExact(lines.length);
+            for (String line : lines) {
+                add.invokeExact(r, line);
+            }
+            bh.consume(r);
+        } else {
+            for (int i = 0; i < lines.length; i++) {
+                bh.consume((Object) record.invokeExact(ids.apply(i),
+                        lines[i]));
+            }
+        }
+        c.rows += lines.length;
+        c.bytes += bytes;
+    }
+}
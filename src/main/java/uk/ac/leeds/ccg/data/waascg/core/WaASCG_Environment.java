@@ -43,7 +43,9 @@ public class WaASCG_Environment {
     public transient final byte W5 = 5;
     
     /**
-     * Stores the number of waves in the WaAS
+     * Stores the number of waves in the WaAS when the code was written. The
+     * number of waves to generate code for is detected from the input files
+     * (see {@link WaASCG_Files#getNWaves(java.lang.String)}).
      */
     public transient final byte NWAVES = 5;
 
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event for a phase of working out the types of the
+ * fields and generating the source code. The events are recorded when a
+ * recording is started, for example with:
+ * <pre>
+ * java -XX:StartFlightRecording=filename=waascg.jfr ...
+ * </pre>
+ * Each event is also added to a {@link WaASCG_PhaseReport} whether or not a
+ * recording is started.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+@Name("uk.ac.leeds.ccg.data.waascg.Phase")
+@Label("WaASCG Phase")
+@Category("WaASCG")
+@Description("A phase of working out the field types and generating the"
+        + " source code.")
+@StackTrace(false)
+public class WaASCG_PhaseEvent extends Event {
+
+    /**
+     * The phase of parsing the header of an input file.
+     */
+    public static final String HEADER = "header";
+
+    /**
+     * The phase of scanning an input file.
+     */
+    public static final String SCAN = "scan";
+
+    /**
+     * The phase of consolidating the field types of all waves of a type.
+     */
+    public static final String CONSOLIDATE = "consolidate";
+
+    /**
+     * The phase of grouping the fields of the waves.
+     */
+    public static final String GROUP = "group";
+
+    /**
+     * The phase of consolidating the codes of boolean fields.
+     */
+    public static final String BOOLEANS = "booleans";
+
+    /**
+     * The phase of rendering and writing a source code file.
+     */
+    public static final String EMIT = "emit";
+
+    /**
+     * The phases in the order they happen.
+     */
+    public static final String[] PHASES = {HEADER, SCAN, CONSOLIDATE, GROUP,
+        BOOLEANS, EMIT};
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Type")
+    @Description("The type (hhold or person), if any.")
+    public String type;
+
+    @Label("Wave")
+    @Description("The wave, or 0 if the phase is not for a single wave.")
+    public int wave;
+
+    @Label("Name")
+    @Description("The input or source code file name, if any.")
+    public String name;
+
+    @Label("Bytes")
+    @Description("The number of bytes read or written.")
+    @DataAmount
+    public long bytes;
+
+    @Label("Rows")
+    @Description("The number of rows read or lines written.")
+    public long rows;
+
+    @Label("Columns")
+    @Description("The number of columns or fields.")
+    public int columns;
+
+    @Label("Rows per Second")
+    public double rowsPerSecond;
+
+    @Label("Promotions")
+    @Description("The number of changes of the type of a field.")
+    public long promotions;
+
+    @Label("Cached")
+    @Description("true if the result was from the cache of types, or for"
+            + " the emit phase if the file was unchanged so not written.")
+    public boolean cached;
+
+    /**
+     * The value of System.nanoTime() when the phase began and then the
+     * duration of the phase in nanoseconds.
+     */
+    public transient long nanos;
+
+    /**
+     * Creates the event and begins timing the phase.
+     *
+     * @param phase The phase.
+     * @param type The type (hhold or person) or null.
+     * @param wave The wave or 0.
+     * @param name The input or source code file name or null.
+     */
+    public WaASCG_PhaseEvent(String phase, String type, int wave,
+            String name) {
+        this.phase = phase;
+        this.type = type;
+        this.wave = wave;
+        this.name = name;
+        nanos = System.nanoTime();
+        begin();
+    }
+
+    /**
+     * Ends timing the phase, works out {@link #rowsPerSecond} and commits
+     * the event if it is being recorded.
+     */
+    public void finish() {
+        end();
+        nanos = System.nanoTime() - nanos;
+        if (nanos > 0) {
+            rowsPerSecond = rows * 1.0e9 / nanos;
+        }
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
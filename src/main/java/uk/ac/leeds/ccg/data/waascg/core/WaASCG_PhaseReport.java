@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.core;
+
+import java.util.HashMap;
+
+/**
+ * Totals of the {@link WaASCG_PhaseEvent}s of each phase. Events may be added
+ * concurrently. The times are summed over the events, so for phases that run
+ * concurrently they are the total time spent by all threads.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_PhaseReport {
+
+    /**
+     * Totals for a phase.
+     */
+    public static class Totals {
+
+        /**
+         * The number of events.
+         */
+        public long count;
+
+        /**
+         * The number of events for which the result was from the cache of
+         * types.
+         */
+        public long cached;
+
+        /**
+         * The total duration in nanoseconds.
+         */
+        public long nanos;
+
+        /**
+         * The total number of bytes.
+         */
+        public long bytes;
+
+        /**
+         * The total number of rows.
+         */
+        public long rows;
+
+        /**
+         * The total number of columns.
+         */
+        public long columns;
+
+        /**
+         * The total number of promotions.
+         */
+        public long promotions;
+    }
+
+    /**
+     * Keys are phases, values are the totals.
+     */
+    protected final HashMap<String, Totals> totals = new HashMap<>();
+
+    /**
+     * Finishes e (see {@link WaASCG_PhaseEvent#finish()}) and adds it to the
+     * totals of its phase.
+     *
+     * @param e The event.
+     */
+    public void add(WaASCG_PhaseEvent e) {
+        e.finish();
+        synchronized (totals) {
+            Totals t = totals.get(e.phase);
+            if (t == null) {
+                t = new Totals();
+                totals.put(e.phase, t);
+            }
+            t.count++;
+            if (e.cached) {
+                t.cached++;
+            }
+            t.nanos += e.nanos;
+            t.bytes += e.bytes;
+            t.rows += e.rows;
+            t.columns += e.columns;
+            t.promotions += e.promotions;
+        }
+    }
+
+    /**
+     * @param phase The phase.
+     * @return The totals of phase or null if there were no events of phase.
+     */
+    public Totals get(String phase) {
+        synchronized (totals) {
+            return totals.get(phase);
+        }
+    }
+
+    /**
+     * @return A line for each phase with events, in the order of
+     * {@link WaASCG_PhaseEvent#PHASES}, giving the number of events, the
+     * total time in milliseconds, the totals and the rows per second.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-12s%8s%12s%14s%12s%10s%12s%14s",
+                "phase", "events", "ms", "bytes", "rows", "columns",
+                "promotions", "rows/s"));
+        synchronized (totals) {
+            for (String phase : WaASCG_PhaseEvent.PHASES) {
+                Totals t = totals.get(phase);
+                if (t == null) {
+                    continue;
+                }
+                double rps = t.nanos > 0 ? t.rows * 1.0e9 / t.nanos : 0;
+                sb.append(System.lineSeparator());
+                sb.append(String.format(
+                        "%-12s%8d%12.1f%14d%12d%10d%12d%14.0f", phase,
+                        t.count, t.nanos / 1.0e6, t.bytes, t.rows, t.columns,
+                        t.promotions, rps));
+                if (t.cached > 0) {
+                    sb.append(" (").append(t.cached).append(" cached)");
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
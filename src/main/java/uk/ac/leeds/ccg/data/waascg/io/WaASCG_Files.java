@@ -70,4 +70,19 @@ public class WaASCG_Files extends Data_Files {
         filename += ".tab";
         return Paths.get(getInputWaASDir().toString(), filename);
     }
+
+    /**
+     * @param type The type (hhold or person).
+     * @return The number of waves of type, which is the number of consecutive
+     * waves from wave 1 that have an input file.
+     * @throws java.io.IOException If encountered.
+     */
+    public int getNWaves(String type) throws IOException {
+        int r = 0;
+        while (r < Byte.MAX_VALUE
+                && Files.exists(getInputFile((byte) (r + 1), type))) {
+            r++;
+        }
+        return r;
+    }
 }
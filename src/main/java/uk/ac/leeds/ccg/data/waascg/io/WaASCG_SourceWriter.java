@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.io;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_PhaseEvent;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_PhaseReport;
+
+/**
+ * For writing a generated source code file. The source code is rendered by a
+ * {@link Renderer} into an in-memory buffer and then written to the file in a
+ * single bulk write. A source writer is a Callable so that the files of a run
+ * can be rendered and written concurrently.
+ *
+ * The file is only written if its content changes: the SHA-256 hash of the
+ * rendered source code is compared with that of the file on disk. So files
+ * that are unchanged keep their last modified time and are not recompiled by
+ * incremental builds.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_SourceWriter implements Callable<Boolean> {
+
+    /**
+     * For rendering source code.
+     */
+    public interface Renderer {
+
+        /**
+         * @param pw The PrintWriter to render to.
+         */
+        public void render(PrintWriter pw);
+    }
+
+    /**
+     * The initial size of the buffer in chars.
+     */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The file to write.
+     */
+    public final Path file;
+
+    /**
+     * For rendering the source code.
+     */
+    protected final Renderer renderer;
+
+    /**
+     * If not null a {@link WaASCG_PhaseEvent} of the rendering and writing is
+     * added to this.
+     */
+    public WaASCG_PhaseReport report;
+
+    /**
+     * @param file The file to write.
+     * @param renderer For rendering the source code.
+     */
+    public WaASCG_SourceWriter(Path file, Renderer renderer) {
+        this.file = file;
+        this.renderer = renderer;
+    }
+
+    /**
+     * Renders the source code and writes it to {@link #file} unless the file
+     * already has the same content.
+     *
+     * @return true if {@link #file} was written.
+     * @throws IOException If encountered.
+     */
+    @Override
+    public Boolean call() throws IOException {
+        WaASCG_PhaseEvent e = null;
+        if (report != null) {
+            e = new WaASCG_PhaseEvent(WaASCG_PhaseEvent.EMIT, null, 0,
+                    file.getFileName().toString());
+        }
+        StringWriter sw = new StringWriter(BUFFER_SIZE);
+        try (PrintWriter pw = new PrintWriter(sw)) {
+            renderer.render(pw);
+        }
+        byte[] b = sw.toString().getBytes(StandardCharsets.UTF_8);
+        boolean r = !(Files.isRegularFile(file) && Files.size(file) == b.length
+                && Arrays.equals(hash(Files.readAllBytes(file)), hash(b)));
+        if (r) {
+            Files.write(file, b);
+        }
+        if (e != null) {
+            e.bytes = b.length;
+            for (byte x : b) {
+                if (x == '\n') {
+                    e.rows++;
+                }
+            }
+            // The file was not rewritten as it was unchanged.
+            e.cached = !r;
+            report.add(e);
+        }
+        return r;
+    }
+
+    /**
+     * @param b The bytes to hash.
+     * @return The SHA-256 hash of b.
+     * @throws IOException If SHA-256 is not available.
+     */
+    protected static byte[] hash(byte[] b) throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(b);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException(ex);
+        }
+    }
+}
@@ -0,0 +1,426 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import uk.ac.leeds.ccg.data.core.Data_Environment;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Environment;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Strings;
+import uk.ac.leeds.ccg.generic.core.Generic_Environment;
+import uk.ac.leeds.ccg.generic.io.Generic_Defaults;
+
+/**
+ * For writing synthetic input files shaped like those of the WaAS, so that
+ * the scanning of input files and the generated source code can be tested
+ * for throughput and memory use at any scale without the licence restricted
+ * data. The files are written to the paths returned from
+ * {@link WaASCG_Files#getInputFile(byte, java.lang.String)}.
+ *
+ * Each file has a header of tab separated field names and then rows of tab
+ * separated values with blanks as a single space. There are identifier
+ * fields (CASEW{wave} and for the person files also PERSONW{wave}) and then
+ * {@link #nfields} other fields. Each field has a kind ({@link #BOOLEAN},
+ * {@link #SMALL}, {@link #INT}, {@link #DECIMAL}, {@link #STRING} or
+ * {@link #BLANK}), a rate of blanks and a range of waves it is in. Some field
+ * names have a wave suffix as in the WaAS, and some boolean code fields use a
+ * different pair of codes in some waves. These properties are the same in
+ * every wave for a given seed, and the values are reproducible from the seed.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_SyntheticData {
+
+    /**
+     * The kind of a field of two codes, like 1 and 2 for yes and no.
+     */
+    public static final byte BOOLEAN = 0;
+
+    /**
+     * The kind of a field of small integer codes including negative codes
+     * for missing values, like -9 for don't know.
+     */
+    public static final byte SMALL = 1;
+
+    /**
+     * The kind of a field of integer amounts.
+     */
+    public static final byte INT = 2;
+
+    /**
+     * The kind of a field of decimal amounts or weights.
+     */
+    public static final byte DECIMAL = 3;
+
+    /**
+     * The kind of a field of strings.
+     */
+    public static final byte STRING = 4;
+
+    /**
+     * The kind of a field of only blanks.
+     */
+    public static final byte BLANK = 5;
+
+    /**
+     * The percentage of fields of each kind, indexed by kind.
+     */
+    public static final int[] PERCENTAGES = {30, 35, 15, 10, 3, 7};
+
+    /**
+     * The pairs of codes of boolean code fields.
+     */
+    public static final int[][] CODES = {{1, 2}, {0, 1}, {-9, 1}, {1, -8}};
+
+    /**
+     * The line separator of the files.
+     */
+    public static final String EOL = "\r\n";
+
+    /**
+     * The files.
+     */
+    public final WaASCG_Files files;
+
+    /**
+     * The number of rows of each file.
+     */
+    public final int rows;
+
+    /**
+     * The seed.
+     */
+    public final long seed;
+
+    /**
+     * The number of waves.
+     */
+    public int nwaves = 5;
+
+    /**
+     * The number of fields other than the identifiers. The fields are spread
+     * over the waves, so each file has fewer than this.
+     */
+    public int nfields = 1000;
+
+    /**
+     * @param files The files.
+     * @param rows The number of rows of each file.
+     * @param seed The seed.
+     */
+    public WaASCG_SyntheticData(WaASCG_Files files, int rows, long seed) {
+        this.files = files;
+        this.rows = rows;
+        this.seed = seed;
+    }
+
+    /**
+     * Writes synthetic input files to a data directory. The arguments are the
+     * data directory, and then optionally the number of rows of each file,
+     * the seed, the number of waves and the number of fields.
+     *
+     * @param args The arguments.
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length < 1) {
+                System.err.println("Usage: WaASCG_SyntheticData dataDir"
+                        + " [rows [seed [nwaves [nfields]]]]");
+                return;
+            }
+            Path dataDir = Paths.get(args[0]);
+            int rows = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+            long seed = args.length > 2 ? Long.parseLong(args[2]) : 0L;
+            Data_Environment de = new Data_Environment(new Generic_Environment(
+                    new Generic_Defaults(dataDir)));
+            WaASCG_Environment e = new WaASCG_Environment(de,
+                    de.files.getDir());
+            WaASCG_SyntheticData d = new WaASCG_SyntheticData(e.files, rows,
+                    seed);
+            if (args.length > 3) {
+                d.nwaves = Integer.parseInt(args[3]);
+            }
+            if (args.length > 4) {
+                d.nfields = Integer.parseInt(args[4]);
+            }
+            d.write(new String[]{WaASCG_Strings.s_hhold,
+                WaASCG_Strings.s_person});
+            de.env.log("Synthetic input files were written to "
+                    + e.files.getInputWaASDir().toString());
+        } catch (Exception ex) {
+            ex.printStackTrace(System.err);
+        }
+    }
+
+    /**
+     * Writes the files of all waves of each type in types.
+     *
+     * @param types The types (hhold, person).
+     * @return The number of bytes written.
+     * @throws IOException If encountered.
+     */
+    public long write(String[] types) throws IOException {
+        long r = 0;
+        for (String type : types) {
+            for (int wave = 1; wave <= nwaves; wave++) {
+                r += write((byte) wave, type);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Writes the file of a wave and type.
+     *
+     * @param wave The wave.
+     * @param type The type (hhold or person).
+     * @return The number of bytes written.
+     * @throws IOException If encountered.
+     */
+    public long write(byte wave, String type) throws IOException {
+        Path f = files.getInputFile(wave, type);
+        Files.createDirectories(f.getParent());
+        Fields fs = new Fields(type);
+        boolean person = type.equals(WaASCG_Strings.s_person);
+        int[] cols = fs.getCols(wave);
+        Random random = new Random(seed * 31 + wave * 7919L
+                + type.hashCode());
+        long r = 0;
+        try (BufferedWriter bw = Files.newBufferedWriter(f,
+                StandardCharsets.UTF_8)) {
+            StringBuilder sb = new StringBuilder();
+            sb.append("CASEW").append(wave);
+            if (person) {
+                sb.append("\tPERSONW").append(wave);
+            }
+            for (int c : cols) {
+                sb.append('\t').append(fs.getName(c, wave));
+            }
+            sb.append(EOL);
+            for (int row = 1; row <= rows; row++) {
+                if (person) {
+                    // About 1.9 persons per household as in the WaAS.
+                    sb.append(1 + (row - 1) * 10L / 19).append('\t')
+                            .append(row);
+                } else {
+                    sb.append(row);
+                }
+                for (int c : cols) {
+                    sb.append('\t');
+                    fs.append(sb, c, wave, random);
+                }
+                sb.append(EOL);
+                if (sb.length() > 1 << 16) {
+                    r += sb.length();
+                    bw.append(sb);
+                    sb.setLength(0);
+                }
+            }
+            r += sb.length();
+            bw.append(sb);
+        }
+        return r;
+    }
+
+    /**
+     * The properties of the fields of a type, which are the same for every
+     * wave.
+     */
+    protected class Fields {
+
+        /**
+         * The kind of each field.
+         */
+        final byte[] kinds;
+
+        /**
+         * The first wave of each field.
+         */
+        final int[] first;
+
+        /**
+         * The last wave of each field.
+         */
+        final int[] last;
+
+        /**
+         * Whether the name of each field has a wave suffix.
+         */
+        final boolean[] suffixed;
+
+        /**
+         * The rate of blanks of each field in parts per thousand.
+         */
+        final int[] blanks;
+
+        /**
+         * The index into {@link #CODES} of each boolean code field, or the
+         * maximum code of each small integer field, or the number of digits
+         * of each integer or decimal field, or the number of distinct values
+         * of each string field.
+         */
+        final int[] params;
+
+        /**
+         * The wave from which a boolean code field uses the next pair of
+         * codes, or 0 if it always uses the same pair.
+         */
+        final int[] recode;
+
+        /**
+         * @param type The type.
+         */
+        Fields(String type) {
+            Random random = new Random(seed ^ type.hashCode());
+            kinds = new byte[nfields];
+            first = new int[nfields];
+            last = new int[nfields];
+            suffixed = new boolean[nfields];
+            blanks = new int[nfields];
+            params = new int[nfields];
+            recode = new int[nfields];
+            for (int c = 0; c < nfields; c++) {
+                int p = random.nextInt(100);
+                byte k = 0;
+                while (p >= PERCENTAGES[k]) {
+                    p -= PERCENTAGES[k];
+                    k++;
+                }
+                kinds[c] = k;
+                // Most fields are in every wave, others come in or go out.
+                first[c] = random.nextInt(10) < 6 ? 1
+                        : 1 + random.nextInt(nwaves);
+                last[c] = random.nextInt(10) < 7 ? nwaves
+                        : first[c] + random.nextInt(nwaves - first[c] + 1);
+                suffixed[c] = random.nextInt(10) < 3;
+                blanks[c] = random.nextBoolean() ? 0
+                        : 50 + random.nextInt(850);
+                switch (k) {
+                    case BOOLEAN:
+                        params[c] = random.nextInt(CODES.length);
+                        if (random.nextInt(10) == 0) {
+                            recode[c] = 2 + random.nextInt(nwaves);
+                        }
+                        break;
+                    case SMALL:
+                        params[c] = 2 + random.nextInt(30);
+                        break;
+                    case INT:
+                    case DECIMAL:
+                        params[c] = 3 + random.nextInt(5);
+                        break;
+                    case STRING:
+                        params[c] = 2 + random.nextInt(50);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        /**
+         * @param wave The wave.
+         * @return The indexes of the fields in wave.
+         */
+        int[] getCols(int wave) {
+            int n = 0;
+            for (int c = 0; c < nfields; c++) {
+                if (first[c] <= wave && wave <= last[c]) {
+                    n++;
+                }
+            }
+            int[] r = new int[n];
+            n = 0;
+            for (int c = 0; c < nfields; c++) {
+                if (first[c] <= wave && wave <= last[c]) {
+                    r[n++] = c;
+                }
+            }
+            return r;
+        }
+
+        /**
+         * @param c The index of the field.
+         * @param wave The wave.
+         * @return The name of the field in wave.
+         */
+        String getName(int c, int wave) {
+            if (suffixed[c]) {
+                return "DV" + c + "W" + wave;
+            }
+            return "V" + c;
+        }
+
+        /**
+         * Appends a value of a field to sb.
+         *
+         * @param sb The StringBuilder to append to.
+         * @param c The index of the field.
+         * @param wave The wave.
+         * @param random For the value.
+         */
+        void append(StringBuilder sb, int c, int wave, Random random) {
+            if (kinds[c] == BLANK || random.nextInt(1000) < blanks[c]) {
+                sb.append(' ');
+                return;
+            }
+            int p = params[c];
+            switch (kinds[c]) {
+                case BOOLEAN:
+                    if (recode[c] != 0 && wave >= recode[c]) {
+                        p = (p + 1) % CODES.length;
+                    }
+                    sb.append(CODES[p][random.nextBoolean() ? 0 : 1]);
+                    break;
+                case SMALL:
+                    if (random.nextInt(20) == 0) {
+                        sb.append(-9 + random.nextInt(4));
+                    } else {
+                        sb.append(1 + random.nextInt(p));
+                    }
+                    break;
+                case INT:
+                    sb.append(random.nextInt(pow10(p)));
+                    break;
+                case DECIMAL:
+                    sb.append(random.nextInt(pow10(p))).append('.')
+                            .append(random.nextInt(1000000));
+                    break;
+                default:
+                    sb.append("Category ").append(random.nextInt(p));
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @param n The exponent.
+     * @return 10 to the power n.
+     */
+    static int pow10(int n) {
+        int r = 1;
+        for (int i = 0; i < n; i++) {
+            r *= 10;
+        }
+        return r;
+    }
+}
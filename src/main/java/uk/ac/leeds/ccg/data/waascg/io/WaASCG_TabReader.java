@@ -0,0 +1,332 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * For reading a tab separated values file such as those of the WaAS. The file
+ * is read through a FileChannel into a byte buffer and the tab and newline
+ * delimiters are found at the byte level. Each cell is handed to a
+ * {@link Handler} as a range of the buffer, so no Strings or arrays are
+ * created per row. A handler can ask for the cells of trailing columns of each
+ * row to be skipped and for reading to stop early.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_TabReader implements Closeable {
+
+    /**
+     * For receiving the cells of each row.
+     */
+    public interface Handler {
+
+        /**
+         * @param col The column index of the cell.
+         * @param b The buffer containing the cell.
+         * @param start The index in b of the first byte of the cell.
+         * @param end The index in b after the last byte of the cell.
+         */
+        public void cell(int col, byte[] b, int start, int end);
+
+        /**
+         * Called at the end of each row.
+         */
+        public void endRow();
+
+        /**
+         * Called at the start of each row. Cells of columns after the one
+         * returned are skipped without being passed to
+         * {@link #cell(int, byte[], int, int)}.
+         *
+         * @return The index of the last column for which cells are wanted, or
+         * a negative number if no more rows are wanted.
+         */
+        public default int getLastColumn() {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * The initial size of the read buffer. The buffer grows if a line is
+     * longer than this.
+     */
+    public static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * The file being read.
+     */
+    public final Path f;
+
+    /**
+     * The channel for reading f.
+     */
+    protected final FileChannel fc;
+
+    /**
+     * The position in f of the first byte after the header line.
+     */
+    protected long dataStart;
+
+    /**
+     * @param f The file to read.
+     * @throws IOException If encountered.
+     */
+    public WaASCG_TabReader(Path f) throws IOException {
+        this.f = f;
+        fc = FileChannel.open(f, StandardOpenOption.READ);
+    }
+
+    /**
+     * @return The size of the file in bytes.
+     * @throws IOException If encountered.
+     */
+    public long size() throws IOException {
+        return fc.size();
+    }
+
+    /**
+     * @return The position in the file of the first byte after the header
+     * line. This is only set once {@link #readHeader()} has been called.
+     */
+    public long getDataStart() {
+        return dataStart;
+    }
+
+    /**
+     * Reads the first line of the file.
+     *
+     * @return The first line of the file without the line terminator.
+     * @throws IOException If encountered.
+     */
+    public String readHeader() throws IOException {
+        long size = fc.size();
+        byte[] b = new byte[8192];
+        int n = 0;
+        long pos = 0;
+        while (pos < size) {
+            if (n == b.length) {
+                byte[] b2 = new byte[b.length * 2];
+                System.arraycopy(b, 0, b2, 0, n);
+                b = b2;
+            }
+            int read = fc.read(ByteBuffer.wrap(b, n, b.length - n), pos);
+            if (read < 0) {
+                break;
+            }
+            for (int i = n; i < n + read; i++) {
+                if (b[i] == '\n') {
+                    dataStart = pos + (i - n) + 1;
+                    return decode(b, i);
+                }
+            }
+            n += read;
+            pos += read;
+        }
+        dataStart = size;
+        return decode(b, n);
+    }
+
+    /**
+     * @param b Bytes.
+     * @param end The index in b after the end of the line.
+     * @return The line without any trailing carriage return.
+     */
+    private static String decode(byte[] b, int end) {
+        if (end > 0 && b[end - 1] == '\r') {
+            end--;
+        }
+        return new String(b, 0, end, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * For aligning the ranges of a file that are read concurrently.
+     *
+     * @param pos A position in the file after the header.
+     * @return The position of the start of the first line that starts at or
+     * after pos, or the size of the file if there is no such line.
+     * @throws IOException If encountered.
+     */
+    public long getLineStart(long pos) throws IOException {
+        long size = fc.size();
+        if (pos <= dataStart) {
+            return dataStart;
+        }
+        byte[] b = new byte[8192];
+        pos--;
+        while (pos < size) {
+            int read = fc.read(ByteBuffer.wrap(b), pos);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (b[i] == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return size;
+    }
+
+    /**
+     * Reads all the rows after the header.
+     *
+     * @param h The handler.
+     * @return The number of rows read.
+     * @throws IOException If encountered.
+     */
+    public long read(Handler h) throws IOException {
+        return read(dataStart, fc.size(), h);
+    }
+
+    /**
+     * Reads the rows in the range of the file from start to end. The range
+     * is expected to start at the start of a line and to end after a newline
+     * or at the end of the file. This uses positional reads and its own
+     * buffer, so it can be called for different ranges concurrently.
+     *
+     * @param start The position in the file to start reading from.
+     * @param end The position in the file to read to.
+     * @param h The handler.
+     * @return The number of rows read.
+     * @throws IOException If encountered.
+     */
+    public long read(long start, long end, Handler h) throws IOException {
+        long rows = 0;
+        byte[] b = new byte[(int) Math.min(BUFFER_SIZE,
+                Math.max(end - start, 1))];
+        int n = 0; // Number of bytes in b.
+        long pos = start;
+        while (pos < end) {
+            if (h.getLastColumn() < 0) {
+                return rows;
+            }
+            if (n == b.length) {
+                // A line is longer than the buffer.
+                byte[] b2 = new byte[b.length * 2];
+                System.arraycopy(b, 0, b2, 0, n);
+                b = b2;
+            }
+            int len = (int) Math.min(b.length - n, end - pos);
+            int read = fc.read(ByteBuffer.wrap(b, n, len), pos);
+            if (read < 0) {
+                break;
+            }
+            pos += read;
+            n += read;
+            // Find the end of the last complete line in the buffer.
+            int last = n - 1;
+            while (last >= 0 && b[last] != '\n') {
+                last--;
+            }
+            if (last < 0) {
+                continue;
+            }
+            rows += parse(b, 0, last + 1, h);
+            // Move any partial line to the start of the buffer.
+            n -= last + 1;
+            System.arraycopy(b, last + 1, b, 0, n);
+        }
+        if (n > 0) {
+            // The last line has no newline.
+            rows += parse(b, 0, n, h);
+        }
+        return rows;
+    }
+
+    /**
+     * Passes the cells of the lines in b from start to end to h.
+     *
+     * @param b The buffer.
+     * @param start The index of the start of the first line.
+     * @param end The index after the last byte of the last line.
+     * @param h The handler.
+     * @return The number of rows parsed.
+     */
+    protected long parse(byte[] b, int start, int end, Handler h) {
+        long rows = 0;
+        int i = start;
+        while (i < end) {
+            int last = h.getLastColumn();
+            if (last < 0) {
+                break;
+            }
+            int col = 0;
+            int cs = i; // Cell start.
+            while (i < end && b[i] != '\n') {
+                if (b[i] == '\t') {
+                    h.cell(col, b, cs, i);
+                    col++;
+                    cs = i + 1;
+                    if (col > last) {
+                        // Skip the rest of the row.
+                        i++;
+                        while (i < end && b[i] != '\n') {
+                            i++;
+                        }
+                        break;
+                    }
+                }
+                i++;
+            }
+            if (col > last) {
+                h.endRow();
+                rows++;
+            } else {
+                int ce = i;
+                if (ce > cs && b[ce - 1] == '\r') {
+                    ce--;
+                }
+                if (col > 0 || ce > cs) {
+                    h.cell(col, b, cs, ce);
+                    h.endRow();
+                    rows++;
+                }
+            }
+            i++;
+        }
+        return rows;
+    }
+
+    /**
+     * @param b The buffer.
+     * @param start The index of the first byte.
+     * @param end The index after the last byte.
+     * @return true if all the bytes from start to end are whitespace or
+     * control characters (as with String.trim().isEmpty()).
+     */
+    public static boolean isBlank(byte[] b, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if ((b[i] & 0xff) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        fc.close();
+    }
+}
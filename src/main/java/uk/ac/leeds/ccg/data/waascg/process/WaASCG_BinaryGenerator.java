@@ -0,0 +1,350 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import uk.ac.leeds.ccg.cg.process.CG_Process;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Strings;
+
+/**
+ * For writing the source code of a class for converting a WaAS input file for
+ * a wave into a binary cache file once and for loading the records of the wave
+ * from the binary cache file without parsing any text.
+ *
+ * A binary cache file starts with {@link #MAGIC} and a schema number that is a
+ * hash of the field names, types and codes for false of the boolean fields in
+ * the order in which they are written. Each record is then written as a byte
+ * of 1, the position in the input file of the start of its line and the values
+ * written by the writeValues method of the record class. A byte of 0 marks the
+ * end of the records, so a partly written file is not mistaken for a complete
+ * one. The id of each record loaded is created from the position of its line,
+ * as for the records streamed by the generated loader class (see
+ * {@link WaASCG_LoaderGenerator}), so the ids are the same whichever is used.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_BinaryGenerator extends CG_Process {
+
+    /**
+     * The first 4 bytes of a binary cache file.
+     */
+    public static final int MAGIC = 0x57614142;
+
+    /**
+     * For the shared header, package and import writing methods.
+     */
+    protected final WaASCG_Main p;
+
+    /**
+     * @param p For the shared header, package and import writing methods.
+     */
+    public WaASCG_BinaryGenerator(WaASCG_Main p) {
+        super();
+        this.p = p;
+    }
+
+    /**
+     * @param wave The wave.
+     * @param type The type letter (H or P).
+     * @return The name of the binary cache class for wave and type.
+     */
+    public static String getClassName(int wave, String type) {
+        return WaASCG_Strings.s_WaAS + WaASCG_Strings.symbol_underscore + "W"
+                + wave + type + "Binary";
+    }
+
+    /**
+     * @param s A description of the binary form of the records.
+     * @return A 64 bit FNV-1a hash of s.
+     */
+    public static long getSchema(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * @return The imports of the binary cache classes.
+     */
+    protected ArrayList<String> getImports() {
+        ArrayList<String> r = new ArrayList<>();
+        r.add("java.io.BufferedInputStream");
+        r.add("java.io.BufferedOutputStream");
+        r.add("java.io.DataInputStream");
+        r.add("java.io.DataOutputStream");
+        r.add("java.io.IOException");
+        r.add("java.io.InputStream");
+        r.add("java.nio.charset.StandardCharsets");
+        r.add("java.nio.file.Files");
+        r.add("java.nio.file.Path");
+        r.add("java.nio.file.StandardCopyOption");
+        r.add("java.util.ArrayList");
+        r.add("java.util.Arrays");
+        r.add("java.util.function.LongFunction");
+        r.add("uk.ac.leeds.ccg.data.waas.data.id.WaAS_RecordID");
+        return r;
+    }
+
+    /**
+     * Writes the binary cache class.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param packageName The package name.
+     * @param className The class name.
+     * @param recordClassName The name of the record class of the wave.
+     * @param wave The wave.
+     * @param schema The schema number.
+     */
+    public void write(PrintWriter pw, String packageName, String className,
+            String recordClassName, int wave, long schema) {
+        String list = "ArrayList<" + recordClassName + ">";
+        String ids = "LongFunction<WaAS_RecordID> ids";
+        p.writeHeaderPackageAndImports(pw, packageName, getImports());
+        pw.println();
+        pw.println("/**");
+        pw.println(" * For converting a wave " + wave + " input file into a"
+                + " binary cache file and for");
+        pw.println(" * loading " + recordClassName + " records from it.");
+        pw.println(" */");
+        pw.println("public final class " + className + " {");
+        pw.println();
+        pw.println(getIndent(1) + "public static final int MAGIC = 0x"
+                + Integer.toHexString(MAGIC) + ";");
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * A hash of the fields and types of the"
+                + " records in the order written.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static final long SCHEMA = " + schema
+                + "L;");
+        pw.println();
+        pw.println(getIndent(1) + "private " + className + "() {");
+        pw.println(getIndent(1) + "}");
+        // getBinaryFile
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param tab The input file.");
+        pw.println(getIndent(1) + " * @return The default binary cache file"
+                + " for tab.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static Path getBinaryFile(Path tab)"
+                + " {");
+        pw.println(getIndent(2) + "return tab.resolveSibling(tab.getFileName()"
+                + " + \".bin\");");
+        pw.println(getIndent(1) + "}");
+        // convert
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * Converts the input file tab into the"
+                + " binary cache file bin. The records");
+        pw.println(getIndent(1) + " * are parsed with a null id, and the"
+                + " position in tab of the start of the");
+        pw.println(getIndent(1) + " * line of each is written before its"
+                + " values. They are written to a new");
+        pw.println(getIndent(1) + " * temporary file in the directory of bin"
+                + " that is then moved to bin, so");
+        pw.println(getIndent(1) + " * conversions of the same file at the"
+                + " same time do not interfere and a");
+        pw.println(getIndent(1) + " * failed conversion leaves no partial"
+                + " file.");
+        pw.println(getIndent(1) + " *");
+        pw.println(getIndent(1) + " * @param tab The input file.");
+        pw.println(getIndent(1) + " * @param bin The binary cache file.");
+        pw.println(getIndent(1) + " * @return The number of records.");
+        pw.println(getIndent(1) + " * @throws Exception If encountered.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static long convert(Path tab, Path"
+                + " bin) throws Exception {");
+        pw.println(getIndent(2) + "Path tmp = Files.createTempFile("
+                + "bin.toAbsolutePath().getParent(),");
+        pw.println(getIndent(4) + "bin.getFileName().toString(), \".tmp\");");
+        pw.println(getIndent(2) + "long n = 0;");
+        pw.println(getIndent(2) + "try {");
+        pw.println(getIndent(3) + "try (InputStream in = Files.newInputStream("
+                + "tab);");
+        pw.println(getIndent(5) + "DataOutputStream out = new DataOutputStream("
+                + "new BufferedOutputStream(");
+        pw.println(getIndent(6) + "Files.newOutputStream(tmp), 1 << 16))) {");
+        pw.println(getIndent(4) + "out.writeInt(MAGIC);");
+        pw.println(getIndent(4) + "out.writeLong(SCHEMA);");
+        pw.println(getIndent(4) + "byte[] b = new byte[1 << 16];");
+        pw.println(getIndent(4) + "byte[] line = new byte[1 << 12];");
+        pw.println(getIndent(4) + "// The length of line, or -1 in the"
+                + " header which is skipped.");
+        pw.println(getIndent(4) + "int len = -1;");
+        pw.println(getIndent(4) + "long pos = 0;");
+        pw.println(getIndent(4) + "long start = 0;");
+        pw.println(getIndent(4) + "int r;");
+        pw.println(getIndent(4) + "while ((r = in.read(b)) != -1) {");
+        pw.println(getIndent(5) + "for (int i = 0; i < r; i++) {");
+        pw.println(getIndent(6) + "if (b[i] == '\\n') {");
+        pw.println(getIndent(7) + "if (len >= 0 && write(out, line, len,"
+                + " start)) {");
+        pw.println(getIndent(8) + "n++;");
+        pw.println(getIndent(7) + "}");
+        pw.println(getIndent(7) + "len = 0;");
+        pw.println(getIndent(7) + "start = pos + i + 1;");
+        pw.println(getIndent(6) + "} else if (len >= 0) {");
+        pw.println(getIndent(7) + "if (len == line.length) {");
+        pw.println(getIndent(8) + "line = Arrays.copyOf(line, len * 2);");
+        pw.println(getIndent(7) + "}");
+        pw.println(getIndent(7) + "line[len++] = b[i];");
+        pw.println(getIndent(6) + "}");
+        pw.println(getIndent(5) + "}");
+        pw.println(getIndent(5) + "pos += r;");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(4) + "if (len >= 0 && write(out, line, len,"
+                + " start)) {");
+        pw.println(getIndent(5) + "n++;");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(4) + "out.writeByte(0);");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "Files.move(tmp, bin, StandardCopyOption"
+                + ".REPLACE_EXISTING,");
+        pw.println(getIndent(5) + "StandardCopyOption.ATOMIC_MOVE);");
+        pw.println(getIndent(2) + "} finally {");
+        pw.println(getIndent(3) + "// Only left if the write or move failed.");
+        pw.println(getIndent(3) + "Files.deleteIfExists(tmp);");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "return n;");
+        pw.println(getIndent(1) + "}");
+        // write
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * Writes the position and values of the"
+                + " record of a line unless it is");
+        pw.println(getIndent(1) + " * empty. A line ending with a carriage"
+                + " return is parsed without it.");
+        pw.println(getIndent(1) + " *");
+        pw.println(getIndent(1) + " * @param out The output.");
+        pw.println(getIndent(1) + " * @param line The bytes of the line.");
+        pw.println(getIndent(1) + " * @param len The number of bytes of the"
+                + " line.");
+        pw.println(getIndent(1) + " * @param pos The position of the start of"
+                + " the line.");
+        pw.println(getIndent(1) + " * @return false if the line is empty.");
+        pw.println(getIndent(1) + " * @throws Exception If encountered.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "private static boolean write("
+                + "DataOutputStream out, byte[] line, int len,");
+        pw.println(getIndent(3) + "long pos) throws Exception {");
+        pw.println(getIndent(2) + "if (len > 0 && line[len - 1] == '\\r') {");
+        pw.println(getIndent(3) + "len--;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "if (len == 0) {");
+        pw.println(getIndent(3) + "return false;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "out.writeByte(1);");
+        pw.println(getIndent(2) + "out.writeLong(pos);");
+        pw.println(getIndent(2) + "new " + recordClassName + "(null, new"
+                + " String(line, 0, len,");
+        pw.println(getIndent(4) + "StandardCharsets.UTF_8)).writeValues(out);");
+        pw.println(getIndent(2) + "return true;");
+        pw.println(getIndent(1) + "}");
+        // isCurrent
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param tab The input file.");
+        pw.println(getIndent(1) + " * @param bin The binary cache file.");
+        pw.println(getIndent(1) + " * @return true if bin exists, is not older"
+                + " than tab and has the current");
+        pw.println(getIndent(1) + " * schema.");
+        pw.println(getIndent(1) + " * @throws IOException If encountered.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static boolean isCurrent(Path tab,"
+                + " Path bin) throws IOException {");
+        pw.println(getIndent(2) + "if (!Files.exists(bin) || Files"
+                + ".getLastModifiedTime(bin).compareTo(");
+        pw.println(getIndent(4) + "Files.getLastModifiedTime(tab)) < 0) {");
+        pw.println(getIndent(3) + "return false;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "try (DataInputStream in = new DataInputStream("
+                + "Files.newInputStream(bin))) {");
+        pw.println(getIndent(3) + "return in.readInt() == MAGIC &&"
+                + " in.readLong() == SCHEMA;");
+        pw.println(getIndent(2) + "} catch (IOException ex) {");
+        pw.println(getIndent(3) + "return false;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(1) + "}");
+        // load from bin
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * Loads the records from a binary cache"
+                + " file.");
+        pw.println(getIndent(1) + " *");
+        pw.println(getIndent(1) + " * @param bin The binary cache file.");
+        pw.println(getIndent(1) + " * @param ids For creating the id of each"
+                + " record from the position in the");
+        pw.println(getIndent(1) + " * input file of the start of its line (as"
+                + " for the records streamed by");
+        pw.println(getIndent(1) + " * the loader class).");
+        pw.println(getIndent(1) + " * @return The records.");
+        pw.println(getIndent(1) + " * @throws IOException If bin is not a"
+                + " complete binary cache file with the");
+        pw.println(getIndent(1) + " * current schema or if otherwise"
+                + " encountered.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static " + list + " load(Path bin,");
+        pw.println(getIndent(3) + ids + ") throws IOException {");
+        pw.println(getIndent(2) + list + " r = new ArrayList<>();");
+        pw.println(getIndent(2) + "try (DataInputStream in = new DataInputStream("
+                + "new BufferedInputStream(");
+        pw.println(getIndent(4) + "Files.newInputStream(bin), 1 << 16))) {");
+        pw.println(getIndent(3) + "if (in.readInt() != MAGIC || in.readLong()"
+                + " != SCHEMA) {");
+        pw.println(getIndent(4) + "throw new IOException(bin + \" is not a"
+                + " current binary cache file\");");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "while (in.readByte() != 0) {");
+        pw.println(getIndent(4) + "r.add(new " + recordClassName
+                + "(ids.apply(in.readLong()), in));");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "return r;");
+        pw.println(getIndent(1) + "}");
+        // load from tab
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * Loads the records of an input file from"
+                + " its binary cache file, first");
+        pw.println(getIndent(1) + " * converting the input file if the binary"
+                + " cache file is not current.");
+        pw.println(getIndent(1) + " *");
+        pw.println(getIndent(1) + " * @param tab The input file.");
+        pw.println(getIndent(1) + " * @param bin The binary cache file.");
+        pw.println(getIndent(1) + " * @param ids For creating the id of each"
+                + " record from the position in tab");
+        pw.println(getIndent(1) + " * of the start of its line.");
+        pw.println(getIndent(1) + " * @return The records.");
+        pw.println(getIndent(1) + " * @throws Exception If encountered.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static " + list + " load(Path tab,"
+                + " Path bin,");
+        pw.println(getIndent(3) + ids + ") throws Exception {");
+        pw.println(getIndent(2) + "if (!isCurrent(tab, bin)) {");
+        pw.println(getIndent(3) + "convert(tab, bin);");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "return load(bin, ids);");
+        pw.println(getIndent(1) + "}");
+        pw.println("}");
+        pw.flush();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * The layout of the boolean fields declared in a generated record class packed
+ * into the bits of long fields. The k-th boolean field (in the order of the
+ * fields) is bit k % 64 of the long field named by {@link #getWord(int)} for
+ * k / 64. The long fields are named with a prefix that is different for each
+ * class of a record class hierarchy so that they are not hidden.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_BooleanBits {
+
+    /**
+     * The prefix of the names of the long fields.
+     */
+    public final String prefix;
+
+    /**
+     * The boolean fields in order.
+     */
+    public final ArrayList<String> fields;
+
+    /**
+     * Keys are the boolean fields, values are their bit indexes.
+     */
+    public final HashMap<String, Integer> index;
+
+    /**
+     * @param prefix The prefix of the names of the long fields.
+     * @param fields The fields declared in the class.
+     * @param fieldTypes The field types.
+     */
+    public WaASCG_BooleanBits(String prefix, TreeSet<String> fields,
+            HashMap<String, Integer> fieldTypes) {
+        this.prefix = prefix;
+        this.fields = new ArrayList<>();
+        index = new HashMap<>();
+        Iterator<String> ite = fields.iterator();
+        while (ite.hasNext()) {
+            String field = ite.next();
+            if (fieldTypes.get(field) == 5) {
+                index.put(field, this.fields.size());
+                this.fields.add(field);
+            }
+        }
+    }
+
+    /**
+     * @return The number of long fields.
+     */
+    public int getNWords() {
+        return (fields.size() + 63) / 64;
+    }
+
+    /**
+     * @param k The index of a long field.
+     * @return The name of the long field.
+     */
+    public String getWord(int k) {
+        return prefix + "Bits" + k;
+    }
+
+    /**
+     * @param field A boolean field.
+     * @return The name of the long field holding the bit for field.
+     */
+    public String getWord(String field) {
+        return getWord(index.get(field) / 64);
+    }
+
+    /**
+     * @param field A boolean field.
+     * @return An expression for the mask of the bit for field.
+     */
+    public String getMask(String field) {
+        return "(1L << " + (index.get(field) % 64) + ")";
+    }
+
+    /**
+     * @param field A boolean field.
+     * @return An expression for the value of field.
+     */
+    public String getValue(String field) {
+        return "(" + getWord(field) + " & " + getMask(field) + ") != 0";
+    }
+
+    /**
+     * @param field A boolean field.
+     * @return A statement that sets the bit for field.
+     */
+    public String getSet(String field) {
+        return getWord(field) + " |= " + getMask(field) + ";";
+    }
+
+    /**
+     * @param fields Fields.
+     * @return The fields that are not packed.
+     */
+    public TreeSet<String> getUnpacked(TreeSet<String> fields) {
+        TreeSet<String> r = new TreeSet<>(fields);
+        r.removeAll(index.keySet());
+        return r;
+    }
+}
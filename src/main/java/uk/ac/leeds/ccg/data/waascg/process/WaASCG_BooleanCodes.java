@@ -0,0 +1,157 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The byte codes observed for the boolean fields of each wave. Fields are
+ * indexed by their upper case form, so the codes of a field in different waves
+ * are found with a single lookup whatever the case of its name in each wave.
+ * The codes of field k in wave w are {@code codes0[w][k]} and
+ * {@code codes1[w][k]}, either of which is {@link #NONE} if there is no such
+ * code, and codes0[w][k] is {@link #MANY} if there are more than two codes.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_BooleanCodes {
+
+    /**
+     * For no code.
+     */
+    public static final short NONE = Short.MIN_VALUE;
+
+    /**
+     * For more than two codes.
+     */
+    public static final short MANY = Short.MAX_VALUE;
+
+    /**
+     * Keys are the upper case forms of the fields, values are their indexes.
+     */
+    protected final HashMap<String, Integer> index;
+
+    /**
+     * The smaller code of each field in each wave.
+     */
+    protected final short[][] codes0;
+
+    /**
+     * The larger code of each field in each wave.
+     */
+    protected final short[][] codes1;
+
+    /**
+     * @param v0ms The smaller codes of the fields of each wave.
+     * @param v1ms The larger codes of the fields of each wave. May be null or
+     * have null elements.
+     */
+    public WaASCG_BooleanCodes(HashMap<String, Byte>[] v0ms,
+            HashMap<String, Byte>[] v1ms) {
+        int nwaves = v0ms.length;
+        index = new HashMap<>();
+        for (HashMap<String, Byte> v0m : v0ms) {
+            for (String field : v0m.keySet()) {
+                index.putIfAbsent(fold(field), index.size());
+            }
+        }
+        int n = index.size();
+        codes0 = new short[nwaves][n];
+        codes1 = new short[nwaves][n];
+        for (int w = 0; w < nwaves; w++) {
+            Arrays.fill(codes0[w], NONE);
+            Arrays.fill(codes1[w], NONE);
+            HashMap<String, Byte> v1m = v1ms == null ? null : v1ms[w];
+            for (String field : v0ms[w].keySet()) {
+                int k = index.get(fold(field));
+                add(codes0[w], codes1[w], k, v0ms[w].get(field));
+                if (v1m != null) {
+                    Byte v1 = v1m.get(field);
+                    if (v1 != null) {
+                        add(codes0[w], codes1[w], k, v1);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param field A field.
+     * @return The upper case form of field.
+     */
+    public static String fold(String field) {
+        return field.toUpperCase();
+    }
+
+    /**
+     * Adds code b at index k of c0 and c1 unless it is already there.
+     *
+     * @param c0 The smaller codes.
+     * @param c1 The larger codes.
+     * @param k The index of the field.
+     * @param b The code.
+     */
+    private static void add(short[] c0, short[] c1, int k, short b) {
+        if (c0[k] == MANY || c0[k] == b || c1[k] == b) {
+            return;
+        }
+        if (c0[k] == NONE) {
+            c0[k] = b;
+        } else if (c1[k] == NONE) {
+            c1[k] = (short) Math.max(c0[k], b);
+            c0[k] = (short) Math.min(c0[k], b);
+        } else {
+            c0[k] = MANY;
+        }
+    }
+
+    /**
+     * @param field A field.
+     * @param mask The bitmask of the waves (bit w for wave w + 1).
+     * @return The code for false of field in the waves of mask, which is the
+     * smaller of the codes observed in the waves, or {@link #NONE} if no code
+     * was observed, or {@link #MANY} if more than two different codes were
+     * observed, in which case field is better stored as a byte than a
+     * boolean.
+     */
+    public short getV0(String field, long mask) {
+        Integer k = index.get(fold(field));
+        if (k == null) {
+            return NONE;
+        }
+        short[] r0 = {NONE};
+        short[] r1 = {NONE};
+        for (int w = 0; w < codes0.length; w++) {
+            if ((mask & (1L << w)) != 0) {
+                if (codes0[w][k] == MANY) {
+                    return MANY;
+                }
+                if (codes0[w][k] != NONE) {
+                    add(r0, r1, 0, codes0[w][k]);
+                }
+                if (codes1[w][k] != NONE) {
+                    add(r0, r1, 0, codes1[w][k]);
+                }
+            }
+            if (r0[0] == MANY) {
+                return MANY;
+            }
+        }
+        return r0[0];
+    }
+}
@@ -0,0 +1,602 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * The type state of each column of a WaAS input file. The state of a column is
+ * a single byte which starts at {@link #BOOLEAN} and only ever moves towards
+ * {@link #STRING} (0). For columns in the {@link #BOOLEAN} state the pair of
+ * byte codes observed is also stored. Byte.MIN_VALUE is reserved as a
+ * noDataValue, so it denotes that a code has not been observed and it is not
+ * itself counted as a code.
+ *
+ * If {@link #dictionaries} is true the distinct tokens of each column are
+ * also stored, so that the values of a String column with few distinct values
+ * can be stored as codes into a dictionary. The tokens of a column are
+ * dropped once it cannot have a dictionary, which is once there are more than
+ * {@link #MAX_DISTINCT} of them or more than
+ * {@link WaASCG_DictionaryGenerator#MAX_CHARS} chars of them.
+ *
+ * For the numeric tokens of each column the range of values, the largest
+ * number of digits after the decimal point and whether all are plain decimals
+ * or exactly floats are also stored, so that a column of decimals can be
+ * stored in fewer bytes than a double where this is lossless. The numbers of
+ * numeric tokens and of blank tokens of each column are also counted.
+ *
+ * A column is saturated once no further token can change its state or its
+ * distinct tokens, which is once it is in the {@link #STRING} state and its
+ * tokens are not stored. The number of columns that are not
+ * saturated and the index of the last of these are kept so that a scan can
+ * skip saturated columns at the end of rows and stop once all columns are
+ * saturated.
+ *
+ * The states of a scan of part of a file can be merged with those of a scan
+ * of the part that follows using {@link #merge(WaASCG_ColumnTypes)}. This
+ * gives the same result as a scan of both parts in order and is associative.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_ColumnTypes {
+
+    /**
+     * The type state for a column to be represented by a String.
+     */
+    public static final byte STRING = 0;
+
+    /**
+     * The type state for a column to be represented by a double.
+     */
+    public static final byte DOUBLE = 1;
+
+    /**
+     * The type state for a column to be represented by an int.
+     */
+    public static final byte INT = 2;
+
+    /**
+     * The type state for a column to be represented by a short.
+     */
+    public static final byte SHORT = 3;
+
+    /**
+     * The type state for a column to be represented by a byte.
+     */
+    public static final byte BYTE = 4;
+
+    /**
+     * The type state for a column to be represented by a boolean.
+     */
+    public static final byte BOOLEAN = 5;
+
+    /**
+     * The maximum number of distinct tokens stored for a column.
+     */
+    public static final int MAX_DISTINCT = 1024;
+
+    /**
+     * The field names of the columns.
+     */
+    public final String[] fields;
+
+    /**
+     * If true the distinct tokens of the columns are stored.
+     */
+    public final boolean dictionaries;
+
+    /**
+     * The type state of each column.
+     */
+    public final byte[] types;
+
+    /**
+     * The first byte code observed in each column while it was in the
+     * {@link #BOOLEAN} state, or Byte.MIN_VALUE if there was none.
+     */
+    public final byte[] v0;
+
+    /**
+     * The second byte code observed in each column while it was in the
+     * {@link #BOOLEAN} state, or Byte.MIN_VALUE if there was none.
+     */
+    public final byte[] v1;
+
+    /**
+     * The distinct tokens of each column, or null for a column that cannot
+     * have a dictionary or if {@link #dictionaries} is false.
+     */
+    public final WaASCG_TokenSet[] distinct;
+
+    /**
+     * The smallest value of the numeric tokens of each column, or
+     * Double.POSITIVE_INFINITY if there are none.
+     */
+    public final double[] min;
+
+    /**
+     * The largest value of the numeric tokens of each column, or
+     * Double.NEGATIVE_INFINITY if there are none.
+     */
+    public final double[] max;
+
+    /**
+     * The largest number of digits after the decimal point of the numeric
+     * tokens of each column.
+     */
+    public final byte[] scale;
+
+    /**
+     * For each column, true if all the numeric tokens are plain decimals (see
+     * {@link WaASCG_TokenClassifier#isPlain}).
+     */
+    public final boolean[] plain;
+
+    /**
+     * For each column, true if the values of all the numeric tokens are
+     * exactly floats.
+     */
+    public final boolean[] floats;
+
+    /**
+     * The number of numeric tokens of each column.
+     */
+    public final long[] counts;
+
+    /**
+     * The number of blank tokens of each column.
+     */
+    public final long[] nulls;
+
+    /**
+     * The number of rows read.
+     */
+    public long rows;
+
+    /**
+     * The number of changes of the state of a column, including those made
+     * in merging.
+     */
+    public long promotions;
+
+    /**
+     * The number of columns that are not saturated.
+     */
+    protected int nLive;
+
+    /**
+     * The index of the last column that is not saturated, or -1 if all
+     * columns are saturated.
+     */
+    protected int lastLive;
+
+    /**
+     * @param fields The field names of the columns.
+     */
+    public WaASCG_ColumnTypes(String[] fields) {
+        this(fields, true);
+    }
+
+    /**
+     * @param fields The field names of the columns.
+     * @param dictionaries If true the distinct tokens of the columns are
+     * stored.
+     */
+    public WaASCG_ColumnTypes(String[] fields, boolean dictionaries) {
+        this.fields = fields;
+        this.dictionaries = dictionaries;
+        int n = fields.length;
+        types = new byte[n];
+        v0 = new byte[n];
+        v1 = new byte[n];
+        distinct = new WaASCG_TokenSet[n];
+        min = new double[n];
+        max = new double[n];
+        scale = new byte[n];
+        plain = new boolean[n];
+        floats = new boolean[n];
+        counts = new long[n];
+        nulls = new long[n];
+        for (int i = 0; i < n; i++) {
+            min[i] = Double.POSITIVE_INFINITY;
+            max[i] = Double.NEGATIVE_INFINITY;
+            plain[i] = true;
+            floats[i] = true;
+            types[i] = BOOLEAN;
+            v0[i] = Byte.MIN_VALUE;
+            v1[i] = Byte.MIN_VALUE;
+            if (dictionaries) {
+                distinct[i] = new WaASCG_TokenSet(MAX_DISTINCT,
+                        WaASCG_DictionaryGenerator.MAX_CHARS);
+            }
+        }
+        nLive = n;
+        lastLive = n - 1;
+    }
+
+    /**
+     * @param col The column index.
+     * @return true if no further token can change the state or the distinct
+     * tokens of column col. If {@link #dictionaries} is false this is if the
+     * state is {@link #STRING}.
+     */
+    public boolean isSaturated(int col) {
+        return types[col] == STRING && distinct[col] == null;
+    }
+
+    /**
+     * @return The index of the last column that is not saturated, or -1 if
+     * all columns are saturated.
+     */
+    public int getLastLive() {
+        return lastLive;
+    }
+
+    /**
+     * @return The number of columns that are not saturated.
+     */
+    public int getNLive() {
+        return nLive;
+    }
+
+    /**
+     * Sets the state of column col to t and updates the count of columns that
+     * are not saturated.
+     *
+     * @param col The column index.
+     * @param t The new state.
+     */
+    protected void setType(int col, byte t) {
+        boolean wasSaturated = isSaturated(col);
+        types[col] = t;
+        promotions++;
+        updateLive(col, wasSaturated);
+    }
+
+    /**
+     * Stops storing the distinct tokens of column col as it cannot have a
+     * dictionary and updates the count
+     * of columns that are not saturated.
+     *
+     * @param col The column index.
+     */
+    protected void setOverflowed(int col) {
+        boolean wasSaturated = isSaturated(col);
+        distinct[col] = null;
+        updateLive(col, wasSaturated);
+    }
+
+    /**
+     * Counts the columns that are not saturated and finds the last of them.
+     */
+    private void initLive() {
+        nLive = 0;
+        lastLive = -1;
+        for (int col = 0; col < types.length; col++) {
+            if (!isSaturated(col)) {
+                nLive++;
+                lastLive = col;
+            }
+        }
+    }
+
+    private void updateLive(int col, boolean wasSaturated) {
+        if (!wasSaturated && isSaturated(col)) {
+            nLive--;
+            if (col == lastLive) {
+                while (lastLive >= 0 && isSaturated(lastLive)) {
+                    lastLive--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the state of column col to account for a token.
+     *
+     * @param col The column index.
+     * @param type The narrowest type that can represent the token (one of
+     * {@link #STRING}, {@link #DOUBLE}, {@link #INT}, {@link #SHORT} or
+     * {@link #BYTE}).
+     * @param b The value of the token if type is {@link #BYTE}.
+     */
+    public void add(int col, byte type, byte b) {
+        byte t = types[col];
+        if (t == BOOLEAN) {
+            if (type == BYTE) {
+                addCode(col, b);
+            } else {
+                setType(col, type);
+            }
+        } else if (type < t) {
+            setType(col, type);
+        }
+    }
+
+    /**
+     * Adds the token in b from start to end to the distinct tokens of column
+     * col. This is only needed if {@link #dictionaries} is true.
+     *
+     * @param col The column index.
+     * @param b The bytes.
+     * @param start The index of the first byte of the token.
+     * @param end The index after the last byte of the token.
+     */
+    public void addToken(int col, byte[] b, int start, int end) {
+        WaASCG_TokenSet d = distinct[col];
+        if (d != null && !d.add(b, start, end)) {
+            setOverflowed(col);
+        }
+    }
+
+    /**
+     * Counts a blank token of column col.
+     *
+     * @param col The column index.
+     */
+    public void addNull(int col) {
+        nulls[col]++;
+    }
+
+    /**
+     * Adds a numeric token to the count, range, scale and flags of column
+     * col.
+     *
+     * @param col The column index.
+     * @param value The value of the token.
+     * @param scale The number of digits after the decimal point of the token.
+     * @param isPlain true if the token is a plain decimal.
+     * @param isFloat true if value is exactly a float.
+     */
+    public void addValue(int col, double value, int scale, boolean isPlain,
+            boolean isFloat) {
+        counts[col]++;
+        if (value < min[col]) {
+            min[col] = value;
+        }
+        if (value > max[col]) {
+            max[col] = value;
+        }
+        if (scale > this.scale[col]) {
+            this.scale[col] = (byte) Math.min(scale, Byte.MAX_VALUE);
+        }
+        plain[col] &= isPlain;
+        floats[col] &= isFloat;
+    }
+
+    /**
+     * @param col The column index.
+     * @return The distinct tokens of column col or null if they are not
+     * stored.
+     */
+    public String[] getDistinct(int col) {
+        return distinct[col] == null ? null : distinct[col].toStrings();
+    }
+
+    /**
+     * Adds a byte code for column col. If the column is in the
+     * {@link #BOOLEAN} state and this is a third distinct code then the
+     * column moves to the {@link #BYTE} state.
+     *
+     * @param col The column index.
+     * @param b The code.
+     */
+    protected void addCode(int col, byte b) {
+        if (types[col] != BOOLEAN || b == Byte.MIN_VALUE) {
+            return;
+        }
+        if (v0[col] == Byte.MIN_VALUE) {
+            v0[col] = b;
+        } else if (b != v0[col]) {
+            if (v1[col] == Byte.MIN_VALUE) {
+                v1[col] = b;
+            } else if (b != v1[col]) {
+                setType(col, BYTE);
+            }
+        }
+    }
+
+    /**
+     * Merges in the states from a scan of the part of the file that follows
+     * the part scanned for this.
+     *
+     * @param o The states to merge in. These are not modified.
+     */
+    public void merge(WaASCG_ColumnTypes o) {
+        for (int col = 0; col < types.length; col++) {
+            if (types[col] == BOOLEAN) {
+                /**
+                 * The codes of o were observed before any token moved it out
+                 * of the BOOLEAN state, so add them first.
+                 */
+                addCode(col, o.v0[col]);
+                addCode(col, o.v1[col]);
+                if (o.types[col] != BOOLEAN && o.types[col] < types[col]) {
+                    setType(col, o.types[col]);
+                }
+            } else if (o.types[col] < types[col]) {
+                setType(col, o.types[col]);
+            }
+            min[col] = Math.min(min[col], o.min[col]);
+            max[col] = Math.max(max[col], o.max[col]);
+            scale[col] = (byte) Math.max(scale[col], o.scale[col]);
+            plain[col] &= o.plain[col];
+            floats[col] &= o.floats[col];
+            counts[col] += o.counts[col];
+            nulls[col] += o.nulls[col];
+            WaASCG_TokenSet d = distinct[col];
+            if (d != null && (o.distinct[col] == null
+                    || !d.addAll(o.distinct[col]))) {
+                setOverflowed(col);
+            }
+        }
+        rows += o.rows;
+    }
+
+    /**
+     * @return keys are field names, values are the type states.
+     */
+    public HashMap<String, Integer> getFieldTypes() {
+        HashMap<String, Integer> r = new HashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            r.put(fields[i], (int) types[i]);
+        }
+        return r;
+    }
+
+    /**
+     * @return keys are field names, values are the smaller of the codes
+     * observed. Fields for which no code was observed are not included.
+     */
+    public HashMap<String, Byte> getV0m() {
+        return getCodes(true);
+    }
+
+    /**
+     * @return keys are field names, values are the larger of the codes
+     * observed. Fields for which fewer than two codes were observed are not
+     * included.
+     */
+    public HashMap<String, Byte> getV1m() {
+        return getCodes(false);
+    }
+
+    private HashMap<String, Byte> getCodes(boolean smaller) {
+        HashMap<String, Byte> r = new HashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            byte a = v0[i];
+            byte b = v1[i];
+            if (b != Byte.MIN_VALUE && a > b) {
+                a = v1[i];
+                b = v0[i];
+            }
+            if (smaller) {
+                if (a != Byte.MIN_VALUE) {
+                    r.put(fields[i], a);
+                }
+            } else if (b != Byte.MIN_VALUE) {
+                r.put(fields[i], b);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Writes the field names, states, distinct tokens, value statistics and
+     * number of rows.
+     *
+     * @param out The output.
+     * @throws IOException If encountered.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(fields.length);
+        out.writeBoolean(dictionaries);
+        for (int i = 0; i < fields.length; i++) {
+            out.writeUTF(fields[i]);
+            out.writeByte(types[i]);
+            out.writeByte(v0[i]);
+            out.writeByte(v1[i]);
+            out.writeDouble(min[i]);
+            out.writeDouble(max[i]);
+            out.writeByte(scale[i]);
+            out.writeBoolean(plain[i]);
+            out.writeBoolean(floats[i]);
+            out.writeLong(counts[i]);
+            out.writeLong(nulls[i]);
+            WaASCG_TokenSet d = distinct[i];
+            if (d == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(d.size());
+                for (int j = 0; j < d.size(); j++) {
+                    byte[] t = d.get(j);
+                    out.writeInt(t.length);
+                    out.write(t);
+                }
+            }
+        }
+        out.writeLong(rows);
+    }
+
+    /**
+     * Reads field names, states, distinct tokens, value statistics and
+     * number of rows written by {@link #write(java.io.DataOutput)}. No
+     * promotions are counted for the states read.
+     *
+     * @param in The input.
+     * @return The field names, states, distinct tokens, value statistics and
+     * number of rows.
+     * @throws IOException If encountered.
+     */
+    public static WaASCG_ColumnTypes read(DataInput in) throws IOException {
+        int n = in.readInt();
+        boolean dictionaries = in.readBoolean();
+        String[] fields = new String[n];
+        byte[] types = new byte[n];
+        byte[] v0 = new byte[n];
+        byte[] v1 = new byte[n];
+        double[] min = new double[n];
+        double[] max = new double[n];
+        byte[] scale = new byte[n];
+        boolean[] plain = new boolean[n];
+        boolean[] floats = new boolean[n];
+        long[] counts = new long[n];
+        long[] nulls = new long[n];
+        WaASCG_TokenSet[] distinct = new WaASCG_TokenSet[n];
+        for (int i = 0; i < n; i++) {
+            fields[i] = in.readUTF();
+            types[i] = in.readByte();
+            v0[i] = in.readByte();
+            v1[i] = in.readByte();
+            min[i] = in.readDouble();
+            max[i] = in.readDouble();
+            scale[i] = in.readByte();
+            plain[i] = in.readBoolean();
+            floats[i] = in.readBoolean();
+            counts[i] = in.readLong();
+            nulls[i] = in.readLong();
+            int size = in.readInt();
+            if (size >= 0) {
+                distinct[i] = new WaASCG_TokenSet(MAX_DISTINCT,
+                        WaASCG_DictionaryGenerator.MAX_CHARS);
+                for (int j = 0; j < size; j++) {
+                    byte[] t = new byte[in.readInt()];
+                    in.readFully(t);
+                    distinct[i].add(t, 0, t.length);
+                }
+            }
+        }
+        WaASCG_ColumnTypes r = new WaASCG_ColumnTypes(fields, dictionaries);
+        System.arraycopy(v0, 0, r.v0, 0, n);
+        System.arraycopy(v1, 0, r.v1, 0, n);
+        System.arraycopy(min, 0, r.min, 0, n);
+        System.arraycopy(max, 0, r.max, 0, n);
+        System.arraycopy(scale, 0, r.scale, 0, n);
+        System.arraycopy(plain, 0, r.plain, 0, n);
+        System.arraycopy(floats, 0, r.floats, 0, n);
+        System.arraycopy(counts, 0, r.counts, 0, n);
+        System.arraycopy(nulls, 0, r.nulls, 0, n);
+        System.arraycopy(distinct, 0, r.distinct, 0, n);
+        System.arraycopy(types, 0, r.types, 0, n);
+        r.rows = in.readLong();
+        r.initLive();
+        return r;
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import uk.ac.leeds.ccg.cg.process.CG_Process;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Strings;
+
+/**
+ * For writing the source code of a columnar store for a wave of WaAS data. The
+ * store holds a primitive array for each column (of the type inferred for the
+ * field) rather than an object for each row, and it is filled in a single
+ * pass of the input file. This uses much less memory than the record classes
+ * and scans of a few columns across all rows read contiguous memory. The
+ * column of a String field with a dictionary holds the codes of the values
+ * (see {@link WaASCG_DictionaryGenerator}) and the column of a numeric field
+ * stored in a narrower type holds the stored values (see
+ * {@link WaASCG_NumberStorage}).
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_ColumnsGenerator extends CG_Process {
+
+    /**
+     * For the shared header, package and import writing methods.
+     */
+    protected final WaASCG_Main p;
+
+    /**
+     * For printing the methods that walk a line.
+     */
+    protected final WaASCG_ParserGenerator pg;
+
+    /**
+     * @param p For the shared header, package and import writing methods.
+     */
+    public WaASCG_ColumnsGenerator(WaASCG_Main p) {
+        super();
+        this.p = p;
+        pg = new WaASCG_ParserGenerator(p);
+    }
+
+    /**
+     * @param wave The wave.
+     * @param type The type letter (H or P).
+     * @return The name of the columnar store class for wave and type.
+     */
+    public static String getClassName(int wave, String type) {
+        return WaASCG_Strings.s_WaAS + WaASCG_Strings.symbol_underscore + "W"
+                + wave + type + "Columns";
+    }
+
+    /**
+     * @param fieldType The field type (as for
+     * {@link WaASCG_Main#getFieldTypes(java.lang.String)}).
+     * @return The Java type of a value of a field of type fieldType.
+     */
+    public static String getJavaType(int fieldType) {
+        switch (fieldType) {
+            case 0:
+                return "String";
+            case 1:
+                return "double";
+            case 2:
+                return "int";
+            case 3:
+                return "short";
+            case 4:
+                return "byte";
+            default:
+                return "boolean";
+        }
+    }
+
+    /**
+     * @return The imports of the columnar store classes.
+     */
+    protected ArrayList<String> getImports() {
+        ArrayList<String> r = new ArrayList<>();
+        r.add("java.io.BufferedReader");
+        r.add("java.io.IOException");
+        r.add("java.io.InputStreamReader");
+        r.add("java.nio.charset.StandardCharsets");
+        r.add("java.nio.file.Files");
+        r.add("java.nio.file.Path");
+        r.add("java.util.Arrays");
+        return r;
+    }
+
+    /**
+     * Writes the columnar store class.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param packageName The package name.
+     * @param className The class name.
+     * @param parser The name of the parser class.
+     * @param wave The wave.
+     * @param header The fields of the columns of the input file in order.
+     * @param fieldTypes The field types.
+     * @param v0 The codes for false of the boolean fields.
+     * @param dg The dictionaries or null.
+     * @param ds The storage of the numeric fields or null.
+     */
+    public void write(PrintWriter pw, String packageName, String className,
+            String parser, int wave, String[] header,
+            HashMap<String, Integer> fieldTypes, HashMap<String, Byte> v0,
+            WaASCG_DictionaryGenerator dg, WaASCG_NumberStorage ds) {
+        String[] javaTypes = new String[header.length];
+        for (int j = 0; j < header.length; j++) {
+            String field = header[j];
+            if (dg != null && dg.contains(field)) {
+                javaTypes[j] = dg.getCodeType(field);
+            } else if (ds != null && ds.contains(field)) {
+                javaTypes[j] = ds.getJavaType(field);
+            } else {
+                javaTypes[j] = getJavaType(fieldTypes.get(field));
+            }
+        }
+        p.writeHeaderPackageAndImports(pw, packageName, getImports());
+        pw.println();
+        pw.println("/**");
+        pw.println(" * The values of a wave " + wave + " input file held in an"
+                + " array for each column.");
+        pw.println(" * Arrays may be longer than the number of rows until"
+                + " {@link #trim()} is called.");
+        pw.println(" */");
+        pw.println("public class " + className + " {");
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * The number of rows.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "protected int n;");
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * The length of the arrays.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "protected int capacity;");
+        // Field declarations
+        for (int j = 0; j < header.length; j++) {
+            pw.println();
+            pw.println(getIndent(1) + "protected " + javaTypes[j] + "[] "
+                    + header[j] + ";");
+        }
+        // Constructor
+        String[] allocate = new String[header.length];
+        String[] resize = new String[header.length];
+        for (int j = 0; j < header.length; j++) {
+            String field = header[j];
+            allocate[j] = field + " = new " + javaTypes[j] + "[c];";
+            resize[j] = field + " = Arrays.copyOf(" + field + ", c);";
+        }
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param capacity The initial length of"
+                + " the arrays.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public " + className + "(int capacity) {");
+        pw.println(getIndent(2) + "this.capacity = capacity;");
+        p.printChunkCalls(pw, "allocate", "capacity", header.length);
+        pw.println(getIndent(1) + "}");
+        p.printChunkMethods(pw, "allocate", "int c", "", allocate);
+        // size
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @return The number of rows.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public int size() {");
+        pw.println(getIndent(2) + "return n;");
+        pw.println(getIndent(1) + "}");
+        // add
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * Adds the values of a line of the input"
+                + " file as a row.");
+        pw.println(getIndent(1) + " *");
+        pw.println(getIndent(1) + " * @param line The line.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public void add(String line) {");
+        pw.println(getIndent(2) + "if (n == capacity) {");
+        pw.println(getIndent(3) + "resize(Math.max(16, capacity * 2));");
+        pw.println(getIndent(2) + "}");
+        pg.printWalkCalls(pw, header.length);
+        pw.println(getIndent(2) + "n++;");
+        pw.println(getIndent(1) + "}");
+        String[] statements = new String[header.length];
+        for (int j = 0; j < header.length; j++) {
+            String field = header[j];
+            if (dg != null && dg.contains(field)) {
+                statements[j] = field + "[n] = "
+                        + dg.getCodeExpression(field, "line", "p", "q") + ";";
+            } else if (ds != null && ds.contains(field)) {
+                statements[j] = "{ " + String.join(" ", ds.getStoreStatements(
+                        field, field + "[n]",
+                        WaASCG_ParserGenerator.getParseExpression(
+                                fieldTypes.get(field), null, parser, "line",
+                                "p", "q"))) + " }";
+            } else {
+                statements[j] = field + "[n] = "
+                        + WaASCG_ParserGenerator.getParseExpression(
+                                fieldTypes.get(field), v0.get(field), parser,
+                                "line", "p", "q") + ";";
+            }
+        }
+        pg.printWalkMethods(pw, parser, statements);
+        // resize and trim
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param c The new length of the arrays.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "protected void resize(int c) {");
+        pw.println(getIndent(2) + "capacity = c;");
+        p.printChunkCalls(pw, "resize", "c", header.length);
+        pw.println(getIndent(1) + "}");
+        p.printChunkMethods(pw, "resize", "int c", "", resize);
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * Reduces the length of the arrays to the"
+                + " number of rows.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public void trim() {");
+        pw.println(getIndent(2) + "if (capacity != n) {");
+        pw.println(getIndent(3) + "resize(n);");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(1) + "}");
+        // load
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * Loads all the rows of an input file in"
+                + " a single pass.");
+        pw.println(getIndent(1) + " *");
+        pw.println(getIndent(1) + " * @param f The input file.");
+        pw.println(getIndent(1) + " * @return The columns.");
+        pw.println(getIndent(1) + " * @throws IOException If encountered.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static " + className
+                + " load(Path f) throws IOException {");
+        pw.println(getIndent(2) + className + " r = new " + className
+                + "(1024);");
+        pw.println(getIndent(2) + "try (BufferedReader br = new BufferedReader("
+                + "new InputStreamReader(");
+        pw.println(getIndent(4) + "Files.newInputStream(f),"
+                + " StandardCharsets.UTF_8))) {");
+        pw.println(getIndent(3) + "// Skip the header.");
+        pw.println(getIndent(3) + "String line = br.readLine();");
+        pw.println(getIndent(3) + "while ((line = br.readLine()) != null) {");
+        pw.println(getIndent(4) + "if (!line.isEmpty()) {");
+        pw.println(getIndent(5) + "r.add(line);");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "r.trim();");
+        pw.println(getIndent(2) + "return r;");
+        pw.println(getIndent(1) + "}");
+        // Getters
+        for (int j = 0; j < header.length; j++) {
+            String field = header[j];
+            pw.println();
+            if (dg != null && dg.contains(field)) {
+                pw.println(getIndent(1) + "/**");
+                pw.println(getIndent(1) + " * @return The codes of the values"
+                        + " (see " + dg.className + "." + field + ").");
+                pw.println(getIndent(1) + " */");
+            } else if (ds != null && (ds.scales.containsKey(field)
+                    || ds.offsets.containsKey(field))) {
+                pw.println(getIndent(1) + "/**");
+                pw.println(getIndent(1) + " * @return "
+                        + ds.getStoredDescription(field));
+                pw.println(getIndent(1) + " */");
+            }
+            pw.println(getIndent(1) + "public " + javaTypes[j] + "[] get"
+                    + field + "() {");
+            pw.println(getIndent(2) + "return " + field + ";");
+            pw.println(getIndent(1) + "}");
+        }
+        pw.println("}");
+        pw.flush();
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.TreeSet;
+import uk.ac.leeds.ccg.cg.process.CG_Process;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Strings;
+
+/**
+ * For writing the source code of a class holding a dictionary for each String
+ * field with few distinct values. A dictionary is an array of the distinct
+ * values of a field in their natural order. Rather than a String, a record
+ * stores the index of its value in the dictionary as a byte (or a short for a
+ * dictionary of more than {@link Byte#MAX_VALUE} values), and -1 for no
+ * value.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_DictionaryGenerator extends CG_Process {
+
+    /**
+     * The maximum total number of chars of the values of a dictionary. The
+     * values of a dictionary are written as a single String constant.
+     */
+    public static final int MAX_CHARS = 16384;
+
+    /**
+     * For the shared header, package and import writing methods.
+     */
+    protected final WaASCG_Main p;
+
+    /**
+     * The name of the dictionary class.
+     */
+    public final String className;
+
+    /**
+     * Keys are the fields with a dictionary, values are the dictionaries.
+     */
+    public final HashMap<String, String[]> values;
+
+    /**
+     * @param p For the shared header, package and import writing methods.
+     * @param className The name of the dictionary class.
+     * @param values Keys are the fields with a dictionary, values are the
+     * dictionaries.
+     */
+    public WaASCG_DictionaryGenerator(WaASCG_Main p, String className,
+            HashMap<String, String[]> values) {
+        super();
+        this.p = p;
+        this.className = className;
+        this.values = values;
+    }
+
+    /**
+     * @param type The type letter (H or P).
+     * @return The name of the dictionary class for type.
+     */
+    public static String getClassName(String type) {
+        return WaASCG_Strings.s_WaAS + WaASCG_Strings.symbol_underscore + type
+                + "Dictionaries";
+    }
+
+    /**
+     * @param field A field.
+     * @return true if field has a dictionary.
+     */
+    public boolean contains(String field) {
+        return values.containsKey(field);
+    }
+
+    /**
+     * @param fields Fields.
+     * @return The fields that have a dictionary.
+     */
+    public TreeSet<String> getCoded(TreeSet<String> fields) {
+        TreeSet<String> r = new TreeSet<>(fields);
+        r.retainAll(values.keySet());
+        return r;
+    }
+
+    /**
+     * @param fields Fields.
+     * @return The fields that do not have a dictionary.
+     */
+    public TreeSet<String> getUncoded(TreeSet<String> fields) {
+        TreeSet<String> r = new TreeSet<>(fields);
+        r.removeAll(values.keySet());
+        return r;
+    }
+
+    /**
+     * @param field A field with a dictionary.
+     * @return The Java type of the codes of field.
+     */
+    public String getCodeType(String field) {
+        return values.get(field).length <= Byte.MAX_VALUE ? "byte" : "short";
+    }
+
+    /**
+     * @param field A field with a dictionary.
+     * @return The name of the DataOutput and DataInput methods for the codes
+     * of field without the write or read prefix.
+     */
+    public String getCodeIO(String field) {
+        return values.get(field).length <= Byte.MAX_VALUE ? "Byte" : "Short";
+    }
+
+    /**
+     * @param field A field with a dictionary.
+     * @param line The expression for the line.
+     * @param start The expression for the start of the range of the value.
+     * @param end The expression for the end of the range of the value.
+     * @return An expression for the code of the value of field in the range.
+     */
+    public String getCodeExpression(String field, String line, String start,
+            String end) {
+        return "(" + getCodeType(field) + ") " + className + ".getCode("
+                + className + "." + field + ", " + line + ", " + start + ", "
+                + end + ")";
+    }
+
+    /**
+     * @param field A field with a dictionary.
+     * @param code The expression for a code.
+     * @return An expression for the value of field for code.
+     */
+    public String getValueExpression(String field, String code) {
+        return className + ".getValue(" + className + "." + field + ", "
+                + code + ")";
+    }
+
+    /**
+     * Writes the dictionary class.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param packageName The package name.
+     */
+    public void write(PrintWriter pw, String packageName) {
+        p.writeHeaderPackageAndImports(pw, packageName, null);
+        pw.println();
+        pw.println("/**");
+        pw.println(" * The distinct values of the String fields with few"
+                + " distinct values in their");
+        pw.println(" * natural order. Records store the index of a value (its"
+                + " code) or -1 for no");
+        pw.println(" * value.");
+        pw.println(" */");
+        pw.println("public final class " + className + " {");
+        pw.println();
+        pw.println(getIndent(1) + "private " + className + "() {");
+        pw.println(getIndent(1) + "}");
+        Iterator<String> ite = new TreeSet<>(values.keySet()).iterator();
+        while (ite.hasNext()) {
+            String field = ite.next();
+            pw.println();
+            pw.println(getIndent(1) + "public static final String[] " + field
+                    + " = split(\"" + getLiteral(values.get(field)) + "\");");
+        }
+        // split
+        pw.println();
+        pw.println(getIndent(1) + "private static String[] split(String s) {");
+        pw.println(getIndent(2) + "return s.split(\"\\t\");");
+        pw.println(getIndent(1) + "}");
+        // getValue
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param values A dictionary.");
+        pw.println(getIndent(1) + " * @param code A code.");
+        pw.println(getIndent(1) + " * @return The value for code or null if"
+                + " code is -1.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static String getValue(String[]"
+                + " values, int code) {");
+        pw.println(getIndent(2) + "return code < 0 ? null : values[code];");
+        pw.println(getIndent(1) + "}");
+        // getCode
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param values A dictionary.");
+        pw.println(getIndent(1) + " * @param line The line.");
+        pw.println(getIndent(1) + " * @param start The start of the range of"
+                + " the value.");
+        pw.println(getIndent(1) + " * @param end The end of the range of the"
+                + " value.");
+        pw.println(getIndent(1) + " * @return The code of the value or -1 if"
+                + " the range is blank.");
+        pw.println(getIndent(1) + " * @throws IllegalArgumentException If the"
+                + " value is not in values.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static int getCode(String[] values,"
+                + " String line, int start,");
+        pw.println(getIndent(3) + "int end) {");
+        pw.println(getIndent(2) + "int i = start;");
+        pw.println(getIndent(2) + "while (i < end && line.charAt(i) <= ' ') {");
+        pw.println(getIndent(3) + "i++;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "if (i == end) {");
+        pw.println(getIndent(3) + "return -1;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "int lo = 0;");
+        pw.println(getIndent(2) + "int hi = values.length - 1;");
+        pw.println(getIndent(2) + "while (lo <= hi) {");
+        pw.println(getIndent(3) + "int mid = (lo + hi) >>> 1;");
+        pw.println(getIndent(3) + "int c = compare(values[mid], line, start,"
+                + " end);");
+        pw.println(getIndent(3) + "if (c < 0) {");
+        pw.println(getIndent(4) + "lo = mid + 1;");
+        pw.println(getIndent(3) + "} else if (c > 0) {");
+        pw.println(getIndent(4) + "hi = mid - 1;");
+        pw.println(getIndent(3) + "} else {");
+        pw.println(getIndent(4) + "return mid;");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "throw new IllegalArgumentException(\"\\\"\""
+                + " + line.substring(start, end)");
+        pw.println(getIndent(4) + "+ \"\\\" is not in the dictionary\");");
+        pw.println(getIndent(1) + "}");
+        // compare
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * Compares as v.compareTo(line.substring("
+                + "start, end)) without the substring.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "private static int compare(String v, String"
+                + " line, int start, int end) {");
+        pw.println(getIndent(2) + "int n = Math.min(v.length(), end - start);");
+        pw.println(getIndent(2) + "for (int i = 0; i < n; i++) {");
+        pw.println(getIndent(3) + "int c = v.charAt(i) - line.charAt(start +"
+                + " i);");
+        pw.println(getIndent(3) + "if (c != 0) {");
+        pw.println(getIndent(4) + "return c;");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "return v.length() - (end - start);");
+        pw.println(getIndent(1) + "}");
+        pw.println("}");
+        pw.flush();
+    }
+
+    /**
+     * @param values Values.
+     * @return The content of a Java String literal of the values separated by
+     * tabs.
+     */
+    protected static String getLiteral(String[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append("\\t");
+            }
+            String v = values[i];
+            for (int j = 0; j < v.length(); j++) {
+                char c = v.charAt(j);
+                if (c == '"' || c == '\\') {
+                    sb.append('\\').append(c);
+                } else if (c < ' ') {
+                    // Octal, as unicode escapes of line terminators break.
+                    sb.append(String.format("\\%03o", (int) c));
+                } else if (c > '~') {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
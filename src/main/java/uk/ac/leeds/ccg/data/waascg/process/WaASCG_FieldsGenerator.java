@@ -0,0 +1,227 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.io.PrintWriter;
+import uk.ac.leeds.ccg.cg.process.CG_Process;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Strings;
+
+/**
+ * For writing the source code of a class for a set of the fields of a WaAS
+ * input file for a wave, and of a record constructor that parses only the
+ * values of the fields in a set. Each field has an int constant that is the
+ * index of its column, and a set is held as the bits of an array of longs.
+ * The constructor steps over the bits that are set, so the columns of the
+ * fields not in the set cost only a scan for their tabs, and the columns
+ * after the last field in the set are not scanned at all. The fields not in
+ * the set keep the values they have for a blank, as they are declared with
+ * these as their initial values (see
+ * {@link WaASCG_Main#printMembers(java.io.PrintWriter, uk.ac.leeds.ccg.data.waascg.process.WaASCG_WaveGroups, int, java.util.HashMap, java.util.HashMap, java.lang.String, uk.ac.leeds.ccg.data.waascg.process.WaASCG_DictionaryGenerator, uk.ac.leeds.ccg.data.waascg.process.WaASCG_NumberStorage)}).
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_FieldsGenerator extends CG_Process {
+
+    /**
+     * For the shared header, package and import writing methods.
+     */
+    protected final WaASCG_Main p;
+
+    /**
+     * @param p For the shared header, package and import writing methods.
+     */
+    public WaASCG_FieldsGenerator(WaASCG_Main p) {
+        super();
+        this.p = p;
+    }
+
+    /**
+     * @param wave The wave.
+     * @param type The type letter (H or P).
+     * @return The name of the fields class for wave and type.
+     */
+    public static String getClassName(int wave, String type) {
+        return WaASCG_Strings.s_WaAS + WaASCG_Strings.symbol_underscore + "W"
+                + wave + type + "Fields";
+    }
+
+    /**
+     * Writes the fields class.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param packageName The package name.
+     * @param className The class name.
+     * @param recordClassName The name of the record class of the wave.
+     * @param wave The wave.
+     * @param header The fields of the columns of the input file in order.
+     */
+    public void write(PrintWriter pw, String packageName, String className,
+            String recordClassName, int wave, String[] header) {
+        p.writeHeaderPackageAndImports(pw, packageName, null);
+        pw.println();
+        pw.println("/**");
+        pw.println(" * A set of the fields of a wave " + wave + " input file"
+                + " for constructing " + recordClassName);
+        pw.println(" * records with only the values of those fields parsed."
+                + " Each field has a");
+        pw.println(" * constant that is the index of its column. A set is"
+                + " immutable so it can be");
+        pw.println(" * shared by threads.");
+        pw.println(" */");
+        pw.println("public final class " + className + " {");
+        pw.println();
+        for (int j = 0; j < header.length; j++) {
+            pw.println(getIndent(1) + "public static final int " + header[j]
+                    + " = " + j + ";");
+        }
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * Bit c % 64 of words[c / 64] is set if"
+                + " the field of column c is in");
+        pw.println(getIndent(1) + " * the set. There are no words after the"
+                + " word of the last field in the");
+        pw.println(getIndent(1) + " * set.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "final long[] words;");
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param columns The constants of the"
+                + " fields in the set.");
+        pw.println(getIndent(1) + " * @throws IllegalArgumentException If a"
+                + " column is not a column of the");
+        pw.println(getIndent(1) + " * input file.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public " + className + "(int... columns)"
+                + " {");
+        pw.println(getIndent(2) + "int max = -1;");
+        pw.println(getIndent(2) + "for (int c : columns) {");
+        pw.println(getIndent(3) + "if (c < 0 || c >= " + header.length
+                + ") {");
+        pw.println(getIndent(4) + "throw new IllegalArgumentException(\"No"
+                + " column \" + c);");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "max = Math.max(max, c);");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "words = new long[(max >> 6) + 1];");
+        pw.println(getIndent(2) + "for (int c : columns) {");
+        pw.println(getIndent(3) + "words[c >> 6] |= 1L << c;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(1) + "}");
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param column The constant of a"
+                + " field.");
+        pw.println(getIndent(1) + " * @return true if the field is in the"
+                + " set.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public boolean contains(int column) {");
+        pw.println(getIndent(2) + "return column >= 0 && (column >> 6) <"
+                + " words.length");
+        pw.println(getIndent(4) + "&& (words[column >> 6] & (1L << column))"
+                + " != 0;");
+        pw.println(getIndent(1) + "}");
+        pw.println("}");
+        pw.flush();
+    }
+
+    /**
+     * Prints a record constructor that parses only the values of the fields
+     * in a set, and the methods it uses to initialise a field from the index
+     * of its column.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param className The record class name.
+     * @param fieldsClassName The fields class name.
+     * @param parser The name of the parser class.
+     * @param header The fields of the columns of the input file in order.
+     */
+    public void printConstructor(PrintWriter pw, String className,
+            String fieldsClassName, String parser, String[] header) {
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * Creates a record with only the values of"
+                + " the fields in fields parsed");
+        pw.println(getIndent(1) + " * from line. The other fields have the"
+                + " values they would have if");
+        pw.println(getIndent(1) + " * they were blank in line.");
+        pw.println(getIndent(1) + " *");
+        pw.println(getIndent(1) + " * @param i The id.");
+        pw.println(getIndent(1) + " * @param line The line.");
+        pw.println(getIndent(1) + " * @param fields The fields to parse.");
+        pw.println(getIndent(1) + " * @throws Exception If encountered.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public " + className + "(WaAS_RecordID i,"
+                + " String line, " + fieldsClassName + " fields) throws"
+                + " Exception {");
+        pw.println(getIndent(2) + "super(i);");
+        pw.println(getIndent(2) + "long[] words = fields.words;");
+        pw.println(getIndent(2) + "int p = 0;");
+        pw.println(getIndent(2) + "int c = 0;");
+        pw.println(getIndent(2) + "for (int w = 0; w < words.length; w++) {");
+        pw.println(getIndent(3) + "long bits = words[w];");
+        pw.println(getIndent(3) + "while (bits != 0) {");
+        pw.println(getIndent(4) + "int j = (w << 6) +"
+                + " Long.numberOfTrailingZeros(bits);");
+        pw.println(getIndent(4) + "bits &= bits - 1;");
+        pw.println(getIndent(4) + "for (; c < j; c++) {");
+        pw.println(getIndent(5) + "p = " + parser + ".next(line, p) + 1;");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(4) + "int q = " + parser + ".next(line, p);");
+        pw.println(getIndent(4) + "initColumn(j, line, p, q);");
+        pw.println(getIndent(4) + "p = q + 1;");
+        pw.println(getIndent(4) + "c++;");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(1) + "}");
+        /*
+         * The switch is split into methods of at most VALUES_PER_METHOD cases
+         * for the same reason as the walk methods.
+         */
+        int n = WaASCG_ParserGenerator.VALUES_PER_METHOD;
+        pw.println();
+        pw.println(getIndent(1) + "private void initColumn(int c, String line,"
+                + " int start, int end) {");
+        pw.println(getIndent(2) + "switch (c / " + n + ") {");
+        for (int m = 0; m * n < header.length; m++) {
+            pw.println(getIndent(3) + "case " + m + ":");
+            pw.println(getIndent(4) + "initColumn" + m + "(c, line, start,"
+                    + " end);");
+            pw.println(getIndent(4) + "break;");
+        }
+        pw.println(getIndent(3) + "default:");
+        pw.println(getIndent(4) + "break;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(1) + "}");
+        for (int m = 0; m * n < header.length; m++) {
+            pw.println();
+            pw.println(getIndent(1) + "private void initColumn" + m + "(int c,"
+                    + " String line, int start, int end) {");
+            pw.println(getIndent(2) + "switch (c) {");
+            int end = Math.min(header.length, (m + 1) * n);
+            for (int j = m * n; j < end; j++) {
+                pw.println(getIndent(3) + "case " + j + ":");
+                pw.println(getIndent(4) + "init" + header[j] + "(line, start,"
+                        + " end);");
+                pw.println(getIndent(4) + "break;");
+            }
+            pw.println(getIndent(3) + "default:");
+            pw.println(getIndent(4) + "break;");
+            pw.println(getIndent(2) + "}");
+            pw.println(getIndent(1) + "}");
+        }
+    }
+}
@@ -0,0 +1,853 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import uk.ac.leeds.ccg.cg.process.CG_Process;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Strings;
+
+/**
+ * For writing the source code of a class for streaming the records of a WaAS
+ * input file for a wave. The stream is backed by a spliterator over ranges of
+ * the file that start at line starts. A range is split in two at the first
+ * line start after its middle, so a parallel stream reads and parses the
+ * records of the parts of the file concurrently. Each part is read with
+ * positional reads of a shared FileChannel. A filter of the raw tokens of
+ * some fields can be given, so that the lines that do not pass it are not
+ * parsed and cost only a scan for the tabs before the last field tested.
+ * If a fields class is generated for the wave (see
+ * {@link WaASCG_FieldsGenerator}), a set of fields can also be given so that
+ * only the values of those fields are parsed.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_LoaderGenerator extends CG_Process {
+
+    /**
+     * For the shared header, package and import writing methods.
+     */
+    protected final WaASCG_Main p;
+
+    /**
+     * @param p For the shared header, package and import writing methods.
+     */
+    public WaASCG_LoaderGenerator(WaASCG_Main p) {
+        super();
+        this.p = p;
+    }
+
+    /**
+     * @param wave The wave.
+     * @param type The type letter (H or P).
+     * @return The name of the loader class for wave and type.
+     */
+    public static String getClassName(int wave, String type) {
+        return WaASCG_Strings.s_WaAS + WaASCG_Strings.symbol_underscore + "W"
+                + wave + type + "Loader";
+    }
+
+    /**
+     * @return The imports of the loader classes.
+     */
+    protected ArrayList<String> getImports() {
+        ArrayList<String> r = new ArrayList<>();
+        r.add("java.io.IOException");
+        r.add("java.io.UncheckedIOException");
+        r.add("java.nio.ByteBuffer");
+        r.add("java.nio.channels.FileChannel");
+        r.add("java.nio.charset.StandardCharsets");
+        r.add("java.nio.file.Path");
+        r.add("java.nio.file.StandardOpenOption");
+        r.add("java.util.Arrays");
+        r.add("java.util.Spliterator");
+        r.add("java.util.function.Consumer");
+        r.add("java.util.function.LongFunction");
+        r.add("java.util.stream.Stream");
+        r.add("java.util.stream.StreamSupport");
+        r.add("uk.ac.leeds.ccg.data.waas.data.id.WaAS_RecordID");
+        return r;
+    }
+
+    /**
+     * Writes the loader class.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param packageName The package name.
+     * @param className The class name.
+     * @param recordClassName The name of the record class of the wave.
+     * @param fieldsClassName The name of the fields class of the wave or
+     * null if there is none.
+     * @param wave The wave.
+     * @param header The fields of the columns of the input file in order.
+     */
+    public void write(PrintWriter pw, String packageName, String className,
+            String recordClassName, String fieldsClassName, int wave,
+            String[] header) {
+        // The extra arguments of the private stream method and Lines.
+        String fields = fieldsClassName == null ? "" : " fields,";
+        String nullFields = fieldsClassName == null ? "" : ", null";
+        p.writeHeaderPackageAndImports(pw, packageName, getImports());
+        pw.println();
+        pw.println("/**");
+        pw.println(" * For streaming the " + recordClassName + " records of a"
+                + " wave " + wave + " input file. The");
+        pw.println(" * stream is backed by a spliterator over ranges of the"
+                + " file that start at");
+        pw.println(" * line starts, so if the stream is parallel the lines are"
+                + " read and the");
+        pw.println(" * records are parsed concurrently. A {@link Filter} of the"
+                + " raw tokens of some");
+        pw.println(" * fields can be given so that only the records of the"
+                + " lines that pass it are");
+        if (fieldsClassName == null) {
+            pw.println(" * parsed.");
+        } else {
+            pw.println(" * parsed. A {@link " + fieldsClassName + "} can be"
+                    + " given so that only the");
+            pw.println(" * values of the fields in it are parsed.");
+        }
+        pw.println(" */");
+        pw.println("public final class " + className + " {");
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * Ranges of the file are not split into"
+                + " parts smaller than this number");
+        pw.println(getIndent(1) + " * of bytes.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static final long MIN_SPLIT = 1 <<"
+                + " 20;");
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * The number of bytes read at a time.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static final int BUFFER_SIZE = 1 <<"
+                + " 16;");
+        pw.println();
+        // FIELDS
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * The fields of the columns of the input"
+                + " file in order.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static final String[] FIELDS = {");
+        printFields(pw, header);
+        pw.println(getIndent(1) + "};");
+        pw.println();
+        // constructor
+        pw.println(getIndent(1) + "private " + className + "() {");
+        pw.println(getIndent(1) + "}");
+        pw.println();
+        // getColumn
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param field The field name.");
+        pw.println(getIndent(1) + " * @return The index of the column of field"
+                + " or -1 if there is none.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static int getColumn(String field)"
+                + " {");
+        pw.println(getIndent(2) + "String f = field.toUpperCase();");
+        pw.println(getIndent(2) + "for (int i = 0; i < FIELDS.length; i++) {");
+        pw.println(getIndent(3) + "if (FIELDS[i].equals(f)) {");
+        pw.println(getIndent(4) + "return i;");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "return -1;");
+        pw.println(getIndent(1) + "}");
+        pw.println();
+        // TokenTest
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * A test of the raw token of a column of a"
+                + " line.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public interface TokenTest {");
+        pw.println();
+        pw.println(getIndent(2) + "/**");
+        pw.println(getIndent(2) + " * @param b The bytes of the line.");
+        pw.println(getIndent(2) + " * @param start The index of the first byte"
+                + " of the token.");
+        pw.println(getIndent(2) + " * @param end The index after the last byte"
+                + " of the token.");
+        pw.println(getIndent(2) + " * @return true if the token passes.");
+        pw.println(getIndent(2) + " */");
+        pw.println(getIndent(2) + "boolean test(byte[] b, int start, int"
+                + " end);");
+        pw.println(getIndent(1) + "}");
+        pw.println();
+        // in
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param values The values.");
+        pw.println(getIndent(1) + " * @return A test that passes tokens that"
+                + " are equal to any of values.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static TokenTest in(String... values)"
+                + " {");
+        pw.println(getIndent(2) + "byte[][] v = new byte[values.length][];");
+        pw.println(getIndent(2) + "for (int i = 0; i < values.length; i++) {");
+        pw.println(getIndent(3) + "v[i] ="
+                + " values[i].getBytes(StandardCharsets.UTF_8);");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "return (b, start, end) -> {");
+        pw.println(getIndent(3) + "for (byte[] x : v) {");
+        pw.println(getIndent(4) + "if (x.length == end - start &&"
+                + " Arrays.equals(x, 0, x.length,");
+        pw.println(getIndent(6) + "b, start, end)) {");
+        pw.println(getIndent(5) + "return true;");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "return false;");
+        pw.println(getIndent(2) + "};");
+        pw.println(getIndent(1) + "}");
+        pw.println();
+        // between
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param min The minimum.");
+        pw.println(getIndent(1) + " * @param max The maximum.");
+        pw.println(getIndent(1) + " * @return A test that passes integer tokens"
+                + " with a value from min to max");
+        pw.println(getIndent(1) + " * inclusive.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static TokenTest between(long min,"
+                + " long max) {");
+        pw.println(getIndent(2) + "return (b, start, end) -> {");
+        pw.println(getIndent(3) + "if (start == end) {");
+        pw.println(getIndent(4) + "return false;");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "int i = start;");
+        pw.println(getIndent(3) + "boolean negative = b[i] == '-';");
+        pw.println(getIndent(3) + "if (negative || b[i] == '+') {");
+        pw.println(getIndent(4) + "i++;");
+        pw.println(getIndent(4) + "if (i == end) {");
+        pw.println(getIndent(5) + "return false;");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "long v = 0;");
+        pw.println(getIndent(3) + "for (; i < end; i++) {");
+        pw.println(getIndent(4) + "int d = b[i] - '0';");
+        pw.println(getIndent(4) + "if (d < 0 || d > 9 || v > (Long.MAX_VALUE -"
+                + " d) / 10) {");
+        pw.println(getIndent(5) + "return false;");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(4) + "v = v * 10 + d;");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "if (negative) {");
+        pw.println(getIndent(4) + "v = -v;");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "return v >= min && v <= max;");
+        pw.println(getIndent(2) + "};");
+        pw.println(getIndent(1) + "}");
+        pw.println();
+        // Filter
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * A conjunction of tests of the raw tokens"
+                + " of named fields. A line passes");
+        pw.println(getIndent(1) + " * if the token of each field passes its"
+                + " test. The tokens are found with a");
+        pw.println(getIndent(1) + " * scan for the tabs of the line that stops"
+                + " at the last column tested, or");
+        pw.println(getIndent(1) + " * at the first token that fails. A token of"
+                + " a column after the end of a");
+        pw.println(getIndent(1) + " * line is empty.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static final class Filter {");
+        pw.println();
+        pw.println(getIndent(2) + "/**");
+        pw.println(getIndent(2) + " * The columns tested in order.");
+        pw.println(getIndent(2) + " */");
+        pw.println(getIndent(2) + "final int[] cols;");
+        pw.println();
+        pw.println(getIndent(2) + "/**");
+        pw.println(getIndent(2) + " * The test of each column.");
+        pw.println(getIndent(2) + " */");
+        pw.println(getIndent(2) + "final TokenTest[] tests;");
+        pw.println();
+        pw.println(getIndent(2) + "private Filter(int[] cols, TokenTest[]"
+                + " tests) {");
+        pw.println(getIndent(3) + "this.cols = cols;");
+        pw.println(getIndent(3) + "this.tests = tests;");
+        pw.println(getIndent(2) + "}");
+        pw.println();
+        pw.println(getIndent(2) + "/**");
+        pw.println(getIndent(2) + " * @param field The field name.");
+        pw.println(getIndent(2) + " * @param test The test of the raw tokens of"
+                + " field.");
+        pw.println(getIndent(2) + " * @return A filter of the lines that pass"
+                + " test on field.");
+        pw.println(getIndent(2) + " * @throws IllegalArgumentException If there"
+                + " is no column for field.");
+        pw.println(getIndent(2) + " */");
+        pw.println(getIndent(2) + "public static Filter where(String field,"
+                + " TokenTest test) {");
+        pw.println(getIndent(3) + "return new Filter(new int[0], new"
+                + " TokenTest[0]).and(field, test);");
+        pw.println(getIndent(2) + "}");
+        pw.println();
+        pw.println(getIndent(2) + "/**");
+        pw.println(getIndent(2) + " * @param field The field name.");
+        pw.println(getIndent(2) + " * @param test The test of the raw tokens of"
+                + " field.");
+        pw.println(getIndent(2) + " * @return A filter of the lines that pass"
+                + " this and test on field.");
+        pw.println(getIndent(2) + " * @throws IllegalArgumentException If there"
+                + " is no column for field.");
+        pw.println(getIndent(2) + " */");
+        pw.println(getIndent(2) + "public Filter and(String field, TokenTest"
+                + " test) {");
+        pw.println(getIndent(3) + "int col = getColumn(field);");
+        pw.println(getIndent(3) + "if (col < 0) {");
+        pw.println(getIndent(4) + "throw new IllegalArgumentException(\"No"
+                + " column for \" + field);");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "int n = cols.length;");
+        pw.println(getIndent(3) + "int k = 0;");
+        pw.println(getIndent(3) + "while (k < n && cols[k] <= col) {");
+        pw.println(getIndent(4) + "k++;");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "int[] c = new int[n + 1];");
+        pw.println(getIndent(3) + "TokenTest[] t = new TokenTest[n + 1];");
+        pw.println(getIndent(3) + "System.arraycopy(cols, 0, c, 0, k);");
+        pw.println(getIndent(3) + "System.arraycopy(tests, 0, t, 0, k);");
+        pw.println(getIndent(3) + "c[k] = col;");
+        pw.println(getIndent(3) + "t[k] = test;");
+        pw.println(getIndent(3) + "System.arraycopy(cols, k, c, k + 1, n -"
+                + " k);");
+        pw.println(getIndent(3) + "System.arraycopy(tests, k, t, k + 1, n -"
+                + " k);");
+        pw.println(getIndent(3) + "return new Filter(c, t);");
+        pw.println(getIndent(2) + "}");
+        pw.println();
+        pw.println(getIndent(2) + "/**");
+        pw.println(getIndent(2) + " * @param b The bytes.");
+        pw.println(getIndent(2) + " * @param start The index of the start of"
+                + " the line.");
+        pw.println(getIndent(2) + " * @param end The index of the end of the"
+                + " line.");
+        pw.println(getIndent(2) + " * @return true if the line passes.");
+        pw.println(getIndent(2) + " */");
+        pw.println(getIndent(2) + "public boolean test(byte[] b, int start, int"
+                + " end) {");
+        pw.println(getIndent(3) + "int k = 0;");
+        pw.println(getIndent(3) + "int col = 0;");
+        pw.println(getIndent(3) + "int s = start;");
+        pw.println(getIndent(3) + "for (int i = start; i < end && k <"
+                + " cols.length; i++) {");
+        pw.println(getIndent(4) + "if (b[i] == '\\t') {");
+        pw.println(getIndent(5) + "while (k < cols.length && cols[k] == col)"
+                + " {");
+        pw.println(getIndent(6) + "if (!tests[k].test(b, s, i)) {");
+        pw.println(getIndent(7) + "return false;");
+        pw.println(getIndent(6) + "}");
+        pw.println(getIndent(6) + "k++;");
+        pw.println(getIndent(5) + "}");
+        pw.println(getIndent(5) + "col++;");
+        pw.println(getIndent(5) + "s = i + 1;");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "for (; k < cols.length; k++) {");
+        pw.println(getIndent(4) + "boolean last = cols[k] == col;");
+        pw.println(getIndent(4) + "if (!tests[k].test(b, last ? s : end, end))"
+                + " {");
+        pw.println(getIndent(5) + "return false;");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "return true;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(1) + "}");
+        pw.println();
+        // stream
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param tab The input file.");
+        pw.println(getIndent(1) + " * @param ids For creating the id of each"
+                + " record from the position in tab");
+        pw.println(getIndent(1) + " * of the start of its line.");
+        pw.println(getIndent(1) + " * @return The records of tab as a stream of"
+                + " unknown size (see");
+        pw.println(getIndent(1) + " * {@link #stream(Path, LongFunction,"
+                + " long)}).");
+        pw.println(getIndent(1) + " * @throws IOException If encountered.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static Stream<" + recordClassName
+                + "> stream(Path tab,");
+        pw.println(getIndent(3) + "LongFunction<WaAS_RecordID> ids) throws"
+                + " IOException {");
+        pw.println(getIndent(2) + "return stream(tab, ids, -1L);");
+        pw.println(getIndent(1) + "}");
+        pw.println();
+        // stream with a row count
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * Returns the records of an input file as a"
+                + " sequential stream that can be");
+        pw.println(getIndent(1) + " * made parallel. The id of each record is"
+                + " created from the position in");
+        pw.println(getIndent(1) + " * tab of the start of its line, so it does"
+                + " not depend on how the stream");
+        pw.println(getIndent(1) + " * is split and is the same as that of the"
+                + " record loaded from a binary");
+        pw.println(getIndent(1) + " * cache file of tab. The stream should be"
+                + " closed to close tab. A line");
+        pw.println(getIndent(1) + " * that cannot be parsed causes an"
+                + " UncheckedIOException.");
+        pw.println(getIndent(1) + " *");
+        pw.println(getIndent(1) + " * @param tab The input file.");
+        pw.println(getIndent(1) + " * @param ids For creating the id of each"
+                + " record from the position in tab");
+        pw.println(getIndent(1) + " * of the start of its line.");
+        pw.println(getIndent(1) + " * @param rows The number of records in tab"
+                + " if known, otherwise -1. If");
+        pw.println(getIndent(1) + " * this is not -1 it must be exact as the"
+                + " stream is then SIZED.");
+        pw.println(getIndent(1) + " * @return The records of tab.");
+        pw.println(getIndent(1) + " * @throws IOException If encountered.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static Stream<" + recordClassName
+                + "> stream(Path tab,");
+        pw.println(getIndent(3) + "LongFunction<WaAS_RecordID> ids, long rows)"
+                + " throws IOException {");
+        pw.println(getIndent(2) + "return stream(tab, ids, rows, null"
+                + nullFields + ");");
+        pw.println(getIndent(1) + "}");
+        pw.println();
+        // stream with a filter
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * Returns the records of the lines of an"
+                + " input file that pass filter as");
+        pw.println(getIndent(1) + " * a stream (see {@link #stream(Path,"
+                + " LongFunction, long)}). The lines");
+        pw.println(getIndent(1) + " * that do not pass are not parsed.");
+        pw.println(getIndent(1) + " *");
+        pw.println(getIndent(1) + " * @param tab The input file.");
+        pw.println(getIndent(1) + " * @param ids For creating the id of each"
+                + " record from the position in tab");
+        pw.println(getIndent(1) + " * of the start of its line.");
+        pw.println(getIndent(1) + " * @param filter The filter.");
+        pw.println(getIndent(1) + " * @return The records of the lines of tab"
+                + " that pass filter.");
+        pw.println(getIndent(1) + " * @throws IOException If encountered.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static Stream<" + recordClassName
+                + "> stream(Path tab,");
+        pw.println(getIndent(3) + "LongFunction<WaAS_RecordID> ids, Filter"
+                + " filter) throws IOException {");
+        pw.println(getIndent(2) + "return stream(tab, ids, -1L, filter"
+                + nullFields + ");");
+        pw.println(getIndent(1) + "}");
+        pw.println();
+        if (fieldsClassName != null) {
+            printProjectedStreams(pw, recordClassName, fieldsClassName);
+        }
+        pw.println(getIndent(1) + "private static Stream<" + recordClassName
+                + "> stream(Path tab,");
+        if (fieldsClassName == null) {
+            pw.println(getIndent(3) + "LongFunction<WaAS_RecordID> ids, long"
+                    + " rows, Filter filter)");
+        } else {
+            pw.println(getIndent(3) + "LongFunction<WaAS_RecordID> ids, long"
+                    + " rows, Filter filter,");
+            pw.println(getIndent(3) + fieldsClassName + " fields)");
+        }
+        pw.println(getIndent(3) + "throws IOException {");
+        pw.println(getIndent(2) + "FileChannel fc = FileChannel.open(tab,"
+                + " StandardOpenOption.READ);");
+        pw.println(getIndent(2) + "try {");
+        pw.println(getIndent(3) + "// Skip the header.");
+        if (fieldsClassName == null) {
+            pw.println(getIndent(3) + "Lines s = new Lines(fc, ids, filter,"
+                    + " nextLine(fc, 0L), fc.size(),");
+            pw.println(getIndent(5) + "rows);");
+        } else {
+            pw.println(getIndent(3) + "Lines s = new Lines(fc, ids, filter,"
+                    + " fields, nextLine(fc, 0L),");
+            pw.println(getIndent(5) + "fc.size(), rows);");
+        }
+        pw.println(getIndent(3) + "return StreamSupport.stream(s,"
+                + " false).onClose(() -> {");
+        pw.println(getIndent(4) + "try {");
+        pw.println(getIndent(5) + "fc.close();");
+        pw.println(getIndent(4) + "} catch (IOException ex) {");
+        pw.println(getIndent(5) + "throw new UncheckedIOException(ex);");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(3) + "});");
+        pw.println(getIndent(2) + "} catch (IOException | RuntimeException ex)"
+                + " {");
+        pw.println(getIndent(3) + "fc.close();");
+        pw.println(getIndent(3) + "throw ex;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(1) + "}");
+        pw.println();
+        // nextLine
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param fc The file.");
+        pw.println(getIndent(1) + " * @param pos The position to start from.");
+        pw.println(getIndent(1) + " * @return The position after the first line"
+                + " feed at or after pos, or the");
+        pw.println(getIndent(1) + " * size of fc if there is none.");
+        pw.println(getIndent(1) + " * @throws IOException If encountered.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "static long nextLine(FileChannel fc, long"
+                + " pos) throws IOException {");
+        pw.println(getIndent(2) + "long size = fc.size();");
+        pw.println(getIndent(2) + "ByteBuffer bb = ByteBuffer.allocate(8192);");
+        pw.println(getIndent(2) + "while (pos < size) {");
+        pw.println(getIndent(3) + "bb.clear();");
+        pw.println(getIndent(3) + "int n = fc.read(bb, pos);");
+        pw.println(getIndent(3) + "if (n <= 0) {");
+        pw.println(getIndent(4) + "break;");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "for (int i = 0; i < n; i++) {");
+        pw.println(getIndent(4) + "if (bb.get(i) == '\\n') {");
+        pw.println(getIndent(5) + "return pos + i + 1;");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "pos += n;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "return size;");
+        pw.println(getIndent(1) + "}");
+        pw.println();
+        // Lines
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * A spliterator of the records of the lines"
+                + " in a range of an input file.");
+        pw.println(getIndent(1) + " * Until it is first advanced the range can"
+                + " be split at a line start.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "static final class Lines implements"
+                + " Spliterator<" + recordClassName + "> {");
+        pw.println();
+        pw.println(getIndent(2) + "final FileChannel fc;");
+        pw.println(getIndent(2) + "final LongFunction<WaAS_RecordID> ids;");
+        pw.println();
+        pw.println(getIndent(2) + "/**");
+        pw.println(getIndent(2) + " * The filter of the lines or null.");
+        pw.println(getIndent(2) + " */");
+        pw.println(getIndent(2) + "final Filter filter;");
+        pw.println();
+        if (fieldsClassName != null) {
+            pw.println(getIndent(2) + "/**");
+            pw.println(getIndent(2) + " * The fields to parse or null to parse"
+                    + " all fields.");
+            pw.println(getIndent(2) + " */");
+            pw.println(getIndent(2) + "final " + fieldsClassName + " fields;");
+            pw.println();
+        }
+        pw.println(getIndent(2) + "/**");
+        pw.println(getIndent(2) + " * The position of the start of the range.");
+        pw.println(getIndent(2) + " */");
+        pw.println(getIndent(2) + "long start;");
+        pw.println();
+        pw.println(getIndent(2) + "/**");
+        pw.println(getIndent(2) + " * The position of the end of the range (a"
+                + " line start or the size of");
+        pw.println(getIndent(2) + " * the file).");
+        pw.println(getIndent(2) + " */");
+        pw.println(getIndent(2) + "final long end;");
+        pw.println();
+        pw.println(getIndent(2) + "/**");
+        pw.println(getIndent(2) + " * The number of records in the range if"
+                + " known, otherwise -1.");
+        pw.println(getIndent(2) + " */");
+        pw.println(getIndent(2) + "long rows;");
+        pw.println();
+        pw.println(getIndent(2) + "/**");
+        pw.println(getIndent(2) + " * True if {@link #rows} is exact.");
+        pw.println(getIndent(2) + " */");
+        pw.println(getIndent(2) + "boolean sized;");
+        pw.println();
+        pw.println(getIndent(2) + "/**");
+        pw.println(getIndent(2) + " * The bytes read from the range and not yet"
+                + " parsed are from b[i] to");
+        pw.println(getIndent(2) + " * b[n - 1]. The position of b[0] is bpos.");
+        pw.println(getIndent(2) + " */");
+        pw.println(getIndent(2) + "byte[] b;");
+        pw.println(getIndent(2) + "int i;");
+        pw.println(getIndent(2) + "int n;");
+        pw.println(getIndent(2) + "long bpos;");
+        pw.println();
+        pw.println(getIndent(2) + "Lines(FileChannel fc,"
+                + " LongFunction<WaAS_RecordID> ids, Filter filter,");
+        if (fieldsClassName != null) {
+            pw.println(getIndent(4) + fieldsClassName + " fields, long start,"
+                    + " long end, long rows) {");
+        } else {
+            pw.println(getIndent(4) + "long start, long end, long rows) {");
+        }
+        pw.println(getIndent(3) + "this.fc = fc;");
+        pw.println(getIndent(3) + "this.ids = ids;");
+        pw.println(getIndent(3) + "this.filter = filter;");
+        if (fieldsClassName != null) {
+            pw.println(getIndent(3) + "this.fields = fields;");
+        }
+        pw.println(getIndent(3) + "this.start = start;");
+        pw.println(getIndent(3) + "this.end = end;");
+        pw.println(getIndent(3) + "this.rows = rows;");
+        pw.println(getIndent(3) + "sized = rows >= 0;");
+        pw.println(getIndent(3) + "bpos = start;");
+        pw.println(getIndent(2) + "}");
+        pw.println();
+        pw.println(getIndent(2) + "@Override");
+        pw.println(getIndent(2) + "public boolean tryAdvance(Consumer<? super "
+                + recordClassName + "> action) {");
+        pw.println(getIndent(3) + "while (true) {");
+        pw.println(getIndent(4) + "int j = i;");
+        pw.println(getIndent(4) + "while (true) {");
+        pw.println(getIndent(5) + "while (j < n && b[j] != '\\n') {");
+        pw.println(getIndent(6) + "j++;");
+        pw.println(getIndent(5) + "}");
+        pw.println(getIndent(5) + "if (j < n) {");
+        pw.println(getIndent(6) + "break;");
+        pw.println(getIndent(5) + "}");
+        pw.println(getIndent(5) + "int k = j - i;");
+        pw.println(getIndent(5) + "if (!fill()) {");
+        pw.println(getIndent(6) + "break;");
+        pw.println(getIndent(5) + "}");
+        pw.println(getIndent(5) + "j = i + k;");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(4) + "if (i == n) {");
+        pw.println(getIndent(5) + "return false;");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(4) + "int s = i;");
+        pw.println(getIndent(4) + "long pos = bpos + s;");
+        pw.println(getIndent(4) + "int e = j;");
+        pw.println(getIndent(4) + "i = j < n ? j + 1 : j;");
+        pw.println(getIndent(4) + "if (e > s && b[e - 1] == '\\r') {");
+        pw.println(getIndent(5) + "e--;");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(4) + "if (e > s && (filter == null ||"
+                + " filter.test(b, s, e))) {");
+        pw.println(getIndent(5) + "action.accept(parse(new String(b, s, e -"
+                + " s,");
+        pw.println(getIndent(7) + "StandardCharsets.UTF_8), pos));");
+        pw.println(getIndent(5) + "return true;");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(2) + "}");
+        pw.println();
+        pw.println(getIndent(2) + "/**");
+        pw.println(getIndent(2) + " * Moves the bytes not yet parsed to the"
+                + " start of {@link #b}, growing");
+        pw.println(getIndent(2) + " * it if it is full, and reads more bytes of"
+                + " the range after them.");
+        pw.println(getIndent(2) + " *");
+        pw.println(getIndent(2) + " * @return false if there are no more bytes"
+                + " of the range to read.");
+        pw.println(getIndent(2) + " */");
+        pw.println(getIndent(2) + "private boolean fill() {");
+        pw.println(getIndent(3) + "long pos = bpos + n;");
+        pw.println(getIndent(3) + "if (pos >= end) {");
+        pw.println(getIndent(4) + "return false;");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "if (b == null) {");
+        pw.println(getIndent(4) + "b = new byte[BUFFER_SIZE];");
+        pw.println(getIndent(3) + "} else if (i > 0) {");
+        pw.println(getIndent(4) + "System.arraycopy(b, i, b, 0, n - i);");
+        pw.println(getIndent(4) + "n -= i;");
+        pw.println(getIndent(4) + "bpos += i;");
+        pw.println(getIndent(4) + "i = 0;");
+        pw.println(getIndent(3) + "} else if (n == b.length) {");
+        pw.println(getIndent(4) + "b = Arrays.copyOf(b, b.length * 2);");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "int len = (int) Math.min(b.length - n, end -"
+                + " pos);");
+        pw.println(getIndent(3) + "try {");
+        pw.println(getIndent(4) + "int r = fc.read(ByteBuffer.wrap(b, n, len),"
+                + " pos);");
+        pw.println(getIndent(4) + "if (r <= 0) {");
+        pw.println(getIndent(5) + "return false;");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(4) + "n += r;");
+        pw.println(getIndent(3) + "} catch (IOException ex) {");
+        pw.println(getIndent(4) + "throw new UncheckedIOException(ex);");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "return true;");
+        pw.println(getIndent(2) + "}");
+        pw.println();
+        pw.println(getIndent(2) + "/**");
+        pw.println(getIndent(2) + " * @param line The line.");
+        pw.println(getIndent(2) + " * @param pos The position of the start of"
+                + " the line.");
+        pw.println(getIndent(2) + " * @return The record of the line.");
+        pw.println(getIndent(2) + " */");
+        pw.println(getIndent(2) + "private " + recordClassName + " parse(String"
+                + " line, long pos) {");
+        pw.println(getIndent(3) + "try {");
+        if (fieldsClassName != null) {
+            pw.println(getIndent(4) + "if (fields != null) {");
+            pw.println(getIndent(5) + "return new " + recordClassName
+                    + "(ids.apply(pos), line, fields);");
+            pw.println(getIndent(4) + "}");
+        }
+        pw.println(getIndent(4) + "return new " + recordClassName
+                + "(ids.apply(pos), line);");
+        pw.println(getIndent(3) + "} catch (RuntimeException ex) {");
+        pw.println(getIndent(4) + "throw ex;");
+        pw.println(getIndent(3) + "} catch (Exception ex) {");
+        pw.println(getIndent(4) + "throw new UncheckedIOException(new"
+                + " IOException(");
+        pw.println(getIndent(6) + "\"Failed to parse the line at position \" +"
+                + " pos, ex));");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(2) + "}");
+        pw.println();
+        pw.println(getIndent(2) + "@Override");
+        pw.println(getIndent(2) + "public Spliterator<" + recordClassName + ">"
+                + " trySplit() {");
+        pw.println(getIndent(3) + "if (b != null || end - start < 2 *"
+                + " MIN_SPLIT) {");
+        pw.println(getIndent(4) + "return null;");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "long mid;");
+        pw.println(getIndent(3) + "try {");
+        pw.println(getIndent(4) + "mid = nextLine(fc, start + (end - start) / 2"
+                + " - 1);");
+        pw.println(getIndent(3) + "} catch (IOException ex) {");
+        pw.println(getIndent(4) + "throw new UncheckedIOException(ex);");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "if (mid <= start || mid >= end) {");
+        pw.println(getIndent(4) + "return null;");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "long r = -1L;");
+        pw.println(getIndent(3) + "if (rows >= 0) {");
+        pw.println(getIndent(4) + "r = rows * (mid - start) / (end - start);");
+        pw.println(getIndent(4) + "rows -= r;");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "Lines prefix = new Lines(fc, ids, filter,"
+                + fields + " start, mid, r);");
+        pw.println(getIndent(3) + "prefix.sized = false;");
+        pw.println(getIndent(3) + "sized = false;");
+        pw.println(getIndent(3) + "start = mid;");
+        pw.println(getIndent(3) + "bpos = mid;");
+        pw.println(getIndent(3) + "return prefix;");
+        pw.println(getIndent(2) + "}");
+        pw.println();
+        pw.println(getIndent(2) + "@Override");
+        pw.println(getIndent(2) + "public long estimateSize() {");
+        pw.println(getIndent(3) + "// Without a row count the number of bytes"
+                + " is an upper bound.");
+        pw.println(getIndent(3) + "return rows >= 0 ? rows : end - start;");
+        pw.println(getIndent(2) + "}");
+        pw.println();
+        pw.println(getIndent(2) + "@Override");
+        pw.println(getIndent(2) + "public int characteristics() {");
+        pw.println(getIndent(3) + "return ORDERED | NONNULL | (sized ? SIZED :"
+                + " 0);");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(1) + "}");
+        pw.println("}");
+
+        pw.flush();
+    }
+
+    /**
+     * Prints the public stream methods of a loader class that are given a set
+     * of the fields to parse.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param recordClassName The name of the record class of the wave.
+     * @param fieldsClassName The name of the fields class of the wave.
+     */
+    protected void printProjectedStreams(PrintWriter pw,
+            String recordClassName, String fieldsClassName) {
+        // stream with fields
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * Returns the records of an input file with"
+                + " only the values of the");
+        pw.println(getIndent(1) + " * fields in fields parsed as a stream (see"
+                + " {@link #stream(Path,");
+        pw.println(getIndent(1) + " * LongFunction, long)}). The other fields"
+                + " of the records have the");
+        pw.println(getIndent(1) + " * values they have for a blank: a"
+                + " dictionary code of -1, the MIN_VALUE");
+        pw.println(getIndent(1) + " * of the stored type of an integer or"
+                + " scaled field, NaN, null or false.");
+        pw.println(getIndent(1) + " *");
+        pw.println(getIndent(1) + " * @param tab The input file.");
+        pw.println(getIndent(1) + " * @param ids For creating the id of each"
+                + " record from the position in tab");
+        pw.println(getIndent(1) + " * of the start of its line.");
+        pw.println(getIndent(1) + " * @param fields The fields to parse.");
+        pw.println(getIndent(1) + " * @return The records of tab.");
+        pw.println(getIndent(1) + " * @throws IOException If encountered.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static Stream<" + recordClassName
+                + "> stream(Path tab,");
+        pw.println(getIndent(3) + "LongFunction<WaAS_RecordID> ids, "
+                + fieldsClassName + " fields)");
+        pw.println(getIndent(3) + "throws IOException {");
+        pw.println(getIndent(2) + "return stream(tab, ids, -1L, null,"
+                + " fields);");
+        pw.println(getIndent(1) + "}");
+        pw.println();
+        // stream with a filter and fields
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * Returns the records of the lines of an"
+                + " input file that pass filter");
+        pw.println(getIndent(1) + " * with only the values of the fields in"
+                + " fields parsed as a stream (see");
+        pw.println(getIndent(1) + " * {@link #stream(Path, LongFunction,"
+                + " Filter)}).");
+        pw.println(getIndent(1) + " *");
+        pw.println(getIndent(1) + " * @param tab The input file.");
+        pw.println(getIndent(1) + " * @param ids For creating the id of each"
+                + " record from the position in tab");
+        pw.println(getIndent(1) + " * of the start of its line.");
+        pw.println(getIndent(1) + " * @param filter The filter.");
+        pw.println(getIndent(1) + " * @param fields The fields to parse.");
+        pw.println(getIndent(1) + " * @return The records of the lines of tab"
+                + " that pass filter.");
+        pw.println(getIndent(1) + " * @throws IOException If encountered.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static Stream<" + recordClassName
+                + "> stream(Path tab,");
+        pw.println(getIndent(3) + "LongFunction<WaAS_RecordID> ids, Filter"
+                + " filter,");
+        pw.println(getIndent(3) + fieldsClassName + " fields) throws"
+                + " IOException {");
+        pw.println(getIndent(2) + "return stream(tab, ids, -1L, filter,"
+                + " fields);");
+        pw.println(getIndent(1) + "}");
+        pw.println();
+    }
+
+    /**
+     * Prints the elements of the array of the fields of the columns, as many
+     * to a line as fit.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param header The fields of the columns of the input file in order.
+     */
+    protected void printFields(PrintWriter pw, String[] header) {
+        String indent = getIndent(2);
+        StringBuilder sb = new StringBuilder(indent);
+        for (int i = 0; i < header.length; i++) {
+            String s = "\"" + header[i] + "\"";
+            if (i < header.length - 1) {
+                s += ",";
+            }
+            if (sb.length() > indent.length()) {
+                if (sb.length() + s.length() + 1 > 80) {
+                    pw.println(sb.toString());
+                    sb.setLength(0);
+                    sb.append(indent);
+                } else {
+                    sb.append(' ');
+                }
+            }
+            sb.append(s);
+        }
+        if (sb.length() > indent.length()) {
+            pw.println(sb.toString());
+        }
+    }
+}
@@ -15,31 +15,39 @@
  */
 package uk.ac.leeds.ccg.data.waascg.process;
 
-import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import uk.ac.leeds.ccg.cg.process.CG_Process;
 import uk.ac.leeds.ccg.data.core.Data_Environment;
 import uk.ac.leeds.ccg.generic.core.Generic_Environment;
 import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Environment;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_PhaseEvent;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_PhaseReport;
 import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Strings;
+import uk.ac.leeds.ccg.data.waascg.io.WaASCG_SourceWriter;
+import uk.ac.leeds.ccg.data.waascg.io.WaASCG_TabReader;
 import uk.ac.leeds.ccg.generic.io.Generic_Defaults;
-import uk.ac.leeds.ccg.generic.io.Generic_IO;
-import uk.ac.leeds.ccg.math.Math_Byte;
-import uk.ac.leeds.ccg.math.Math_Double;
-import uk.ac.leeds.ccg.math.Math_Integer;
-import uk.ac.leeds.ccg.math.Math_Short;
 
 /**
  * This class produces source code for loading the Wealth and Assets Survey
@@ -71,16 +79,159 @@ import uk.ac.leeds.ccg.math.Math_Short;
  */
 public class WaASCG_Main extends CG_Process {
 
+    /**
+     * The name of the file listing the generated source code files that were
+     * written by the last call to {@link #write(java.util.List)}.
+     */
+    public static final String MANIFEST = "changed.txt";
+
     public final WaASCG_Environment we;
     public final Generic_Environment env;
 
+    /**
+     * For running the scans of the input files concurrently. If this is null
+     * then the input files are scanned one after another.
+     */
+    public final ExecutorService executor;
+
+    /**
+     * If {@link #executor} is a ForkJoinPool, input files larger than this
+     * number of bytes are split into ranges aligned to line starts that are
+     * scanned concurrently.
+     */
+    public long chunkSize = 32L * 1024L * 1024L;
+
+    /**
+     * For storing the results of scanning the input files so that input files
+     * that have not changed are not scanned again. If this is null then all
+     * input files are scanned.
+     */
+    public WaASCG_TypesCache cache;
+
+    /**
+     * The writes to {@link #cache} submitted to {@link #executor} that have
+     * not been waited for (see {@link #awaitCacheWrites()}).
+     */
+    protected final List<Future<?>> cacheWrites = new ArrayList<>();
+
+    /**
+     * The totals of the {@link WaASCG_PhaseEvent}s of the phases of working
+     * out the types of the fields and generating the source code.
+     */
+    public final WaASCG_PhaseReport report = new WaASCG_PhaseReport();
+
+    /**
+     * If true the generated record constructors walk the line with an index
+     * cursor and parse each value from its range of the line using a
+     * generated parser class (see {@link WaASCG_ParserGenerator}). If false
+     * the generated record constructors split the line into Strings.
+     */
+    public boolean cursorConstructors = true;
+
+    /**
+     * If true a columnar store class with a single pass loader is generated
+     * for each wave alongside the record classes (see
+     * {@link WaASCG_ColumnsGenerator}).
+     */
+    public boolean columnStores = true;
+
+    /**
+     * If true the record classes are generated with methods for writing and
+     * reading their values in a binary form, and a class for converting each
+     * input file into a binary cache file and loading records from it is
+     * generated for each wave (see {@link WaASCG_BinaryGenerator}).
+     */
+    public boolean binaryCodecs = true;
+
+    /**
+     * If true a class for streaming the records of the input file is
+     * generated for each wave (see {@link WaASCG_LoaderGenerator}).
+     */
+    public boolean streamLoaders = true;
+
+    /**
+     * If true, and the record constructors walk the line with an index cursor
+     * and do not decode lazily, a class for a set of the fields of the input
+     * file is generated for each wave, and the record class of each wave is
+     * generated with a constructor that parses only the values of the fields
+     * in a set (see {@link WaASCG_FieldsGenerator}).
+     */
+    public boolean projections = true;
+
+    /**
+     * If true the record classes are generated to decode lazily: a record
+     * keeps its line and the index of the start of each value in it, and each
+     * field is decoded on the first call of its getter. The fields that have
+     * been decoded are marked with a bit for each field. Constructing a record
+     * then costs one scan for the tabs of the line. Each field has a slot
+     * number that is unique in the classes from the root of the record class
+     * hierarchy to the record class of a wave, and the record class of each
+     * wave maps slot numbers to the columns of its input file.
+     */
+    public boolean lazyRecords = false;
+
+    /**
+     * If true the boolean fields of each record class are packed into the
+     * bits of long fields (see {@link WaASCG_BooleanBits}) rather than each
+     * being a boolean field. The getters are the same.
+     */
+    public boolean packBooleans = true;
+
+    /**
+     * If true the String fields with no more than
+     * {@link WaASCG_ColumnTypes#MAX_DISTINCT} distinct values are stored as
+     * codes into a generated dictionary class (see
+     * {@link WaASCG_DictionaryGenerator}) rather than as Strings. The getters
+     * are the same. If false the distinct tokens of the columns are not
+     * stored in scanning the input files, so the String columns are saturated
+     * sooner.
+     */
+    public boolean dictionaries = true;
+
+    /**
+     * If true the numeric fields that can be stored without loss in fewer
+     * bytes are stored so: double fields as a scaled short or int or as a
+     * float, and short and int fields with a small range as an offset byte or
+     * short (see {@link WaASCG_NumberStorage}). The getters are the same.
+     */
+    public boolean narrowNumbers = true;
+
     public WaASCG_Main(WaASCG_Environment e) {
+        this(e, null);
+    }
+
+    /**
+     * @param e The environment.
+     * @param executor For running the scans of the input files concurrently.
+     * May be null in which case the input files are scanned sequentially.
+     */
+    public WaASCG_Main(WaASCG_Environment e, ExecutorService executor) {
         super();
         we = e;
         env = we.env;
+        this.executor = executor;
+        try {
+            cache = new WaASCG_TypesCache(Paths.get(
+                    we.files.getGeneratedWaASDir().toString(), "types"));
+        } catch (IOException ex) {
+            env.log("No cache of input file types: " + ex.getMessage());
+        }
     }
 
+    /**
+     * @param args If given, args[0] is the number of threads to use for
+     * scanning the input files. The default is the number of available
+     * processors. If this is 1 the input files are scanned sequentially.
+     */
     public static void main(String[] args) {
+        int nThreads = Runtime.getRuntime().availableProcessors();
+        if (args.length > 0) {
+            nThreads = Integer.parseInt(args[0]);
+        }
+        ExecutorService executor = null;
+        if (nThreads > 1) {
+            executor = new ForkJoinPool(nThreads);
+        }
         try {
             Path dataDir = Paths.get(System.getProperty("user.home"),
                     WaASCG_Strings.s_data, WaASCG_Strings.s_data,
@@ -88,25 +239,55 @@ public class WaASCG_Main extends CG_Process {
             Data_Environment de = new Data_Environment(new Generic_Environment(
                     new Generic_Defaults(dataDir)));
             WaASCG_Environment e = new WaASCG_Environment(de, de.files.getDir());
-            WaASCG_Main p = new WaASCG_Main(e);
-            String type;
-            Path outdir;
-            // hhold
-            type = WaASCG_Strings.s_hhold;
-            Object[]  hholdTypes = p.getFieldTypes(type);
-            outdir = p.run(type, hholdTypes);
-            de.env.log("Generated code was written to " + outdir.toString());
-            // person
-            type = WaASCG_Strings.s_person;
-            Object[] personTypes = p.getFieldTypes(type);
-            p.run(type, personTypes);
-            outdir = p.run(type, personTypes);
-            de.env.log("Generated code was written to " + outdir.toString());
+            WaASCG_Main p = new WaASCG_Main(e, executor);
+            String[] types = new String[]{WaASCG_Strings.s_hhold,
+                WaASCG_Strings.s_person};
+            // Scan all the input files.
+            HashMap<String, Object[]> allTypes = p.getFieldTypes(types);
+            // Generate the source code for all types together.
+            ArrayList<WaASCG_SourceWriter> sources = new ArrayList<>();
+            for (String type : types) {
+                sources.addAll(p.getSources(type, allTypes.get(type),
+                        p.getOutputDir(type)));
+            }
+            p.write(sources);
+            p.awaitCacheWrites();
+            for (String type : types) {
+                de.env.log("Generated code was written to "
+                        + p.getOutputDir(type).toString());
+            }
+            de.env.log("Phases:" + System.lineSeparator() + p.report);
         } catch (Exception ex) {
             ex.printStackTrace(System.err);
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
         }
     }
 
+    /**
+     * Scans the input files of all waves of each type in types. If
+     * {@link #executor} is not null then all the input files are scanned
+     * concurrently. The results for each type are consolidated in wave order,
+     * so they are the same as those returned from
+     * {@link #getFieldTypes(java.lang.String)}.
+     *
+     * @param types The types (hhold, person).
+     * @return keys are the types, values are as returned from
+     * {@link #getFieldTypes(java.lang.String)}.
+     * @throws Exception If encountered.
+     */
+    public HashMap<String, Object[]> getFieldTypes(String[] types)
+            throws Exception {
+        HashMap<String, Object[]> r = new HashMap<>();
+        WaASCG_ColumnTypes[][] tests = loadTests(types);
+        for (int t = 0; t < types.length; t++) {
+            r.put(types[t], getFieldTypes(types[t], tests[t]));
+        }
+        return r;
+    }
+
     /**
      * Pass through the collections and works out what numeric type is best to
      * store each field in the collections.
@@ -120,67 +301,96 @@ public class WaASCG_Main extends CG_Process {
      * @throws java.io.IOException If one is encountered.
      */
     protected Object[] getFieldTypes(String type) throws IOException, Exception {
-        int nwaves = we.NWAVES;
-        Object[] r = new Object[4];
+        return getFieldTypes(type, loadTests(new String[]{type})[0]);
+    }
+
+    /**
+     * Scans the input files of each wave of each type in types using
+     * {@link #loadTest(int, java.lang.String, java.nio.file.Path)}. If
+     * {@link #executor} is not null then the input files are scanned
+     * concurrently, otherwise they are scanned one after another. The number
+     * of waves of each type is the number of consecutive waves from wave 1
+     * that have an input file.
+     *
+     * @param types The types (hhold, person).
+     * @return r[t][w] is the result of loadTest for types[t] and wave w + 1.
+     * @throws Exception If encountered.
+     */
+    protected WaASCG_ColumnTypes[][] loadTests(String[] types)
+            throws Exception {
+        WaASCG_ColumnTypes[][] r = new WaASCG_ColumnTypes[types.length][];
+        for (int t = 0; t < types.length; t++) {
+            int nwaves = we.files.getNWaves(types[t]);
+            if (nwaves == 0) {
+                throw new IOException("No input files for " + types[t]);
+            }
+            r[t] = new WaASCG_ColumnTypes[nwaves];
+        }
         Path indir = we.files.getInputDir();
         Path generateddir = we.files.getGeneratedDir();
         Path outdir = Paths.get(generateddir.toString(), WaASCG_Strings.s_Subsets);
         Files.createDirectories(outdir);
+        if (executor == null) {
+            for (int t = 0; t < types.length; t++) {
+                for (int w = 0; w < r[t].length; w++) {
+                    r[t][w] = loadTest(w + 1, types[t], indir);
+                }
+            }
+        } else {
+            Future<WaASCG_ColumnTypes>[][] futures = new Future[types.length][];
+            for (int t = 0; t < types.length; t++) {
+                String type = types[t];
+                futures[t] = new Future[r[t].length];
+                for (int w = 0; w < r[t].length; w++) {
+                    int wave = w + 1;
+                    futures[t][w] = executor.submit(()
+                            -> loadTest(wave, type, indir));
+                }
+            }
+            for (int t = 0; t < types.length; t++) {
+                for (int w = 0; w < r[t].length; w++) {
+                    try {
+                        r[t][w] = futures[t][w].get();
+                    } catch (ExecutionException ex) {
+                        if (ex.getCause() instanceof Exception) {
+                            throw (Exception) ex.getCause();
+                        }
+                        throw ex;
+                    }
+                }
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Consolidates the results of scanning the input files of each wave of a
+     * type.
+     *
+     * @param type The type (hhold or person).
+     * @param tests tests[w] is the result of loadTest for wave w + 1.
+     * @return As for {@link #getFieldTypes(java.lang.String)}. r[4] is as
+     * returned from
+     * {@link #getDictionaries(uk.ac.leeds.ccg.data.waascg.process.WaASCG_ColumnTypes[], java.util.HashMap)}
+     * and r[5] is as returned from
+     * {@link #getNumberStorage(java.lang.String, uk.ac.leeds.ccg.data.waascg.process.WaASCG_ColumnTypes[], java.util.HashMap)}.
+     */
+    protected Object[] getFieldTypes(String type, WaASCG_ColumnTypes[] tests) {
+        int nwaves = tests.length;
+        Object[] r = new Object[6];
         HashMap<String, Integer>[] allFieldTypes = new HashMap[nwaves];
         String[][] headers = new String[nwaves][];
         HashMap<String, Byte>[] v0ms = new HashMap[nwaves];
         HashMap<String, Byte>[] v1ms = new HashMap[nwaves];
         for (int w = 0; w < nwaves; w++) {
-            Object[] t = loadTest(w + 1, type, indir);
-            HashMap<String, Integer> fieldTypes = new HashMap<>();
-            allFieldTypes[w] = fieldTypes;
-            String[] fields = (String[]) t[0];
-            headers[w] = fields;
-            boolean[] strings = (boolean[]) t[1];
-            boolean[] doubles = (boolean[]) t[2];
-            boolean[] ints = (boolean[]) t[3];
-            boolean[] shorts = (boolean[]) t[4];
-            boolean[] bytes = (boolean[]) t[5];
-            boolean[] booleans = (boolean[]) t[6];
-            HashMap<String, Byte> v0m = (HashMap<String, Byte>) t[7];
-            HashMap<String, Byte> v1m = (HashMap<String, Byte>) t[8];
-            v0ms[w] = v0m;
-            v1ms[w] = v1m;
-            for (int i = 0; i < strings.length; i++) {
-                String field = fields[i];
-                if (strings[i]) {
-                    //System.out.println("" + i + " " + "String");
-                    fieldTypes.put(field, 0);
-                } else {
-                    if (doubles[i]) {
-                        //System.out.println("" + i + " " + "double");
-                        fieldTypes.put(field, 1);
-                    } else {
-                        if (ints[i]) {
-                            //System.out.println("" + i + " " + "int");
-                            fieldTypes.put(field, 2);
-                        } else {
-                            if (shorts[i]) {
-                                //System.out.println("" + i + " " + "short");
-                                fieldTypes.put(field, 3);
-                            } else {
-                                if (bytes[i]) {
-                                    //System.out.println("" + i + " " + "byte");
-                                    fieldTypes.put(field, 4);
-                                } else {
-                                    if (booleans[i]) {
-                                        //System.out.println("" + i + " " + "boolean");
-                                        fieldTypes.put(field, 5);
-                                    } else {
-                                        throw new Exception("unrecognised type");
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+            WaASCG_ColumnTypes t = tests[w];
+            allFieldTypes[w] = t.getFieldTypes();
+            headers[w] = t.fields;
+            v0ms[w] = t.getV0m();
+            v1ms[w] = t.getV1m();
         }
+        WaASCG_PhaseEvent e = new WaASCG_PhaseEvent(
+                WaASCG_PhaseEvent.CONSOLIDATE, type, 0, null);
         HashMap<String, Integer> consolidatedFieldTypes = new HashMap<>();
         consolidatedFieldTypes.putAll(allFieldTypes[0]);
         for (int w = 1; w < nwaves; w++) {
@@ -191,9 +401,9 @@ public class WaASCG_Main extends CG_Process {
                 int fieldType = fieldTypes.get(field);
                 if (consolidatedFieldTypes.containsKey(field)) {
                     int consolidatedFieldType = consolidatedFieldTypes.get(field);
-                    if (fieldType != consolidatedFieldType) {
-                        consolidatedFieldTypes.put(field,
-                                Math.min(fieldType, consolidatedFieldType));
+                    if (fieldType < consolidatedFieldType) {
+                        consolidatedFieldTypes.put(field, fieldType);
+                        e.promotions++;
                     }
                 } else {
                     consolidatedFieldTypes.put(field, fieldType);
@@ -204,376 +414,1475 @@ public class WaASCG_Main extends CG_Process {
         r[1] = headers;
         r[2] = v0ms;
         r[3] = v1ms;
+        r[4] = getDictionaries(tests, consolidatedFieldTypes);
+        r[5] = getNumberStorage(type, tests, consolidatedFieldTypes);
+        for (WaASCG_ColumnTypes t : tests) {
+            e.rows += t.rows;
+        }
+        e.columns = consolidatedFieldTypes.size();
+        report.add(e);
+        return r;
+    }
+
+    /**
+     * @param type The type (hhold or person).
+     * @param tests tests[w] is the result of loadTest for wave w + 1.
+     * @param fieldTypes The consolidated field types.
+     * @return The statistics and storage of the numeric fields worked out
+     * from the value statistics of all waves.
+     */
+    protected WaASCG_NumberStorage getNumberStorage(String type,
+            WaASCG_ColumnTypes[] tests, HashMap<String, Integer> fieldTypes) {
+        HashMap<String, double[]> ranges = new HashMap<>();
+        HashMap<String, long[]> counts = new HashMap<>();
+        HashMap<String, Integer> scales = new HashMap<>();
+        HashMap<String, Boolean> plains = new HashMap<>();
+        HashMap<String, Boolean> floats = new HashMap<>();
+        for (WaASCG_ColumnTypes t : tests) {
+            for (int col = 0; col < t.fields.length; col++) {
+                String field = t.fields[col];
+                int fieldType = fieldTypes.get(field);
+                if (fieldType < WaASCG_ColumnTypes.DOUBLE
+                        || fieldType > WaASCG_ColumnTypes.BYTE) {
+                    continue;
+                }
+                double[] range = ranges.get(field);
+                if (range == null) {
+                    ranges.put(field, new double[]{t.min[col], t.max[col]});
+                    counts.put(field, new long[]{t.counts[col], t.nulls[col]});
+                    scales.put(field, (int) t.scale[col]);
+                    plains.put(field, t.plain[col]);
+                    floats.put(field, t.floats[col]);
+                } else {
+                    range[0] = Math.min(range[0], t.min[col]);
+                    range[1] = Math.max(range[1], t.max[col]);
+                    long[] c = counts.get(field);
+                    c[0] += t.counts[col];
+                    c[1] += t.nulls[col];
+                    scales.put(field, Math.max(scales.get(field),
+                            t.scale[col]));
+                    plains.put(field, plains.get(field) && t.plain[col]);
+                    floats.put(field, floats.get(field) && t.floats[col]);
+                }
+            }
+        }
+        WaASCG_NumberStorage r = new WaASCG_NumberStorage(this,
+                WaASCG_NumberStorage.getClassName(
+                        type.toUpperCase().substring(0, 1)));
+        for (String field : new TreeSet<>(ranges.keySet())) {
+            double[] range = ranges.get(field);
+            long[] c = counts.get(field);
+            r.add(field, fieldTypes.get(field), range[0], range[1], c[0],
+                    c[1], scales.get(field), plains.get(field),
+                    floats.get(field));
+        }
+        return r;
+    }
+
+    /**
+     * @param tests tests[w] is the result of loadTest for wave w + 1.
+     * @param fieldTypes The consolidated field types.
+     * @return Keys are the String fields with no more than
+     * {@link WaASCG_ColumnTypes#MAX_DISTINCT} distinct values in all waves
+     * (and no more than {@link WaASCG_DictionaryGenerator#MAX_CHARS} chars
+     * in total), values are the distinct values in their natural order.
+     */
+    protected HashMap<String, String[]> getDictionaries(
+            WaASCG_ColumnTypes[] tests, HashMap<String, Integer> fieldTypes) {
+        HashMap<String, TreeSet<String>> values = new HashMap<>();
+        HashSet<String> overflowed = new HashSet<>();
+        for (WaASCG_ColumnTypes t : tests) {
+            for (int col = 0; col < t.fields.length; col++) {
+                String field = t.fields[col];
+                if (fieldTypes.get(field) != WaASCG_ColumnTypes.STRING
+                        || overflowed.contains(field)) {
+                    continue;
+                }
+                String[] distinct = t.getDistinct(col);
+                if (distinct == null) {
+                    overflowed.add(field);
+                    values.remove(field);
+                    continue;
+                }
+                TreeSet<String> v = values.get(field);
+                if (v == null) {
+                    v = new TreeSet<>();
+                    values.put(field, v);
+                }
+                v.addAll(Arrays.asList(distinct));
+                if (v.size() > WaASCG_ColumnTypes.MAX_DISTINCT) {
+                    overflowed.add(field);
+                    values.remove(field);
+                }
+            }
+        }
+        HashMap<String, String[]> r = new HashMap<>();
+        Iterator<String> ite = values.keySet().iterator();
+        while (ite.hasNext()) {
+            String field = ite.next();
+            TreeSet<String> v = values.get(field);
+            int chars = 0;
+            for (String value : v) {
+                chars += value.length() + 1;
+            }
+            if (chars <= WaASCG_DictionaryGenerator.MAX_CHARS) {
+                r.put(field, v.toArray(new String[v.size()]));
+            }
+        }
         return r;
     }
 
     /**
+     * Scans the input file for the wave and TYPE to work out what type is
+     * best to store each field in. The file is read once using a
+     * {@link WaASCG_TabReader}. If {@link #executor} is a ForkJoinPool and the
+     * file is larger than {@link #chunkSize} then ranges of it are scanned
+     * concurrently using a {@link WaASCG_ScanTask}. If {@link #cache} holds
+     * the result for an unchanged file then the file is not scanned (unless
+     * {@link #dictionaries} is true and the result has no distinct tokens),
+     * otherwise the result is stored in the cache (see
+     * {@link #putCache(java.nio.file.Path, WaASCG_ColumnTypes)}). Errors
+     * reading from or writing to the cache are logged and do not stop the
+     * scan.
+     *
+     * @param wave
+     * @param TYPE
+     * @param indir
+     * @return The type state of each column.
+     * @throws java.io.FileNotFoundException If one is encountered.
+     */
+    public WaASCG_ColumnTypes loadTest(int wave, String TYPE, Path indir)
+            throws FileNotFoundException, IOException {
+        String m = "loadTest(wave=" + wave + ", Type=" + TYPE + ", indir="
+                + indir.toString() + ")";
+        we.env.logStartTag(m);
+        //Path f = getInputFile(wave, TYPE, indir);
+        Path f = we.files.getInputFile((byte) wave, TYPE);
+        WaASCG_PhaseEvent e = new WaASCG_PhaseEvent(WaASCG_PhaseEvent.SCAN,
+                TYPE, wave, f.getFileName().toString());
+        WaASCG_ColumnTypes r = null;
+        if (cache != null) {
+            try {
+                r = cache.get(f);
+            } catch (IOException ex) {
+                env.log("Cached types from " + cache.getFile(f)
+                        + " not used: " + ex.getMessage());
+            }
+            if (r != null && dictionaries && !r.dictionaries) {
+                env.log("Cached types from " + cache.getFile(f)
+                        + " not used: no distinct tokens.");
+                r = null;
+            }
+            if (r != null) {
+                env.log("Using cached types from " + cache.getFile(f));
+                e.cached = true;
+                e.rows = r.rows;
+                e.columns = r.fields.length;
+                report.add(e);
+                env.logEndTag(m);
+                return r;
+            }
+        }
+        try (WaASCG_TabReader reader = new WaASCG_TabReader(f)) {
+            WaASCG_PhaseEvent h = new WaASCG_PhaseEvent(
+                    WaASCG_PhaseEvent.HEADER, TYPE, wave, e.name);
+            String[] fields = parseHeader(reader.readHeader(), wave);
+            long start = reader.getDataStart();
+            long end = reader.size();
+            h.bytes = start;
+            h.rows = 1;
+            h.columns = fields.length;
+            report.add(h);
+            e.bytes = end;
+            if (executor instanceof ForkJoinPool && end - start > chunkSize) {
+                ForkJoinPool pool = (ForkJoinPool) executor;
+                WaASCG_ScanTask task = new WaASCG_ScanTask(this, reader,
+                        fields, start, end, chunkSize);
+                try {
+                    if (ForkJoinTask.getPool() == pool) {
+                        r = task.invoke();
+                    } else {
+                        r = pool.invoke(task);
+                    }
+                } catch (UncheckedIOException ex) {
+                    throw ex.getCause();
+                }
+            } else {
+                r = scan(reader, fields, start, end);
+            }
+        }
+        if (cache != null) {
+            WaASCG_ColumnTypes ct = r;
+            if (executor == null) {
+                putCache(f, ct);
+            } else {
+                synchronized (cacheWrites) {
+                    cacheWrites.add(executor.submit(() -> putCache(f, ct)));
+                }
+            }
+        }
+        e.rows = r.rows;
+        e.columns = r.fields.length;
+        e.promotions = r.promotions;
+        report.add(e);
+        env.logEndTag(m);
+        return r;
+    }
+
+    /**
+     * Stores the result of scanning f in {@link #cache}. This hashes the
+     * content of f, so if there is an {@link #executor} it is done there
+     * rather than in {@link #loadTest(int, java.lang.String, java.nio.file.Path)}.
+     * As the cache only saves scanning the input files again, a failure to
+     * write to it is logged rather than thrown.
+     *
+     * @param f The input file.
+     * @param ct The type states of the columns of f.
+     */
+    protected void putCache(Path f, WaASCG_ColumnTypes ct) {
+        try {
+            cache.put(f, ct);
+        } catch (IOException ex) {
+            env.log("Types not cached in " + cache.getFile(f) + ": "
+                    + ex.getMessage());
+        }
+    }
+
+    /**
+     * Waits for the writes to {@link #cache} submitted to {@link #executor}
+     * to finish. Call this before shutting down {@link #executor}.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void awaitCacheWrites() throws InterruptedException {
+        ArrayList<Future<?>> writes;
+        synchronized (cacheWrites) {
+            writes = new ArrayList<>(cacheWrites);
+            cacheWrites.clear();
+        }
+        for (Future<?> w : writes) {
+            try {
+                w.get();
+            } catch (ExecutionException ex) {
+                env.log("Types not cached: " + ex.getCause());
+            }
+        }
+    }
+
+    /**
+     * Works out the type states of the columns from the rows in a range of
+     * an input file. Saturated columns at the end of rows are skipped and
+     * reading stops once all columns are saturated. The distinct tokens of
+     * the columns are only stored if {@link #dictionaries} is true.
+     *
+     * @param reader For reading the input file.
+     * @param fields The field names of the columns.
+     * @param start The start of the range (the start of a line).
+     * @param end The end of the range (the start of a line or the end of the
+     * file).
+     * @return The type states of the columns.
+     * @throws IOException If encountered.
+     */
+    public WaASCG_ColumnTypes scan(WaASCG_TabReader reader, String[] fields,
+            long start, long end) throws IOException {
+        WaASCG_ColumnTypes ct = new WaASCG_ColumnTypes(fields, dictionaries);
+        WaASCG_TokenClassifier tc = new WaASCG_TokenClassifier();
+        ct.rows = reader.read(start, end, new WaASCG_TabReader.Handler() {
+
+            @Override
+            public void cell(int col, byte[] b, int start, int end) {
+                parse(b, start, end, col, ct, tc);
+            }
+
+            @Override
+            public void endRow() {
+            }
+
+            @Override
+            public int getLastColumn() {
+                return ct.getLastLive();
+            }
+        });
+        return ct;
+    }
+
+    /**
+     * Classifies the token in b from start to end once using tc and moves the
+     * type state of column index in ct accordingly. If ct stores distinct
+     * tokens (see {@link WaASCG_ColumnTypes#dictionaries}) the token is also
+     * added to those of the column. If it is numeric it is also added to the
+     * value statistics of the column. Blank tokens and tokens of saturated
+     * columns are ignored.
+     *
+     * @param b The bytes.
+     * @param start The index of the first byte of the token.
+     * @param end The index after the last byte of the token.
+     * @param index The column index.
+     * @param ct The type states.
+     * @param tc The classifier.
+     */
+    public void parse(byte[] b, int start, int end, int index,
+            WaASCG_ColumnTypes ct, WaASCG_TokenClassifier tc) {
+        if (ct.isSaturated(index)) {
+            return;
+        }
+        if (tc.classify(b, start, end) != WaASCG_TokenClassifier.BLANK) {
+            ct.add(index, tc.type, (byte) tc.value);
+            if (ct.dictionaries) {
+                ct.addToken(index, b, start, end);
+            }
+            if (tc.kind != WaASCG_TokenClassifier.NON_NUMERIC) {
+                ct.addValue(index, tc.doubleValue, tc.scale, tc.isPlain,
+                        tc.isFloat);
+            }
+        } else {
+            ct.addNull(index);
+        }
+    }
+
+    /**
+     * Generates the source code for type and writes it using
+     * {@link #write(java.util.List)}.
+     *
+     * @param type The type (hhold or person).
+     * @param types As returned from {@link #getFieldTypes(java.lang.String)}.
+     * @return The output directory path.
+     * @throws IOException If encountered.
+     */
+    public Path run(String type, Object[] types) throws IOException {
+        Path outdir = getOutputDir(type);
+        write(getSources(type, types, outdir));
+        return outdir;
+    }
+
+    /**
+     * @param type The type (hhold or person).
+     * @return The directory the source code for type is written to.
+     * @throws IOException If encountered.
+     */
+    public Path getOutputDir(String type) throws IOException {
+        return Paths.get(we.files.getOutputDir().toString(),
+                WaASCG_Strings.s_src, WaASCG_Strings.s_main,
+                WaASCG_Strings.s_java, WaASCG_Strings.s_uk, WaASCG_Strings.s_ac,
+                WaASCG_Strings.s_leeds, WaASCG_Strings.s_ccg,
+                WaASCG_Strings.s_data, WaASCG_Strings.s_waas,
+                WaASCG_Strings.s_data, type);
+    }
+
+    /**
+     * Renders the source code files and writes those that have changed. If
+     * {@link #executor} is not null then the files are rendered and written
+     * concurrently. The files that were written are listed in order in the
+     * manifest file {@link #MANIFEST} in
+     * {@link uk.ac.leeds.ccg.data.waascg.io.WaASCG_Files#getOutputWaASDir()},
+     * relative to the output directory.
+     *
+     * @param sources The source code files.
+     * @return The files that were written.
+     * @throws IOException If encountered.
+     */
+    public TreeSet<Path> write(List<WaASCG_SourceWriter> sources)
+            throws IOException {
+        TreeSet<Path> r = new TreeSet<>();
+        for (WaASCG_SourceWriter source : sources) {
+            source.report = report;
+        }
+        if (executor == null) {
+            for (WaASCG_SourceWriter source : sources) {
+                if (source.call()) {
+                    r.add(source.file);
+                }
+            }
+        } else {
+            write(sources, r);
+        }
+        Path outdir = we.files.getOutputDir();
+        ArrayList<String> lines = new ArrayList<>();
+        for (Path f : r) {
+            lines.add(outdir.relativize(f).toString());
+        }
+        Files.write(Paths.get(we.files.getOutputWaASDir().toString(),
+                MANIFEST), lines, StandardCharsets.UTF_8);
+        env.log(r.size() + " of " + sources.size()
+                + " generated source code files changed.");
+        return r;
+    }
+
+    private void write(List<WaASCG_SourceWriter> sources, TreeSet<Path> r)
+            throws IOException {
+        try {
+            List<Future<Boolean>> futures = executor.invokeAll(sources);
+            for (int i = 0; i < futures.size(); i++) {
+                if (futures.get(i).get()) {
+                    r.add(sources.get(i).file);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ex.getMessage());
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Works out the source code files for type. Each class is rendered once
+     * by the returned source writers, which do not depend on each other.
+     *
+     * @param type The type (hhold or person).
+     * @param types As returned from {@link #getFieldTypes(java.lang.String)}.
+     * @param outdir The directory to write to.
+     * @return The source code files for type.
+     * @throws IOException If encountered.
+     */
+    public ArrayList<WaASCG_SourceWriter> getSources(String type,
+            Object[] types, Path outdir) throws IOException {
+        ArrayList<WaASCG_SourceWriter> r = new ArrayList<>();
+        HashMap<String, Integer> fieldTypes = (HashMap<String, Integer>) types[0];
+        String[][] headers = (String[][]) types[1];
+        HashMap<String, Byte>[] v0ms = (HashMap<String, Byte>[]) types[2];
+        HashMap<String, Byte>[] v1ms = (HashMap<String, Byte>[]) types[3];
+        HashMap<String, String[]> dictionaryValues = null;
+        if (types.length > 4) {
+            dictionaryValues = (HashMap<String, String[]>) types[4];
+        }
+        WaASCG_NumberStorage stats = types.length > 5
+                ? (WaASCG_NumberStorage) types[5] : null;
+        WaASCG_NumberStorage ds = narrowNumbers ? stats : null;
+        int nwaves = headers.length;
+        WaASCG_WaveGroups groups = getGroups(headers);
+        HashMap<String, Byte> v0m = setCommonBooleanMaps(v0ms, v1ms, groups,
+                fieldTypes);
+        Files.createDirectories(outdir);
+        String packageName = "uk.ac.leeds.ccg.data.waas.data." + type;
+        String prepend = WaASCG_Strings.s_WaAS + WaASCG_Strings.symbol_underscore;
+        String t = type.toUpperCase().substring(0, 1);
+        WaASCG_DictionaryGenerator dg;
+        if (dictionaries && dictionaryValues != null
+                && !dictionaryValues.isEmpty()) {
+            dg = new WaASCG_DictionaryGenerator(this,
+                    WaASCG_DictionaryGenerator.getClassName(t),
+                    dictionaryValues);
+            r.add(new WaASCG_SourceWriter(getFile(outdir, dg.className),
+                    pw -> dg.write(pw, packageName)));
+        } else {
+            dg = null;
+        }
+        if (stats != null) {
+            r.add(new WaASCG_SourceWriter(getFile(outdir, stats.className),
+                    pw -> stats.write(pw, packageName)));
+        }
+        String parser;
+        if (cursorConstructors || columnStores || lazyRecords) {
+            String parserClassName = WaASCG_ParserGenerator.getClassName(t);
+            r.add(new WaASCG_SourceWriter(getFile(outdir, parserClassName),
+                    pw -> new WaASCG_ParserGenerator(this).write(pw,
+                            packageName, parserClassName)));
+            if (columnStores) {
+                for (int w = 0; w < nwaves; w++) {
+                    int wave = w + 1;
+                    String className = WaASCG_ColumnsGenerator.getClassName(
+                            wave, t);
+                    String[] header = headers[w];
+                    r.add(new WaASCG_SourceWriter(getFile(outdir, className),
+                            pw -> new WaASCG_ColumnsGenerator(this).write(pw,
+                                    packageName, className, parserClassName,
+                                    wave, header, fieldTypes, v0m, dg, ds)));
+                }
+            }
+            parser = cursorConstructors || lazyRecords ? parserClassName : null;
+        } else {
+            parser = null;
+        }
+        for (int i = 0; i < groups.size(); i++) {
+            if (i < nwaves) {
+                // Classes
+                int w = i;
+                int wave = w + 1;
+                String className = prepend + "W" + wave + t + "Record";
+                String extendedClassName = prepend
+                        + groups.getName(groups.parents[w]) + t + "Record";
+                String fieldsClassName;
+                if (projections && parser != null && !lazyRecords) {
+                    fieldsClassName = WaASCG_FieldsGenerator.getClassName(wave,
+                            t);
+                    r.add(new WaASCG_SourceWriter(getFile(outdir,
+                            fieldsClassName), pw -> new WaASCG_FieldsGenerator(
+                                    this).write(pw, packageName,
+                                    fieldsClassName, className, wave,
+                                    headers[w])));
+                } else {
+                    fieldsClassName = null;
+                }
+                r.add(new WaASCG_SourceWriter(getFile(outdir, className),
+                        pw -> writeRecord(pw, packageName, className,
+                                extendedClassName, groups, w, headers,
+                                fieldTypes, v0m, parser, fieldsClassName, dg,
+                                ds)));
+                if (binaryCodecs) {
+                    String binaryClassName
+                            = WaASCG_BinaryGenerator.getClassName(wave, t);
+                    long schema = getSchema(w, groups, fieldTypes, v0m, dg,
+                            ds);
+                    r.add(new WaASCG_SourceWriter(getFile(outdir,
+                            binaryClassName), pw -> new WaASCG_BinaryGenerator(
+                                    this).write(pw, packageName,
+                                    binaryClassName, className, wave, schema)));
+                }
+                if (streamLoaders) {
+                    String loaderClassName
+                            = WaASCG_LoaderGenerator.getClassName(wave, t);
+                    r.add(new WaASCG_SourceWriter(getFile(outdir,
+                            loaderClassName), pw -> new WaASCG_LoaderGenerator(
+                                    this).write(pw, packageName,
+                                    loaderClassName, className,
+                                    fieldsClassName, wave, headers[w])));
+                }
+            } else {
+                // Abstract classes
+                String className = prepend + groups.getName(i) + t + "Record";
+                String extendedClassName;
+                if (groups.isRoot(i)) {
+                    extendedClassName = "Data_Record";
+                } else {
+                    extendedClassName = prepend
+                            + groups.getName(groups.parents[i]) + t + "Record";
+                }
+                int g = i;
+                r.add(new WaASCG_SourceWriter(getFile(outdir, className),
+                        pw -> writeAbstractRecord(pw, packageName, className,
+                                extendedClassName, groups, g, fieldTypes, v0m,
+                                parser, dg, ds)));
+            }
+        }
+        return r;
+    }
+
+    /**
+     * @param outdir The directory.
+     * @param className The class name.
+     * @return The source code file of className in outdir.
+     */
+    protected static Path getFile(Path outdir, String className) {
+        return Paths.get(outdir.toString(), className + ".java");
+    }
+
+    /**
+     * Writes a record class for a wave.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param packageName The package name.
+     * @param className The class name.
+     * @param extendedClassName The name of the class extended.
+     * @param groups The groups of waves (as returned from
+     * {@link #getGroups(java.lang.String[][])}).
+     * @param w The wave index.
+     * @param headers The headers of the input files.
+     * @param fieldTypes The field types.
+     * @param v0m The codes for false of the boolean fields.
+     * @param parser The name of the generated parser class or null.
+     * @param fieldsClassName The name of the generated fields class of the
+     * wave or null.
+     * @param dg The dictionaries or null.
+     * @param ds The storage of the numeric fields or null.
+     */
+    public void writeRecord(PrintWriter pw, String packageName,
+            String className, String extendedClassName,
+            WaASCG_WaveGroups groups, int w, String[][] headers,
+            HashMap<String, Integer> fieldTypes, HashMap<String, Byte> v0m,
+            String parser, String fieldsClassName,
+            WaASCG_DictionaryGenerator dg,
+            WaASCG_NumberStorage ds) {
+        writeHeaderPackageAndImports(pw, packageName, getImports0());
+        printClassDeclarationSerialVersionUID(pw, packageName, className,
+                false, "", extendedClassName);
+        // Print Field Declarations Inits And Getters
+        printMembers(pw, groups, w, fieldTypes, v0m, parser, dg, ds);
+        if (binaryCodecs) {
+            printBinaryConstructor(pw, className, getNSlots(w, groups));
+        }
+        // Constructor
+        if (lazyRecords) {
+            printLazyConstructor(pw, className, headers, w, groups, parser);
+        } else {
+            printConstructor(pw, className, headers, w, parser,
+                    fieldsClassName);
+        }
+    }
+
+    /**
+     * Writes an abstract record class for the fields common to a group of
+     * waves.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param packageName The package name.
+     * @param className The class name.
+     * @param extendedClassName The name of the class extended.
+     * @param groups The groups of waves (as returned from
+     * {@link #getGroups(java.lang.String[][])}).
+     * @param i The index of the group of waves of the class.
+     * @param fieldTypes The field types.
+     * @param v0m The codes for false of the boolean fields.
+     * @param parser The name of the generated parser class or null.
+     * @param dg The dictionaries or null.
+     * @param ds The storage of the numeric fields or null.
+     */
+    public void writeAbstractRecord(PrintWriter pw, String packageName,
+            String className, String extendedClassName,
+            WaASCG_WaveGroups groups, int i,
+            HashMap<String, Integer> fieldTypes, HashMap<String, Byte> v0m,
+            String parser, WaASCG_DictionaryGenerator dg,
+            WaASCG_NumberStorage ds) {
+        if (groups.isRoot(i)) {
+            writeHeaderPackageAndImports(pw, packageName, getImports1());
+            //String implementations = "Serializable";
+            String implementations = "";
+            printClassDeclarationSerialVersionUID(pw, packageName, className,
+                    true, implementations, extendedClassName);
+            if (lazyRecords) {
+                printLazyRootMembers(pw);
+            } else if (parser == null) {
+                pw.println();
+                pw.println(getIndent(1) + "protected String[] s;");
+            }
+        } else {
+            writeHeaderPackageAndImports(pw, packageName, getImports0());
+            printClassDeclarationSerialVersionUID(pw, packageName, className,
+                    true, "", extendedClassName);
+        }
+        printConstructor(pw, className);
+        // Print Field Declarations Inits And Getters
+        printMembers(pw, groups, i, fieldTypes, v0m, parser, dg, ds);
+        pw.println("}");
+    }
+
+    public void printGetID(PrintWriter pw) {
+        pw.println();
+        pw.println(getIndent(1) + "@Override");
+        pw.println(getIndent(1) + "public WaAS_RecordID getId() {");
+        pw.println(getIndent(2) + "return (WaAS_RecordID) id;");
+        pw.println(getIndent(1) + "}");
+    }
+
+    
+
+    /**
+     *
+     * @param pw
+     * @param className
+     */
+    public void printConstructor(PrintWriter pw, String className) {
+        pw.println();
+        pw.println(getIndent(1) + className + "(WaAS_RecordID i){");
+        pw.println(getIndent(2) + "super(i);");
+        pw.println(getIndent(1) + "}");
+    }
+
+    /**
+     *
+     * @param pw
+     * @param className
+     * @param headers
+     * @param w
+     */
+    public void printConstructor(PrintWriter pw, String className, String[][] headers, int w) {
+        printConstructor(pw, className, headers, w, null);
+    }
+
+    /**
+     * @param pw
+     * @param className
+     * @param headers
+     * @param w
+     * @param parser The name of the generated parser class. If this is null
+     * the line is split into Strings, otherwise it is walked with an index
+     * cursor and each value is parsed from its range of the line.
+     */
+    public void printConstructor(PrintWriter pw, String className,
+            String[][] headers, int w, String parser) {
+        printConstructor(pw, className, headers, w, parser, null);
+    }
+
+    /**
+     * @param pw
+     * @param className
+     * @param headers
+     * @param w
+     * @param parser The name of the generated parser class or null.
+     * @param fieldsClassName The name of the generated fields class of the
+     * wave. If this is not null (and parser is not null) a constructor that
+     * parses only the values of the fields in a set is also printed (see
+     * {@link WaASCG_FieldsGenerator}).
+     */
+    public void printConstructor(PrintWriter pw, String className,
+            String[][] headers, int w, String parser, String fieldsClassName) {
+        pw.println();
+        pw.println(getIndent(1) + "public " + className + "(WaAS_RecordID i, String line) throws Exception {");
+        pw.println(getIndent(2) + "super(i);");
+        if (parser == null) {
+            pw.println(getIndent(2) + "s = line.split(\"\\t\");");
+            for (int j = 0; j < headers[w].length; j++) {
+                pw.println(getIndent(2) + "init" + headers[w][j] + "(s[" + j + "]);");
+            }
+            pw.println(getIndent(1) + "}");
+        } else {
+            WaASCG_ParserGenerator pg = new WaASCG_ParserGenerator(this);
+            pg.printWalkCalls(pw, headers[w].length);
+            pw.println(getIndent(1) + "}");
+            String[] statements = new String[headers[w].length];
+            for (int j = 0; j < statements.length; j++) {
+                statements[j] = "init" + headers[w][j] + "(line, p, q);";
+            }
+            pg.printWalkMethods(pw, parser, statements);
+            if (fieldsClassName != null) {
+                new WaASCG_FieldsGenerator(this).printConstructor(pw,
+                        className, fieldsClassName, parser, headers[w]);
+            }
+        }
+        printGetID(pw);
+        pw.println("}");
+    }
+
+    /**
+     * Prints the fields declared in a record class and the methods for them.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param groups The groups of waves (as returned from
+     * {@link #getGroups(java.lang.String[][])}).
+     * @param i The index of the group of waves of the class.
+     * @param fieldTypes The field types.
+     * @param v0 The codes for false of the boolean fields.
+     * @param parser The name of the generated parser class or null.
+     * @param dg The dictionaries or null.
+     * @param ds The storage of the numeric fields or null.
+     */
+    public void printMembers(PrintWriter pw, WaASCG_WaveGroups groups, int i,
+            HashMap<String, Integer> fieldTypes, HashMap<String, Byte> v0,
+            String parser, WaASCG_DictionaryGenerator dg,
+            WaASCG_NumberStorage ds) {
+        WaASCG_BooleanBits bits = null;
+        TreeSet<String> fields = groups.fields[i];
+        TreeSet<String> unpacked = fields;
+        if (packBooleans) {
+            bits = new WaASCG_BooleanBits(groups.getName(i), fields,
+                    fieldTypes);
+            unpacked = bits.getUnpacked(fields);
+        }
+        TreeSet<String> coded = new TreeSet<>();
+        if (dg != null) {
+            coded = dg.getCoded(unpacked);
+            unpacked = dg.getUncoded(unpacked);
+        }
+        TreeSet<String> narrowed = new TreeSet<>();
+        if (ds != null) {
+            narrowed = ds.getNarrowed(unpacked);
+            unpacked = ds.getUnnarrowed(unpacked);
+        }
+        /*
+         * The projection constructor of a record only sets the fields in its
+         * set, so the others are initialised to their blank values.
+         */
+        boolean blanks = projections && parser != null && !lazyRecords;
+        printFieldDeclarations(pw, unpacked, fieldTypes, blanks);
+        printCodedDeclarations(pw, coded, dg, blanks);
+        printNarrowedDeclarations(pw, narrowed, ds, blanks);
+        printBitsDeclarations(pw, bits);
+        if (lazyRecords) {
+            printLazyGetters(pw, fields, fieldTypes, v0, parser,
+                    getBase(i, groups), bits, dg, ds);
+        } else {
+            if (parser == null) {
+                printFieldInits(pw, unpacked, fieldTypes, v0);
+            } else {
+                printFieldInits(pw, unpacked, fieldTypes, v0, parser);
+            }
+            printCodedInits(pw, coded, dg, parser);
+            printNarrowedInits(pw, narrowed, fieldTypes, ds, parser);
+            printBitsInits(pw, bits, v0, parser);
+            printFieldGetters(pw, unpacked, fieldTypes);
+            printCodedGetters(pw, coded, dg);
+            printNarrowedGetters(pw, narrowed, fieldTypes, ds);
+            printBitsGetters(pw, bits);
+        }
+        if (binaryCodecs) {
+            printCodec(pw, fields, fieldTypes, groups.isRoot(i), bits, dg,
+                    ds);
+        }
+    }
+
+    /**
+     * @param pw The PrintWriter to write to.
+     * @param coded The fields with a dictionary.
+     * @param dg The dictionaries.
+     * @param blanks If true the fields are initialised to the code for a
+     * blank (-1).
+     */
+    public void printCodedDeclarations(PrintWriter pw, TreeSet<String> coded,
+            WaASCG_DictionaryGenerator dg, boolean blanks) {
+        for (String field : coded) {
+            pw.println(getIndent(1) + "protected " + dg.getCodeType(field)
+                    + " " + field + (blanks ? " = -1;" : ";"));
+            pw.println();
+        }
+    }
+
+    /**
+     * Prints init methods for the fields with a dictionary. The init methods
+     * set the code of the value, which is -1 for a blank value as the value
+     * is null for a blank value of a String field.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param coded The fields with a dictionary.
+     * @param dg The dictionaries.
+     * @param parser The name of the generated parser class or null.
+     */
+    public void printCodedInits(PrintWriter pw, TreeSet<String> coded,
+            WaASCG_DictionaryGenerator dg, String parser) {
+        for (String field : coded) {
+            if (parser == null) {
+                pw.println(getIndent(1) + "protected final void init" + field
+                        + "(String s) {");
+                pw.println(getIndent(2) + field + " = "
+                        + dg.getCodeExpression(field, "s", "0", "s.length()")
+                        + ";");
+            } else {
+                pw.println(getIndent(1) + "protected final void init" + field
+                        + "(String line, int start, int end) {");
+                pw.println(getIndent(2) + field + " = "
+                        + dg.getCodeExpression(field, "line", "start", "end")
+                        + ";");
+            }
+            pw.println(getIndent(1) + "}");
+            pw.println();
+        }
+    }
+
+    /**
+     * @param pw The PrintWriter to write to.
+     * @param narrowed The numeric fields stored in a narrower type.
+     * @param ds The storage of the numeric fields.
+     * @param blanks If true the fields are initialised to the stored value
+     * of a blank.
+     */
+    public void printNarrowedDeclarations(PrintWriter pw,
+            TreeSet<String> narrowed, WaASCG_NumberStorage ds,
+            boolean blanks) {
+        for (String field : narrowed) {
+            pw.println(getIndent(1) + "protected " + ds.getJavaType(field)
+                    + " " + field + (blanks ? " = " + ds.getBlank(field) : "")
+                    + ";");
+            pw.println();
+        }
+    }
+
+    /**
+     * Prints init methods for the numeric fields stored in a narrower type.
+     * The init methods parse the value as its field type and then check and
+     * store it.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param narrowed The numeric fields stored in a narrower type.
+     * @param fieldTypes The field types.
+     * @param ds The storage of the numeric fields.
+     * @param parser The name of the generated parser class or null.
+     */
+    public void printNarrowedInits(PrintWriter pw, TreeSet<String> narrowed,
+            HashMap<String, Integer> fieldTypes, WaASCG_NumberStorage ds,
+            String parser) {
+        for (String field : narrowed) {
+            int fieldType = fieldTypes.get(field);
+            String value;
+            if (parser == null) {
+                pw.println(getIndent(1) + "protected final void init" + field
+                        + "(String s) {");
+                switch (fieldType) {
+                    case 1:
+                        value = "s.trim().isEmpty() ? Double.NaN"
+                                + " : Double.parseDouble(s)";
+                        break;
+                    case 2:
+                        value = "s.trim().isEmpty() ? Integer.MIN_VALUE"
+                                + " : Integer.parseInt(s)";
+                        break;
+                    default:
+                        value = "s.trim().isEmpty() ? Short.MIN_VALUE"
+                                + " : Short.parseShort(s)";
+                }
+            } else {
+                pw.println(getIndent(1) + "protected final void init" + field
+                        + "(String line, int start, int end) {");
+                value = WaASCG_ParserGenerator.getParseExpression(fieldType,
+                        null, parser, "line", "start", "end");
+            }
+            for (String statement : ds.getStoreStatements(field, field, value)) {
+                pw.println(getIndent(2) + statement);
+            }
+            pw.println(getIndent(1) + "}");
+            pw.println();
+        }
+    }
+
+    /**
+     * @param pw The PrintWriter to write to.
+     * @param narrowed The numeric fields stored in a narrower type.
+     * @param fieldTypes The field types.
+     * @param ds The storage of the numeric fields.
+     */
+    public void printNarrowedGetters(PrintWriter pw, TreeSet<String> narrowed,
+            HashMap<String, Integer> fieldTypes, WaASCG_NumberStorage ds) {
+        for (String field : narrowed) {
+            pw.println(getIndent(1) + "public "
+                    + WaASCG_ColumnsGenerator.getJavaType(fieldTypes.get(field))
+                    + " get" + field + "() {");
+            pw.println(getIndent(2) + "return "
+                    + ds.getValueExpression(field, field) + ";");
+            pw.println(getIndent(1) + "}");
+            pw.println();
+        }
+        pw.flush();
+    }
+
+    /**
+     * @param pw The PrintWriter to write to.
+     * @param coded The fields with a dictionary.
+     * @param dg The dictionaries.
+     */
+    public void printCodedGetters(PrintWriter pw, TreeSet<String> coded,
+            WaASCG_DictionaryGenerator dg) {
+        for (String field : coded) {
+            pw.println(getIndent(1) + "public String get" + field + "() {");
+            pw.println(getIndent(2) + "return "
+                    + dg.getValueExpression(field, field) + ";");
+            pw.println(getIndent(1) + "}");
+            pw.println();
+        }
+        pw.flush();
+    }
+
+    /**
+     * @param pw The PrintWriter to write to.
+     * @param bits The layout of the packed boolean fields or null.
+     */
+    public void printBitsDeclarations(PrintWriter pw,
+            WaASCG_BooleanBits bits) {
+        if (bits == null) {
+            return;
+        }
+        for (int k = 0; k < bits.getNWords(); k++) {
+            pw.println(getIndent(1) + "protected long " + bits.getWord(k)
+                    + ";");
+            pw.println();
+        }
+    }
+
+    /**
+     * Prints init methods for the packed boolean fields. The init methods
+     * parse as those printed by
+     * {@link #printFieldInits(java.io.PrintWriter, java.util.TreeSet, java.util.HashMap, java.util.HashMap)}
+     * and
+     * {@link #printFieldInits(java.io.PrintWriter, java.util.TreeSet, java.util.HashMap, java.util.HashMap, java.lang.String)},
+     * but set a bit for a value that is true.
      *
-     * @param wave
-     * @param TYPE
-     * @param indir
-     * @return
-     * @throws java.io.FileNotFoundException If one is encountered.
+     * @param pw The PrintWriter to write to.
+     * @param bits The layout of the packed boolean fields or null.
+     * @param v0 The codes for false of the boolean fields.
+     * @param parser The name of the generated parser class or null.
      */
-    public Object[] loadTest(int wave, String TYPE, Path indir)
-            throws FileNotFoundException, IOException {
-        String m = "loadTest(wave=" + wave + ", Type=" + TYPE + ", indir="
-                + indir.toString() + ")";
-        we.env.logStartTag(m);
-        Object[] r = new Object[9];
-        HashMap<String, Byte> v0m = new HashMap<>();
-        HashMap<String, Byte> v1m = new HashMap<>();
-        //Path f = getInputFile(wave, TYPE, indir);
-        Path f = we.files.getInputFile((byte) wave, TYPE);
-        String line;
-        try (BufferedReader br = Generic_IO.getBufferedReader(f)) {
-            line = br.lines().findFirst().get();
-        }
-        String[] fields = parseHeader(line, wave);
-        int n = fields.length;
-        boolean[] strings = new boolean[n];
-        boolean[] doubles = new boolean[n];
-        boolean[] ints = new boolean[n];
-        boolean[] shorts = new boolean[n];
-        boolean[] bytes = new boolean[n];
-        boolean[] booleans = new boolean[n];
-        byte[] v0 = new byte[n];
-        byte[] v1 = new byte[n];
-        for (int i = 0; i < n; i++) {
-            strings[i] = false;
-            doubles[i] = false;
-            ints[i] = false;
-            shorts[i] = false;
-            //bytes[i] = true;
-            bytes[i] = false;
-            booleans[i] = true;
-            v0[i] = Byte.MIN_VALUE;
-            v1[i] = Byte.MIN_VALUE;
-        }
-        try (BufferedReader br = Generic_IO.getBufferedReader(f)) {
-            br.readLine(); // Skip header.
-            line = br.readLine();
-            while (line != null) {
-                String[] split = line.split("\t");
-                for (int i = 0; i < n; i++) {
-                    parse(split[i], fields[i], i, strings, doubles, ints, shorts,
-                            bytes, booleans, v0, v1, v0m, v1m);
-                }
-                line = br.readLine();
-            }
+    public void printBitsInits(PrintWriter pw, WaASCG_BooleanBits bits,
+            HashMap<String, Byte> v0, String parser) {
+        if (bits == null) {
+            return;
         }
-        /**
-         * Order v0m and v1m so that v0m always has the smaller value and v1m
-         * the larger.
-         */
-        Iterator<String> ite = v0m.keySet().iterator();
-        while (ite.hasNext()) {
-            String s = ite.next();
-            byte v00 = v0m.get(s);
-            if (v1m.containsKey(s)) {
-                byte v11 = v1m.get(s);
-                if (v00 > v11) {
-                    v0m.put(s, v11);
-                    v1m.put(s, v00);
+        for (String field : bits.fields) {
+            if (parser == null) {
+                pw.println(getIndent(1) + "protected final void init" + field
+                        + "(String s) {");
+                pw.println(getIndent(2) + "if (!s.trim().isEmpty()) {");
+                pw.println(getIndent(3) + "byte b = Byte.parseByte(s);");
+                if (v0.get(field) != null) {
+                    pw.println(getIndent(3) + "if (b != " + v0.get(field)
+                            + ") {");
+                    pw.println(getIndent(4) + bits.getSet(field));
+                    pw.println(getIndent(3) + "}");
                 }
+                pw.println(getIndent(2) + "}");
+            } else {
+                pw.println(getIndent(1) + "protected final void init" + field
+                        + "(String line, int start, int end) {");
+                pw.println(getIndent(2) + "if ("
+                        + WaASCG_ParserGenerator.getParseExpression(5,
+                                v0.get(field), parser, "line", "start", "end")
+                        + ") {");
+                pw.println(getIndent(3) + bits.getSet(field));
+                pw.println(getIndent(2) + "}");
             }
+            pw.println(getIndent(1) + "}");
+            pw.println();
         }
-        r[0] = fields;
-        r[1] = strings;
-        r[2] = doubles;
-        r[3] = ints;
-        r[4] = shorts;
-        r[5] = bytes;
-        r[6] = booleans;
-        r[7] = v0m;
-        r[8] = v1m;
-        env.logEndTag(m);
-        return r;
     }
 
     /**
-     * If s can be represented as a byte reserving Byte.Min_Value for a
-     * noDataValue,
-     *
-     * @param s
-     * @param field
-     * @param index
-     * @param strings
-     * @param doubles
-     * @param ints
-     * @param shorts
-     * @param bytes
-     * @param booleans
-     * @param v0
-     * @param v1
-     * @param v0m
-     * @param v1m
-     */
-    public void parse(String s, String field, int index, boolean[] strings,
-            boolean[] doubles, boolean[] ints, boolean[] shorts,
-            boolean[] bytes, boolean[] booleans, byte[] v0, byte[] v1,
-            HashMap<String, Byte> v0m, HashMap<String, Byte> v1m) {
-        if (!s.trim().isEmpty()) {
-            if (!strings[index]) {
-                if (doubles[index]) {
-                    doDouble(s, index, strings, doubles);
-                } else {
-                    if (ints[index]) {
-                        doInt(s, index, strings, doubles, ints);
-                    } else {
-                        if (shorts[index]) {
-                            doShort(s, index, strings, doubles, ints, shorts);
-                        } else {
-                            if (bytes[index]) {
-                                doByte(s, index, strings, doubles, ints,
-                                        shorts, bytes);
-                            } else {
-                                if (booleans[index]) {
-                                    if (Math_Byte.isByte(s)) {
-                                        byte b = Byte.valueOf(s);
-                                        if (v0[index] > Byte.MIN_VALUE) {
-                                            if (!(b == v0[index])) {
-                                                if (v1[index] > Byte.MIN_VALUE) {
-                                                    if (!(b == v1[index])) {
-                                                        booleans[index] = false;
-                                                        bytes[index] = true;
-                                                    }
-                                                } else {
-                                                    v1[index] = b;
-                                                    v1m.put(field, b);
-                                                }
-                                            }
-                                        } else {
-                                            v0[index] = b;
-                                            v0m.put(field, b);
-                                        }
-                                    } else {
-                                        booleans[index] = false;
-                                        shorts[index] = true;
-                                        doShort(s, index, strings, doubles, ints,
-                                                shorts);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+     * @param pw The PrintWriter to write to.
+     * @param bits The layout of the packed boolean fields or null.
+     */
+    public void printBitsGetters(PrintWriter pw, WaASCG_BooleanBits bits) {
+        if (bits == null) {
+            return;
         }
-    }
-
-    protected void doByte(String s, int index, boolean[] strings,
-            boolean[] doubles, boolean[] ints, boolean[] shorts,
-            boolean[] bytes) {
-        if (!Math_Byte.isByte(s)) {
-            bytes[index] = false;
-            shorts[index] = true;
-            doShort(s, index, strings, doubles, ints, shorts);
+        for (String field : bits.fields) {
+            pw.println(getIndent(1) + "public boolean get" + field + "() {");
+            pw.println(getIndent(2) + "return " + bits.getValue(field) + ";");
+            pw.println(getIndent(1) + "}");
+            pw.println();
         }
+        pw.flush();
     }
 
-    protected void doShort(String s, int index, boolean[] strings,
-            boolean[] doubles, boolean[] ints, boolean[] shorts) {
-        if (!Math_Short.isShort(s)) {
-            shorts[index] = false;
-            ints[index] = true;
-            doInt(s, index, strings, doubles, ints);
+    /**
+     * @param i The index of a group of waves.
+     * @param groups The groups of waves.
+     * @return The slot number of the first field declared in the record class
+     * of group i. The fields declared in a class have consecutive slot numbers
+     * in their (alphabetical) order, following those of the class extended.
+     */
+    protected int getBase(int i, WaASCG_WaveGroups groups) {
+        int r = 0;
+        for (int j : groups.getLineage(i)) {
+            if (j != i) {
+                r += groups.fields[j].size();
+            }
         }
+        return r;
     }
 
-    protected void doInt(String s, int index, boolean[] strings,
-            boolean[] doubles, boolean[] ints) {
-        if (!Math_Integer.isInt(s)) {
-            ints[index] = false;
-            doubles[index] = true;
-            doDouble(s, index, strings, doubles);
-        }
+    /**
+     * @param w The wave index.
+     * @param groups The groups of waves (as returned from
+     * {@link #getGroups(java.lang.String[][])}).
+     * @return The number of field slots of the record class of wave w.
+     */
+    protected int getNSlots(int w, WaASCG_WaveGroups groups) {
+        return getBase(w, groups) + groups.fields[w].size();
     }
 
-    protected void doDouble(String s, int index, boolean[] strings,
-            boolean[] doubles) {
-        if (!Math_Double.isDouble(s)) {
-            doubles[index] = false;
-            strings[index] = true;
-        }
+    /**
+     * @param nSlots A number of field slots.
+     * @return The number of longs needed for a bit for each slot.
+     */
+    protected static int getDecodedLength(int nSlots) {
+        return (nSlots + 63) / 64;
     }
 
     /**
+     * Prints the fields and methods of the root of the record class hierarchy
+     * for lazy decoding.
      *
-     * @param type
-     * @param types
-     * @return The output directory path.
-     * @throws IOException
+     * @param pw The PrintWriter to write to.
      */
-    public Path run(String type, Object[] types) throws IOException {
-        int nwaves = we.NWAVES;
-        HashMap<String, Integer> fieldTypes = (HashMap<String, Integer>) types[0];
-        String[][] headers = (String[][]) types[1];
-        HashMap<String, Byte>[] v0ms = (HashMap<String, Byte>[]) types[2];
-        HashMap<String, Byte>[] v1ms = (HashMap<String, Byte>[]) types[3];
-        TreeSet<String>[] fields = getFields(headers);
-        HashMap<String, Byte> v0m0 = setCommonBooleanMaps(v0ms, v1ms, fields, fieldTypes);
-        Path outdir = Paths.get(we.files.getOutputDir().toString(),
-                WaASCG_Strings.s_src, WaASCG_Strings.s_main,
-                WaASCG_Strings.s_java, WaASCG_Strings.s_uk, WaASCG_Strings.s_ac,
-                WaASCG_Strings.s_leeds, WaASCG_Strings.s_ccg,
-                WaASCG_Strings.s_data, WaASCG_Strings.s_waas,
-                WaASCG_Strings.s_data, type);
-        Files.createDirectories(outdir);
-        String packageName = "uk.ac.leeds.ccg.data.waas.data." + type;
-        String extendedClassName;
-        String prepend = WaASCG_Strings.s_WaAS + WaASCG_Strings.symbol_underscore;
-        type = type.toUpperCase().substring(0, 1);
+    public void printLazyRootMembers(PrintWriter pw) {
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * The line of the input file, or null if"
+                + " all fields are decoded.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "protected String line;");
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * The index in line of the start of each"
+                + " value, then the length of");
+        pw.println(getIndent(1) + " * line plus 1, or null if all fields are"
+                + " decoded.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "protected int[] starts;");
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * A bit for each field slot that is set"
+                + " once the field is decoded.");
+        pw.println(getIndent(1) + " * Decoding is not synchronized, so a"
+                + " record should not be shared");
+        pw.println(getIndent(1) + " * between threads until all the fields"
+                + " used are decoded.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "protected long[] decoded;");
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * The number of field slots that are not"
+                + " decoded.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "protected int undecoded;");
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param slot The slot number of a"
+                + " field.");
+        pw.println(getIndent(1) + " * @return The index of the column of the"
+                + " field in line.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "protected abstract int getColumn(int slot);");
+        pw.println();
+        pw.println(getIndent(1) + "protected final boolean isDecoded(int slot)"
+                + " {");
+        pw.println(getIndent(2) + "return (decoded[slot >>> 6] & (1L << slot))"
+                + " != 0;");
+        pw.println(getIndent(1) + "}");
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * Marks a field as decoded. Once all the"
+                + " fields are decoded line and");
+        pw.println(getIndent(1) + " * starts are no longer needed, so they"
+                + " are released.");
+        pw.println(getIndent(1) + " *");
+        pw.println(getIndent(1) + " * @param slot The slot number of a field"
+                + " that is not decoded.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "protected final void setDecoded(int slot) {");
+        pw.println(getIndent(2) + "decoded[slot >>> 6] |= 1L << slot;");
+        pw.println(getIndent(2) + "if (--undecoded == 0) {");
+        pw.println(getIndent(3) + "line = null;");
+        pw.println(getIndent(3) + "starts = null;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(1) + "}");
+    }
 
-        for (int w = 0; w <= nwaves + 3; w++) {
-            if (w < nwaves) {
-                // Classes
-                int wave = w + 1;
-                HashMap<String, Byte> v0m = v0ms[w];
-                String  className = prepend + "W" + wave + type + "Record";
-                Path fout = Paths.get(outdir.toString(), className + ".java");
-                try (PrintWriter pw = Generic_IO.getPrintWriter(fout, false)) {
-                    writeHeaderPackageAndImports(pw, packageName, getImports0());
-                    boolean isAbstract = false;
-                    switch (w) {
-                        case 0:
-                            extendedClassName = prepend + "W1W2" + type + "Record";
-                            break;
-                        case 1:
-                            extendedClassName = prepend + "W1W2" + type + "Record";
-                            break;
-                        case 2:
-                            extendedClassName = prepend + "W3W4W5" + type + "Record";
-                            break;
-                        case 3:
-                            extendedClassName = prepend + "W4W5" + type + "Record";
-                            break;
-                        case 4:
-                            extendedClassName = prepend + "W4W5" + type + "Record";
-                            break;
-                        default:
-                            extendedClassName = "";
-                            break;
-                    }
-                    printClassDeclarationSerialVersionUID(pw, packageName,
-                            className, isAbstract, "", extendedClassName);
-                    // Print Field Declarations Inits And Getters
-                    printFieldDeclarationsInitsAndGetters(pw, fields[w], fieldTypes,
-                            v0m);
-                    // Constructor
-                    printConstructor(pw, className, headers, w);
-                }
+    /**
+     * Prints getters that decode each field from the line on first use.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param fields The fields declared in the class.
+     * @param fieldTypes The field types.
+     * @param v0 The codes for false of the boolean fields.
+     * @param parser The name of the generated parser class.
+     * @param base The slot number of the first field.
+     * @param bits The layout of the packed boolean fields or null.
+     * @param dg The dictionaries or null.
+     * @param ds The storage of the numeric fields or null.
+     */
+    public void printLazyGetters(PrintWriter pw, TreeSet<String> fields,
+            HashMap<String, Integer> fieldTypes, HashMap<String, Byte> v0,
+            String parser, int base, WaASCG_BooleanBits bits,
+            WaASCG_DictionaryGenerator dg, WaASCG_NumberStorage ds) {
+        int slot = base;
+        Iterator<String> ite = fields.iterator();
+        while (ite.hasNext()) {
+            String field = ite.next();
+            int fieldType = fieldTypes.get(field);
+            boolean isPacked = bits != null && fieldType == 5;
+            boolean isCoded = dg != null && dg.contains(field);
+            boolean isNarrowed = ds != null && ds.contains(field);
+            String parse;
+            if (isCoded) {
+                parse = dg.getCodeExpression(field, "line", "starts[c]",
+                        "starts[c + 1] - 1");
             } else {
-                // Abstract classes
-                boolean isAbstract = true;
-                if (w == nwaves) {
-                    String className = prepend + "W1W2W3W4W5" + type + "Record";
-                    Path fout = Paths.get(outdir.toString(), className + ".java");
-                    try (PrintWriter pw = Generic_IO.getPrintWriter(fout, false)) {
-                        writeHeaderPackageAndImports(pw, packageName, getImports1());
-                        //String implementations = "Serializable";
-                        String implementations = "";
-                        printClassDeclarationSerialVersionUID(pw, packageName,
-                                className, isAbstract, implementations, "Data_Record");
-                        pw.println();
-                        pw.println(getIndent(1) + "protected String[] s;");
-                        printConstructor(pw, className);
-                        // Print Field Declarations Inits And Getters
-                        printFieldDeclarationsInitsAndGetters(pw, fields[w], fieldTypes, v0m0);
-                        pw.println("}");
-                    }
-                } else if (w == (nwaves + 1)) {
-                    String className = prepend + "W1W2" + type + "Record";
-                    Path fout = Paths.get(outdir.toString(), className + ".java");
-                    try (PrintWriter pw = Generic_IO.getPrintWriter(fout, false)) {
-                        writeHeaderPackageAndImports(pw, packageName, getImports0());
-                        extendedClassName = prepend + "W1W2W3W4W5" + type + "Record";
-                        printClassDeclarationSerialVersionUID(pw, packageName,
-                                className, isAbstract, "", extendedClassName);
-                        printConstructor(pw, className);
-                        // Print Field Declarations Inits And Getters
-                        printFieldDeclarationsInitsAndGetters(pw, fields[w], fieldTypes, v0m0);
-                        pw.println("}");
-                    }
-                } else if (w == (nwaves + 2)) {
-                    String className = prepend + "W3W4W5" + type + "Record";
-                    Path fout = Paths.get(outdir.toString(), className + ".java");
-                    try (PrintWriter pw = Generic_IO.getPrintWriter(fout, false)) {
-                        writeHeaderPackageAndImports(pw, packageName, getImports0());
-                        extendedClassName = prepend + "W1W2W3W4W5" + type + "Record";
-                        printClassDeclarationSerialVersionUID(pw, packageName,
-                                className, isAbstract, "", extendedClassName);
-                        printConstructor(pw, className);
-                        // Print Field Declarations Inits And Getters
-                        printFieldDeclarationsInitsAndGetters(pw, fields[w], fieldTypes, v0m0);
-                        pw.println("}");
-                    }
-                } else if (w == (nwaves + 3)) {
-                    String className = prepend + "W4W5" + type + "Record";
-                    Path fout = Paths.get(outdir.toString(), className + ".java");
-                    try (PrintWriter pw = Generic_IO.getPrintWriter(fout, false)) {
-                        writeHeaderPackageAndImports(pw, packageName, getImports0());
-                        extendedClassName = prepend + "W3W4W5" + type + "Record";
-                        printClassDeclarationSerialVersionUID(pw, packageName,
-                                className, isAbstract, "", extendedClassName);
-                        printConstructor(pw, className);
-                        // Print Field Declarations Inits And Getters
-                        printFieldDeclarationsInitsAndGetters(pw, fields[w], fieldTypes, v0m0);
-                        pw.println("}");
-                    }
+                parse = WaASCG_ParserGenerator.getParseExpression(fieldType,
+                        v0.get(field), parser, "line", "starts[c]",
+                        "starts[c + 1] - 1");
+            }
+            pw.println(getIndent(1) + "public "
+                    + WaASCG_ColumnsGenerator.getJavaType(fieldType) + " get"
+                    + field + "() {");
+            pw.println(getIndent(2) + "if (!isDecoded(" + slot + ")) {");
+            pw.println(getIndent(3) + "int c = getColumn(" + slot + ");");
+            if (isPacked) {
+                pw.println(getIndent(3) + "if (" + parse + ") {");
+                pw.println(getIndent(4) + bits.getSet(field));
+                pw.println(getIndent(3) + "}");
+            } else if (isNarrowed) {
+                for (String statement : ds.getStoreStatements(field, field,
+                        parse)) {
+                    pw.println(getIndent(3) + statement);
                 }
+            } else {
+                pw.println(getIndent(3) + field + " = " + parse + ";");
+            }
+            pw.println(getIndent(3) + "setDecoded(" + slot + ");");
+            pw.println(getIndent(2) + "}");
+            if (isPacked) {
+                pw.println(getIndent(2) + "return " + bits.getValue(field)
+                        + ";");
+            } else if (isCoded) {
+                pw.println(getIndent(2) + "return "
+                        + dg.getValueExpression(field, field) + ";");
+            } else if (isNarrowed) {
+                pw.println(getIndent(2) + "return "
+                        + ds.getValueExpression(field, field) + ";");
+            } else {
+                pw.println(getIndent(2) + "return " + field + ";");
             }
+            pw.println(getIndent(1) + "}");
+            pw.println();
+            slot++;
         }
-        return outdir;
+        pw.flush();
     }
 
-    public void printGetID(PrintWriter pw) {
+    /**
+     * Prints the constructor of a lazy record class of a wave, the mapping of
+     * its field slots to columns and the end of the class.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param className The class name.
+     * @param headers The fields of the columns of each input file in order.
+     * @param w The wave index.
+     * @param groups The groups of waves (as returned from
+     * {@link #getGroups(java.lang.String[][])}).
+     * @param parser The name of the generated parser class.
+     */
+    public void printLazyConstructor(PrintWriter pw, String className,
+            String[][] headers, int w, WaASCG_WaveGroups groups,
+            String parser) {
+        HashMap<String, Integer> columns = new HashMap<>();
+        for (int j = 0; j < headers[w].length; j++) {
+            columns.put(headers[w][j], j);
+        }
+        int nSlots = getNSlots(w, groups);
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * The index of the column of each field"
+                + " slot.");
+        pw.println(getIndent(1) + " */");
+        pw.print(getIndent(1) + "private static final int[] COLUMNS = {");
+        int slot = 0;
+        for (int i : groups.getLineage(w)) {
+            Iterator<String> ite = groups.fields[i].iterator();
+            while (ite.hasNext()) {
+                if (slot > 0) {
+                    pw.print(",");
+                }
+                pw.print(slot % 16 == 0 ? "\n" + getIndent(3) : " ");
+                pw.print(columns.get(ite.next()));
+                slot++;
+            }
+        }
+        pw.println("};");
+        pw.println();
+        pw.println(getIndent(1) + "public " + className + "(WaAS_RecordID i, String line) throws Exception {");
+        pw.println(getIndent(2) + "super(i);");
+        pw.println(getIndent(2) + "this.line = line;");
+        pw.println(getIndent(2) + "starts = " + parser + ".getStarts(line, "
+                + headers[w].length + ");");
+        pw.println(getIndent(2) + "decoded = new long["
+                + getDecodedLength(nSlots) + "];");
+        pw.println(getIndent(2) + "undecoded = " + nSlots + ";");
+        pw.println(getIndent(1) + "}");
         pw.println();
         pw.println(getIndent(1) + "@Override");
-        pw.println(getIndent(1) + "public WaAS_RecordID getId() {");
-        pw.println(getIndent(2) + "return (WaAS_RecordID) id;");
+        pw.println(getIndent(1) + "protected int getColumn(int slot) {");
+        pw.println(getIndent(2) + "return COLUMNS[slot];");
         pw.println(getIndent(1) + "}");
+        printGetID(pw);
+        pw.println("}");
     }
 
-    
-
     /**
+     * Prints methods for writing the values of the fields declared in a
+     * record class to a DataOutput and reading them back from a DataInput.
+     * Each method first calls that of the class extended unless this is the
+     * root of the record class hierarchy. Numbers and booleans are written in
+     * the fixed width form of DataOutput. A String is written with writeUTF
+     * and a null String is written as an empty String (a String value parsed
+     * from a line is never empty).
      *
-     * @param pw
-     * @param className
+     * @param pw The PrintWriter to write to.
+     * @param fields The fields declared in the class.
+     * @param fieldTypes The field types.
+     * @param isRoot If true the class is the root of the record class
+     * hierarchy.
+     * @param bits The layout of the packed boolean fields or null. The long
+     * fields holding packed boolean fields are written after the other
+     * fields.
+     * @param dg The dictionaries or null. The codes of fields with a
+     * dictionary are written rather than the values.
+     * @param ds The storage of the numeric fields or null. Double fields not
+     * stored as doubles are written as stored.
      */
-    public void printConstructor(PrintWriter pw, String className) {
+    public void printCodec(PrintWriter pw, TreeSet<String> fields,
+            HashMap<String, Integer> fieldTypes, boolean isRoot,
+            WaASCG_BooleanBits bits, WaASCG_DictionaryGenerator dg,
+            WaASCG_NumberStorage ds) {
+        ArrayList<String> writes = new ArrayList<>();
+        ArrayList<String> reads = new ArrayList<>();
+        Iterator<String> ite = fields.iterator();
+        while (ite.hasNext()) {
+            String field = ite.next();
+            // Lazy records are written via the getters to decode the fields.
+            String value = lazyRecords ? "get" + field + "()" : field;
+            if (bits != null && fieldTypes.get(field) == 5) {
+                if (lazyRecords) {
+                    writes.add(value + ";");
+                }
+                continue;
+            }
+            if (dg != null && dg.contains(field)) {
+                if (lazyRecords) {
+                    writes.add(value + ";");
+                }
+                writes.add("out.write" + dg.getCodeIO(field) + "(" + field
+                        + ");");
+                reads.add(field + " = in.read" + dg.getCodeIO(field) + "();");
+                continue;
+            }
+            if (ds != null && ds.contains(field)) {
+                if (lazyRecords) {
+                    writes.add(value + ";");
+                }
+                writes.add("out.write" + ds.getCodeIO(field) + "(" + field
+                        + ");");
+                reads.add(field + " = in.read" + ds.getCodeIO(field) + "();");
+                continue;
+            }
+            switch (fieldTypes.get(field)) {
+                case 0:
+                    writes.add("out.writeUTF(" + value + " == null ? \"\" : "
+                            + value + ");");
+                    reads.add(field + " = in.readUTF(); if (" + field
+                            + ".isEmpty()) { " + field + " = null; }");
+                    break;
+                case 1:
+                    writes.add("out.writeDouble(" + value + ");");
+                    reads.add(field + " = in.readDouble();");
+                    break;
+                case 2:
+                    writes.add("out.writeInt(" + value + ");");
+                    reads.add(field + " = in.readInt();");
+                    break;
+                case 3:
+                    writes.add("out.writeShort(" + value + ");");
+                    reads.add(field + " = in.readShort();");
+                    break;
+                case 4:
+                    writes.add("out.writeByte(" + value + ");");
+                    reads.add(field + " = in.readByte();");
+                    break;
+                default:
+                    writes.add("out.writeBoolean(" + value + ");");
+                    reads.add(field + " = in.readBoolean();");
+                    break;
+            }
+        }
+        if (bits != null) {
+            for (int k = 0; k < bits.getNWords(); k++) {
+                writes.add("out.writeLong(" + bits.getWord(k) + ");");
+                reads.add(bits.getWord(k) + " = in.readLong();");
+            }
+        }
+        printCodecMethod(pw, "writeValues", "DataOutput out", "out",
+                writes.toArray(new String[writes.size()]), isRoot);
+        printCodecMethod(pw, "readValues", "DataInput in", "in",
+                reads.toArray(new String[reads.size()]), isRoot);
+    }
+
+    /**
+     * @param pw The PrintWriter to write to.
+     * @param name The method name.
+     * @param param The method parameter.
+     * @param arg The method argument.
+     * @param statements The statements.
+     * @param isRoot If true the class is the root of the record class
+     * hierarchy.
+     */
+    protected void printCodecMethod(PrintWriter pw, String name, String param,
+            String arg, String[] statements, boolean isRoot) {
         pw.println();
-        pw.println(getIndent(1) + className + "(WaAS_RecordID i){");
-        pw.println(getIndent(2) + "super(i);");
+        if (!isRoot) {
+            pw.println(getIndent(1) + "@Override");
+        }
+        pw.println(getIndent(1) + "public void " + name + "(" + param
+                + ") throws IOException {");
+        if (!isRoot) {
+            pw.println(getIndent(2) + "super." + name + "(" + arg + ");");
+        }
+        printChunkCalls(pw, name, arg, statements.length);
         pw.println(getIndent(1) + "}");
+        printChunkMethods(pw, name, param, "IOException", statements);
     }
 
     /**
+     * Prints a constructor that reads the values of a record written by
+     * the writeValues method printed by
+     * {@link #printCodec(java.io.PrintWriter, java.util.TreeSet, java.util.HashMap, boolean, uk.ac.leeds.ccg.data.waascg.process.WaASCG_BooleanBits, uk.ac.leeds.ccg.data.waascg.process.WaASCG_DictionaryGenerator, uk.ac.leeds.ccg.data.waascg.process.WaASCG_NumberStorage)}.
      *
-     * @param pw
-     * @param className
-     * @param headers
-     * @param w
+     * @param pw The PrintWriter to write to.
+     * @param className The class name.
+     * @param nSlots The number of field slots of the class (for lazy
+     * records, all of which are marked as decoded).
      */
-    public void printConstructor(PrintWriter pw, String className, String[][] headers, int w) {
+    public void printBinaryConstructor(PrintWriter pw, String className,
+            int nSlots) {
         pw.println();
-        pw.println(getIndent(1) + "public " + className + "(WaAS_RecordID i, String line) throws Exception {");
+        pw.println(getIndent(1) + "public " + className
+                + "(WaAS_RecordID i, DataInput in) throws IOException {");
         pw.println(getIndent(2) + "super(i);");
-        pw.println(getIndent(2) + "s = line.split(\"\\t\");");
-        for (int j = 0; j < headers[w].length; j++) {
-            pw.println(getIndent(2) + "init" + headers[w][j] + "(s[" + j + "]);");
+        if (lazyRecords) {
+            pw.println(getIndent(2) + "decoded = new long["
+                    + getDecodedLength(nSlots) + "];");
+            pw.println(getIndent(2) + "java.util.Arrays.fill(decoded, -1L);");
         }
+        pw.println(getIndent(2) + "readValues(in);");
         pw.println(getIndent(1) + "}");
-        printGetID(pw);
-        pw.println("}");
+    }
+
+    /**
+     * Prints calls to methods printed by
+     * {@link #printChunkMethods(java.io.PrintWriter, java.lang.String, java.lang.String, java.lang.String, java.lang.String[])}.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param name The name prefix of the methods.
+     * @param arg The argument to the methods.
+     * @param n The number of statements.
+     */
+    public void printChunkCalls(PrintWriter pw, String name, String arg,
+            int n) {
+        for (int m = 0; m * WaASCG_ParserGenerator.VALUES_PER_METHOD < n; m++) {
+            pw.println(getIndent(2) + name + m + "(" + arg + ");");
+        }
+    }
+
+    /**
+     * Prints private methods that each execute a run of statements, so that
+     * no generated method is too large to be compiled by the JIT.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param name The name prefix of the methods.
+     * @param param The parameter of the methods.
+     * @param exceptions The throws clause of the methods (may be empty).
+     * @param statements The statements.
+     */
+    public void printChunkMethods(PrintWriter pw, String name, String param,
+            String exceptions, String[] statements) {
+        int k = WaASCG_ParserGenerator.VALUES_PER_METHOD;
+        for (int m = 0; m * k < statements.length; m++) {
+            pw.println();
+            pw.print(getIndent(1) + "private void " + name + m + "(" + param
+                    + ")");
+            if (!exceptions.isEmpty()) {
+                pw.print(" throws " + exceptions);
+            }
+            pw.println(" {");
+            int end = Math.min(statements.length, (m + 1) * k);
+            for (int j = m * k; j < end; j++) {
+                pw.println(getIndent(2) + statements[j]);
+            }
+            pw.println(getIndent(1) + "}");
+        }
     }
 
     private ArrayList<String> imports0;
 
-    private ArrayList<String> getImports0() {
+    private synchronized ArrayList<String> getImports0() {
         if (imports0 == null) {
             imports0 = new ArrayList<>();
+            if (binaryCodecs) {
+                imports0.add("java.io.DataInput");
+                imports0.add("java.io.DataOutput");
+                imports0.add("java.io.IOException");
+            }
             imports0.add("uk.ac.leeds.ccg.data.waas.data.id.WaAS_RecordID");
         }
         return imports0;
@@ -581,7 +1890,7 @@ public class WaASCG_Main extends CG_Process {
 
     private ArrayList<String> imports1;
 
-    private ArrayList<String> getImports1() {
+    private synchronized ArrayList<String> getImports1() {
         if (imports1 == null) {
             imports1 = new ArrayList<>();
             imports1.addAll(getImports0());
@@ -657,10 +1966,28 @@ public class WaASCG_Main extends CG_Process {
     public void printFieldDeclarationsInitsAndGetters(PrintWriter pw,
             TreeSet<String> fields, HashMap<String, Integer> fieldTypes,
             HashMap<String, Byte> v0) {
+        printFieldDeclarationsInitsAndGetters(pw, fields, fieldTypes, v0, null);
+    }
+
+    /**
+     * @param pw
+     * @param fields
+     * @param fieldTypes
+     * @param v0
+     * @param parser The name of the generated parser class or null (see
+     * {@link #printFieldInits(java.io.PrintWriter, java.util.TreeSet, java.util.HashMap, java.util.HashMap, java.lang.String)}).
+     */
+    public void printFieldDeclarationsInitsAndGetters(PrintWriter pw,
+            TreeSet<String> fields, HashMap<String, Integer> fieldTypes,
+            HashMap<String, Byte> v0, String parser) {
         // Field declarations
         printFieldDeclarations(pw, fields, fieldTypes);
         // Field init
-        printFieldInits(pw, fields, fieldTypes, v0);
+        if (parser == null) {
+            printFieldInits(pw, fields, fieldTypes, v0);
+        } else {
+            printFieldInits(pw, fields, fieldTypes, v0, parser);
+        }
         // Field getters
         printFieldGetters(pw, fields, fieldTypes);
     }
@@ -672,29 +1999,45 @@ public class WaASCG_Main extends CG_Process {
      */
     public void printFieldDeclarations(PrintWriter pw, TreeSet<String> fields,
             HashMap<String, Integer> fieldTypes) {
+        printFieldDeclarations(pw, fields, fieldTypes, false);
+    }
+
+    /**
+     * @param pw The PrintWriter to write to.
+     * @param fields The fields.
+     * @param fieldTypes The field types.
+     * @param blanks If true the numeric fields are initialised to their
+     * values for a blank (see {@link #getBlank(int)}). The String and boolean
+     * fields are left to their defaults of null and false, which are their
+     * values for a blank.
+     */
+    public void printFieldDeclarations(PrintWriter pw, TreeSet<String> fields,
+            HashMap<String, Integer> fieldTypes, boolean blanks) {
         Iterator<String> ite = fields.iterator();
         while (ite.hasNext()) {
             String field = ite.next();
             int fieldType = fieldTypes.get(field);
+            String blank = blanks ? getBlank(fieldType) : null;
+            String init = blank == null ? ";" : " = " + blank + ";";
             pw.print(getIndent(1));
             switch (fieldType) {
                 case 0:
-                    pw.println("protected String " + field + ";");
+                    pw.println("protected String " + field + init);
                     break;
                 case 1:
-                    pw.println("protected double " + field + ";");
+                    pw.println("protected double " + field + init);
                     break;
                 case 2:
-                    pw.println("protected int " + field + ";");
+                    pw.println("protected int " + field + init);
                     break;
                 case 3:
-                    pw.println("protected short " + field + ";");
+                    pw.println("protected short " + field + init);
                     break;
                 case 4:
-                    pw.println("protected byte " + field + ";");
+                    pw.println("protected byte " + field + init);
                     break;
                 default:
-                    pw.println("protected boolean " + field + ";");
+                    pw.println("protected boolean " + field + init);
                     break;
             }
             pw.println();
@@ -702,6 +2045,26 @@ public class WaASCG_Main extends CG_Process {
         //pw.flush();
     }
 
+    /**
+     * @param fieldType The field type.
+     * @return An expression for the value of a blank of fieldType, or null
+     * if this is the default value of the Java type (null or false).
+     */
+    public static String getBlank(int fieldType) {
+        switch (fieldType) {
+            case 1:
+                return "Double.NaN";
+            case 2:
+                return "Integer.MIN_VALUE";
+            case 3:
+                return "Short.MIN_VALUE";
+            case 4:
+                return "Byte.MIN_VALUE";
+            default:
+                return null;
+        }
+    }
+
     /**
      *
      * @param pw
@@ -812,6 +2175,34 @@ public class WaASCG_Main extends CG_Process {
         //pw.flush();
     }
 
+    /**
+     * Prints init methods that parse the value of each field from a range of
+     * a line.
+     *
+     * @param pw
+     * @param fields
+     * @param fieldTypes
+     * @param v0
+     * @param parser The name of the generated parser class.
+     */
+    public void printFieldInits(PrintWriter pw, TreeSet<String> fields,
+            HashMap<String, Integer> fieldTypes, HashMap<String, Byte> v0,
+            String parser) {
+        Iterator<String> ite = fields.iterator();
+        while (ite.hasNext()) {
+            String field = ite.next();
+            int fieldType = fieldTypes.get(field);
+            pw.println(getIndent(1) + "protected final void init" + field
+                    + "(String line, int start, int end) {");
+            pw.println(getIndent(2) + field + " = "
+                    + WaASCG_ParserGenerator.getParseExpression(fieldType,
+                            v0.get(field), parser, "line", "start", "end")
+                    + ";");
+            pw.println(getIndent(1) + "}");
+            pw.println();
+        }
+    }
+
     /**
      * Thinking to returns a lists of IDs...
      *
@@ -854,120 +2245,108 @@ public class WaASCG_Main extends CG_Process {
         return r;
     }
 
+    /**
+     * @param w The wave index.
+     * @param groups The groups of waves (as returned from
+     * {@link #getGroups(java.lang.String[][])}).
+     * @param fieldTypes The field types.
+     * @param v0m The codes for false of the boolean fields (as returned from
+     * {@link #setCommonBooleanMaps(java.util.HashMap[], java.util.HashMap[], uk.ac.leeds.ccg.data.waascg.process.WaASCG_WaveGroups, java.util.HashMap)}).
+     * @param dg The dictionaries or null.
+     * @param ds The storage of the numeric fields or null.
+     * @return The schema number of the binary form of the records of wave w.
+     */
+    protected long getSchema(int w, WaASCG_WaveGroups groups,
+            HashMap<String, Integer> fieldTypes, HashMap<String, Byte> v0m,
+            WaASCG_DictionaryGenerator dg, WaASCG_NumberStorage ds) {
+        // The position of the line of each record is written first.
+        StringBuilder sb = new StringBuilder("position;");
+        for (int i : groups.getLineage(w)) {
+            StringBuilder packed = new StringBuilder();
+            Iterator<String> ite = groups.fields[i].iterator();
+            while (ite.hasNext()) {
+                String field = ite.next();
+                int fieldType = fieldTypes.get(field);
+                StringBuilder b = packBooleans && fieldType == 5 ? packed : sb;
+                b.append(field).append(':').append(fieldType);
+                if (fieldType == 5) {
+                    b.append(':').append(v0m.get(field));
+                }
+                if (dg != null && dg.contains(field)) {
+                    b.append(":{").append(String.join("\t",
+                            dg.values.get(field))).append('}');
+                }
+                if (ds != null && ds.contains(field)) {
+                    b.append(':').append(ds.getDescription(field));
+                }
+                b.append(';');
+            }
+            if (packBooleans) {
+                sb.append("bits{").append(packed).append("};");
+            }
+        }
+        return WaASCG_BinaryGenerator.getSchema(sb.toString());
+    }
+
+    /**
+     * Consolidates the codes of the boolean fields of each wave. The codes of
+     * a field in all the waves it is in are looked up in a
+     * {@link WaASCG_BooleanCodes} index, so this takes time linear in the
+     * number of fields of all the waves. If there are more than two different
+     * codes for a field then it is better stored as a byte than a boolean and
+     * its type in fieldTypes is changed. Otherwise the smaller code is for
+     * false in every record class that declares the field.
+     *
+     * @param v0ms The smaller codes of the boolean fields of each wave.
+     * @param v1ms The larger codes of the boolean fields of each wave.
+     * @param groups The groups of waves (as returned from
+     * {@link #getGroups(java.lang.String[][])}).
+     * @param fieldTypes The field types.
+     * @return The codes for false of the boolean fields.
+     */
     protected HashMap<String, Byte> setCommonBooleanMaps(
             HashMap<String, Byte>[] v0ms, HashMap<String, Byte>[] v1ms,
-            TreeSet<String>[] allFields, HashMap<String, Integer> fieldTypes) {
-        TreeSet<String> fields = allFields[5];
-        HashMap<String, Byte> v0m1 = new HashMap<>();
-        HashMap<String, Byte> v1m1 = new HashMap<>();
-        Iterator<String> ites0 = fields.iterator();
-        while (ites0.hasNext()) {
-            String field0 = ites0.next();
-            if (fieldTypes.get(field0) == 5) {
-                for (int w = 0; w < v0ms.length; w++) {
-                    HashMap<String, Byte> v0m = v0ms[w];
-                    HashMap<String, Byte> v1m = v1ms[w];
-                    Iterator<String> ites1 = v0m.keySet().iterator();
-                    while (ites1.hasNext()) {
-                        String field1 = ites1.next();
-                        if (field0.equalsIgnoreCase(field1)) {
-                            byte v0 = v0m.get(field1);
-                            Byte v1;
-                            if (v1m == null) {
-                                v1 = Byte.MIN_VALUE;
-                            } else {
-                                //System.out.println("field1 " + field1);
-                                //System.out.println("field1 " + field1);
-                                v1 = v1m.get(field1);
-                                if (v1 == null) {
-                                    v1 = Byte.MIN_VALUE;
-                                }
-                            }
-                            Byte v01 = v0m1.get(field1);
-                            Byte v11 = v1m1.get(field1);
-                            if (v01 == null) {
-                                v0m1.put(field1, v0);
-                            } else {
-                                if (v01 != v0) {
-                                    // Field better stored as a byte than boolean.
-                                    fieldTypes.put(field1, 4);
-                                }
-                                if (v11 == null) {
-                                    v1m1.put(field1, v1);
-                                } else {
-                                    if (v1 != v11.byteValue()) {
-                                        // Field better stored as a byte than boolean.
-                                        fieldTypes.put(field1, 4);
-                                    }
-                                }
-                            }
-                        }
-                    }
+            WaASCG_WaveGroups groups, HashMap<String, Integer> fieldTypes) {
+        WaASCG_PhaseEvent e = new WaASCG_PhaseEvent(
+                WaASCG_PhaseEvent.BOOLEANS, null, 0, null);
+        WaASCG_BooleanCodes codes = new WaASCG_BooleanCodes(v0ms, v1ms);
+        HashMap<String, Byte> r = new HashMap<>();
+        Iterator<String> ite = groups.fieldMasks.keySet().iterator();
+        while (ite.hasNext()) {
+            String field = ite.next();
+            if (fieldTypes.get(field) == 5) {
+                e.columns++;
+                short v0 = codes.getV0(field, groups.fieldMasks.get(field));
+                if (v0 == WaASCG_BooleanCodes.MANY) {
+                    // Field better stored as a byte than boolean.
+                    fieldTypes.put(field, 4);
+                    e.promotions++;
+                } else if (v0 != WaASCG_BooleanCodes.NONE) {
+                    r.put(field, (byte) v0);
                 }
             }
         }
-        return v0m1;
-    }
-
-    /**
-     * Finds and returns r where.
-     * <ul>
-     * <li>r[0] are the fields in common with all waves.</li>
-     * <li>r[1] are the fields in common with all waves.</li>
-     * <li>r[2] are the fields in common with all waves.</li>
-     * <li>r[3] are the fields in common with all waves.</li>
-     * <li>r[4] are the fields in common with all waves.</li>
-     * <li>r[5] fields common to waves 1, 2, 3, 4 and 5 (12345)</li>
-     * <li>r[6] fields other than 12345 that are common to waves 1 and 2
-     * (12).</li>
-     * <li>r[7] fields other than 12345 that are in common to waves 3, 4 and 5
-     * (345)</li>
-     * <li>r[8] fields other than 345 that are in common to waves 4 and 5
-     * (45)</li>
-     * </ul>
+        report.add(e);
+        return r;
+    }
+
+    /**
+     * Works out the groups of waves of the record class hierarchy and the
+     * fields declared in the record class of each group.
      *
-     * @param headers
-     * @return
+     * @param headers The fields of the input file of each wave.
+     * @return The groups of waves.
      */
-    public TreeSet<String>[] getFields(String[][] headers) {
-        TreeSet<String>[] r;
-        int size = headers.length;
-        r = new TreeSet[(size * 2) - 1];
-        for (int i = 0; i < 5; i++) {
-            r[i] = getFields(headers[i]);
-        }
-        // Get fields common to waves 1, 2, 3, 4 and 5 (12345)
-        r[5] = getFieldsInCommon(r[0], r[1], r[2], r[3], r[4]);
-        System.out.println("Number of fields common to waves 1, 2, 3, 4 and 5"
-                + " (12345) " + r[5].size());
-        // Get fields other than 12345 that are common to waves 1 and 2 (12)
-        r[6] = getFieldsInCommon(r[0], r[1], null, null, null);
-        r[6].removeAll(r[5]);
-        System.out.println("Number of fields other than 12345 that are common"
-                + " to waves 1 and 2 (12) " + r[6].size());
-        // Get fields other than 12345 that are in common to waves 3, 4 and 5 (345)
-        r[7] = getFieldsInCommon(r[2], r[3], r[4], null, null);
-        r[7].removeAll(r[5]);
-        System.out.println("Number of fields other than 12345 that are in "
-                + "common to waves 3, 4 and 5 (345) " + r[7].size());
-        // Get fields other than 345 that are in common to waves 4 and 5 (45)
-        r[8] = getFieldsInCommon(r[3], r[4], null, null, null);
-        r[8].removeAll(r[5]);
-        r[8].removeAll(r[7]);
-        System.out.println("Number of fields other than 345 that are in common "
-                + "to waves 4 and 5 (45) " + r[8].size());
-        r[0].removeAll(r[5]);
-        r[0].removeAll(r[6]);
-        r[1].removeAll(r[5]);
-        r[1].removeAll(r[6]);
-        r[2].removeAll(r[5]);
-        r[2].removeAll(r[7]);
-        r[3].removeAll(r[5]);
-        r[3].removeAll(r[7]);
-        r[3].removeAll(r[8]);
-        r[4].removeAll(r[5]);
-        r[4].removeAll(r[7]);
-        r[4].removeAll(r[8]);
+    public WaASCG_WaveGroups getGroups(String[][] headers) {
+        WaASCG_PhaseEvent e = new WaASCG_PhaseEvent(WaASCG_PhaseEvent.GROUP,
+                null, 0, null);
+        WaASCG_WaveGroups r = new WaASCG_WaveGroups(headers);
+        e.columns = r.fieldMasks.size();
+        report.add(e);
+        for (int i = r.nwaves; i < r.size(); i++) {
+            System.out.println("Number of fields of the group of waves "
+                    + r.getName(i) + " " + r.fields[i].size());
+        }
         return r;
     }
 
@@ -1013,34 +2392,4 @@ public class WaASCG_Main extends CG_Process {
         r.addAll(Arrays.asList(split));
         return r;
     }
-
-    /**
-     * Returns all the values common to s1, s2, s3, s4 and s5 and removes all
-     * these common fields from s1, s2, s3, s4 and s5.
-     *
-     * @param s1
-     * @param s2
-     * @param s3 May be null.
-     * @param s4 May be null.
-     * @param s5 May be null.
-     * @return
-     * @Todo generalise
-     */
-    public TreeSet<String> getFieldsInCommon(TreeSet<String> s1,
-            TreeSet<String> s2, TreeSet<String> s3, TreeSet<String> s4,
-            TreeSet<String> s5) {
-        TreeSet<String> r = new TreeSet<>();
-        r.addAll(s1);
-        r.retainAll(s2);
-        if (s3 != null) {
-            r.retainAll(s3);
-        }
-        if (s4 != null) {
-            r.retainAll(s4);
-        }
-        if (s5 != null) {
-            r.retainAll(s5);
-        }
-        return r;
-    }
 }
@@ -0,0 +1,528 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import uk.ac.leeds.ccg.cg.process.CG_Process;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Strings;
+
+/**
+ * The statistics of the numeric fields and the storage of those that can be
+ * stored in fewer bytes than their type without loss.
+ *
+ * A double field of plain decimals (see
+ * {@link WaASCG_TokenClassifier#isPlain}) with at most {@link #MAX_SCALE}
+ * digits after the decimal point is stored as a short or an int scaled by a
+ * power of ten if its range allows, and a double field of values that are all
+ * exactly floats is stored as a float. A scaled value is the value times
+ * 10^scale rounded to the nearest integer, which is exact for a plain decimal
+ * whose scaled value fits in an int. The value is got back by dividing by
+ * 10^scale, which is correctly rounded, so it is the double that
+ * Double.parseDouble returns for the decimal.
+ *
+ * A short or int field with a range of no more than 254 is stored as a byte,
+ * and an int field with a range of no more than 65534 is stored as a short,
+ * offset so that the smallest value is stored as one more than the smallest
+ * value of the narrower type.
+ *
+ * The smallest value of the narrower type is reserved for a blank value. The
+ * statistics (the range, the number of values and the number of blanks) are
+ * written to a generated class which also has methods that check that a value
+ * is within the range and can be stored without loss. These are used by the
+ * generated record classes when storing values in a narrower type, so data
+ * that no longer fits the storage fails to load rather than being changed.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_NumberStorage extends CG_Process {
+
+    /**
+     * The largest number of digits after the decimal point of a scaled field.
+     */
+    public static final int MAX_SCALE = 9;
+
+    /**
+     * For the shared header, package and import writing methods.
+     */
+    protected final WaASCG_Main p;
+
+    /**
+     * The name of the statistics class.
+     */
+    public final String className;
+
+    /**
+     * Keys are the numeric fields, values are their field types.
+     */
+    public final TreeMap<String, Integer> fieldTypes;
+
+    /**
+     * Keys are the numeric fields, values are the smallest and the largest
+     * values.
+     */
+    public final HashMap<String, double[]> ranges;
+
+    /**
+     * Keys are the numeric fields, values are the number of values and the
+     * number of blanks.
+     */
+    public final HashMap<String, long[]> counts;
+
+    /**
+     * Keys are the fields stored in a narrower type, values are the Java
+     * types they are stored as (byte, short, int or float).
+     */
+    public final HashMap<String, String> types;
+
+    /**
+     * Keys are the scaled fields, values are the number of digits after the
+     * decimal point.
+     */
+    public final HashMap<String, Integer> scales;
+
+    /**
+     * Keys are the offset fields, values are the offsets (the stored value is
+     * the value minus the offset).
+     */
+    public final HashMap<String, Long> offsets;
+
+    /**
+     * @param p For the shared header, package and import writing methods.
+     * @param className The name of the statistics class.
+     */
+    public WaASCG_NumberStorage(WaASCG_Main p, String className) {
+        super();
+        this.p = p;
+        this.className = className;
+        fieldTypes = new TreeMap<>();
+        ranges = new HashMap<>();
+        counts = new HashMap<>();
+        types = new HashMap<>();
+        scales = new HashMap<>();
+        offsets = new HashMap<>();
+    }
+
+    /**
+     * @param type The type letter (H or P).
+     * @return The name of the statistics class for type.
+     */
+    public static String getClassName(String type) {
+        return WaASCG_Strings.s_WaAS + WaASCG_Strings.symbol_underscore + type
+                + "Stats";
+    }
+
+    /**
+     * Adds the statistics of a numeric field and works out how to store it.
+     *
+     * @param field The field.
+     * @param fieldType The field type.
+     * @param min The smallest value.
+     * @param max The largest value.
+     * @param count The number of values.
+     * @param nulls The number of blanks.
+     * @param scale The largest number of digits after the decimal point.
+     * @param plain true if all the values are plain decimals.
+     * @param floats true if all the values are exactly floats.
+     */
+    public void add(String field, int fieldType, double min, double max,
+            long count, long nulls, int scale, boolean plain, boolean floats) {
+        fieldTypes.put(field, fieldType);
+        ranges.put(field, new double[]{min, max});
+        counts.put(field, new long[]{count, nulls});
+        if (count == 0) {
+            return;
+        }
+        if (fieldType == WaASCG_ColumnTypes.DOUBLE) {
+            if (plain && scale <= MAX_SCALE) {
+                double pow = Math.pow(10, scale);
+                double lo = Math.rint(min * pow);
+                double hi = Math.rint(max * pow);
+                if (lo > Short.MIN_VALUE && hi <= Short.MAX_VALUE) {
+                    types.put(field, "short");
+                    scales.put(field, scale);
+                    return;
+                }
+                if (!floats && lo > Integer.MIN_VALUE
+                        && hi <= Integer.MAX_VALUE) {
+                    types.put(field, "int");
+                    scales.put(field, scale);
+                    return;
+                }
+            }
+            if (floats) {
+                types.put(field, "float");
+            }
+        } else if (fieldType == WaASCG_ColumnTypes.INT
+                || fieldType == WaASCG_ColumnTypes.SHORT) {
+            long lo = (long) min;
+            long span = (long) max - lo;
+            if (span <= 254 && lo - (Byte.MIN_VALUE + 1) <= Integer.MAX_VALUE) {
+                types.put(field, "byte");
+                offsets.put(field, lo - (Byte.MIN_VALUE + 1));
+            } else if (fieldType == WaASCG_ColumnTypes.INT && span <= 65534
+                    && lo - (Short.MIN_VALUE + 1) <= Integer.MAX_VALUE) {
+                types.put(field, "short");
+                offsets.put(field, lo - (Short.MIN_VALUE + 1));
+            }
+        }
+    }
+
+    /**
+     * @param field A field.
+     * @return true if field is stored in a narrower type.
+     */
+    public boolean contains(String field) {
+        return types.containsKey(field);
+    }
+
+    /**
+     * @param fields Fields.
+     * @return The fields that are stored in a narrower type.
+     */
+    public TreeSet<String> getNarrowed(TreeSet<String> fields) {
+        TreeSet<String> r = new TreeSet<>(fields);
+        r.retainAll(types.keySet());
+        return r;
+    }
+
+    /**
+     * @param fields Fields.
+     * @return The fields other than those stored in a narrower type.
+     */
+    public TreeSet<String> getUnnarrowed(TreeSet<String> fields) {
+        TreeSet<String> r = new TreeSet<>(fields);
+        r.removeAll(types.keySet());
+        return r;
+    }
+
+    /**
+     * @param field A field that is stored in a narrower type.
+     * @return The Java type field is stored as.
+     */
+    public String getJavaType(String field) {
+        return types.get(field);
+    }
+
+    /**
+     * @param field A field that is stored in a narrower type.
+     * @return An expression for the stored value of a blank: NaN for a
+     * float, otherwise the MIN_VALUE of the stored type.
+     */
+    public String getBlank(String field) {
+        if (!offsets.containsKey(field) && !scales.containsKey(field)) {
+            return "Float.NaN";
+        }
+        return getWrapper(types.get(field)) + ".MIN_VALUE";
+    }
+
+    /**
+     * @param field A field that is stored in a narrower type.
+     * @return The name of the DataOutput and DataInput methods for field
+     * without the write or read prefix.
+     */
+    public String getCodeIO(String field) {
+        String t = types.get(field);
+        return Character.toUpperCase(t.charAt(0)) + t.substring(1);
+    }
+
+    /**
+     * @param field A field that is stored in a narrower type.
+     * @return A description of the storage of field for a schema.
+     */
+    public String getDescription(String field) {
+        String r = types.get(field);
+        if (scales.containsKey(field)) {
+            r += "/" + scales.get(field);
+        }
+        if (offsets.containsKey(field)) {
+            long offset = offsets.get(field);
+            r += (offset < 0 ? "" : "+") + offset;
+        }
+        return r;
+    }
+
+    /**
+     * @param field A field that is stored in a narrower type.
+     * @param target The variable to store the value in.
+     * @param value An expression for the value of the field type of field
+     * (Double.NaN or the smallest value of the type for a blank).
+     * @return The statements that check and store the value in target.
+     */
+    public String[] getStoreStatements(String field, String target,
+            String value) {
+        String t = types.get(field);
+        String f = "\"" + field + "\"";
+        if (offsets.containsKey(field)) {
+            String blank = getWrapper(fieldTypes.get(field)) + ".MIN_VALUE";
+            return new String[]{"long v = " + value + ";",
+                target + " = v == " + blank + " ? " + getWrapper(t)
+                + ".MIN_VALUE : (" + t + ") (" + className + ".checkRange("
+                + f + ", v, " + className + "." + field + "_MIN, "
+                + className + "." + field + "_MAX)" + getOffset(field, "-")
+                + ");"};
+        }
+        if (!scales.containsKey(field)) {
+            return new String[]{target + " = (float) " + className
+                + ".checkFloat(" + f + ", " + value + ");"};
+        }
+        return new String[]{"double d = " + value + ";",
+            target + " = Double.isNaN(d) ? " + getWrapper(t) + ".MIN_VALUE : ("
+            + t + ") " + className + ".checkScaled(" + f + ", d, "
+            + className + "." + field + "_MIN, " + className + "." + field
+            + "_MAX, " + getPow10(field) + ");"};
+    }
+
+    /**
+     * @param field A field that is stored in a narrower type.
+     * @param stored An expression for the stored value.
+     * @return An expression for the value of the field type of field.
+     */
+    public String getValueExpression(String field, String stored) {
+        String t = types.get(field);
+        if (offsets.containsKey(field)) {
+            int fieldType = fieldTypes.get(field);
+            String r = stored + " == " + getWrapper(t) + ".MIN_VALUE ? "
+                    + getWrapper(fieldType) + ".MIN_VALUE : ";
+            if (fieldType == WaASCG_ColumnTypes.SHORT) {
+                return r + "(short) (" + stored + getOffset(field, "+") + ")";
+            }
+            return r + stored + getOffset(field, "+");
+        }
+        if (!scales.containsKey(field)) {
+            return stored;
+        }
+        String r = stored + " == " + getWrapper(t) + ".MIN_VALUE ? Double.NaN"
+                + " : ";
+        if (scales.get(field) > 0) {
+            r += stored + " / " + getPow10(field);
+        } else {
+            r += "(double) " + stored;
+        }
+        return r;
+    }
+
+    /**
+     * @param field A field that is stored in a narrower type.
+     * @return A description of the stored values for the getter of a column
+     * of field.
+     */
+    public String getStoredDescription(String field) {
+        String t = types.get(field);
+        if (scales.containsKey(field)) {
+            return "The values times 10^" + scales.get(field) + " (" + t
+                    + " MIN_VALUE for NaN).";
+        }
+        if (offsets.containsKey(field)) {
+            return "The values minus " + offsets.get(field) + " (" + t
+                    + " MIN_VALUE for no value).";
+        }
+        return "The values.";
+    }
+
+    private String getOffset(String field, String op) {
+        long offset = offsets.get(field);
+        if (offset == 0) {
+            return "";
+        }
+        if (offset < 0) {
+            op = op.equals("+") ? "-" : "+";
+            offset = -offset;
+        }
+        return " " + op + " " + offset;
+    }
+
+    private String getPow10(String field) {
+        return Double.toString(Math.pow(10, scales.get(field)));
+    }
+
+    private static String getWrapper(int fieldType) {
+        switch (fieldType) {
+            case 1:
+                return "Double";
+            case 2:
+                return "Integer";
+            case 3:
+                return "Short";
+            default:
+                return "Byte";
+        }
+    }
+
+    private static String getWrapper(String javaType) {
+        switch (javaType) {
+            case "int":
+                return "Integer";
+            case "short":
+                return "Short";
+            default:
+                return "Byte";
+        }
+    }
+
+    /**
+     * Writes the statistics class.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param packageName The package name.
+     */
+    public void write(PrintWriter pw, String packageName) {
+        p.writeHeaderPackageAndImports(pw, packageName, null);
+        pw.println();
+        pw.println("/**");
+        pw.println(" * The statistics of the numeric fields over all waves:"
+                + " the smallest value");
+        pw.println(" * (_MIN), the largest value (_MAX), the number of values"
+                + " (_COUNT) and the");
+        pw.println(" * number of blanks (_NULLS). The check methods are for"
+                + " validating values on");
+        pw.println(" * load.");
+        pw.println(" */");
+        pw.println("public final class " + className + " {");
+        pw.println();
+        pw.println(getIndent(1) + "private " + className + "() {");
+        pw.println(getIndent(1) + "}");
+        Iterator<String> ite = fieldTypes.keySet().iterator();
+        while (ite.hasNext()) {
+            String field = ite.next();
+            double[] range = ranges.get(field);
+            long[] c = counts.get(field);
+            pw.println();
+            if (c[0] == 0) {
+                pw.println(getIndent(1) + "// " + field + " has no values.");
+            } else if (fieldTypes.get(field) == WaASCG_ColumnTypes.DOUBLE) {
+                pw.println(getIndent(1) + "public static final double " + field
+                        + "_MIN = " + getLiteral(range[0]) + ";");
+                pw.println(getIndent(1) + "public static final double " + field
+                        + "_MAX = " + getLiteral(range[1]) + ";");
+            } else {
+                pw.println(getIndent(1) + "public static final long " + field
+                        + "_MIN = " + (long) range[0] + "L;");
+                pw.println(getIndent(1) + "public static final long " + field
+                        + "_MAX = " + (long) range[1] + "L;");
+            }
+            pw.println(getIndent(1) + "public static final long " + field
+                    + "_COUNT = " + c[0] + "L;");
+            pw.println(getIndent(1) + "public static final long " + field
+                    + "_NULLS = " + c[1] + "L;");
+        }
+        // checkRange
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param field The field (for the"
+                + " message).");
+        pw.println(getIndent(1) + " * @param v The value.");
+        pw.println(getIndent(1) + " * @param min The smallest value.");
+        pw.println(getIndent(1) + " * @param max The largest value.");
+        pw.println(getIndent(1) + " * @return v");
+        pw.println(getIndent(1) + " * @throws IllegalArgumentException If v is"
+                + " not from min to max.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static long checkRange(String field,"
+                + " long v, long min, long max) {");
+        pw.println(getIndent(2) + "if (v < min || v > max) {");
+        pw.println(getIndent(3) + "throw new IllegalArgumentException(field"
+                + " + \" value \" + v");
+        pw.println(getIndent(5) + "+ \" is not from \" + min + \" to \" +"
+                + " max);");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "return v;");
+        pw.println(getIndent(1) + "}");
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param field The field (for the"
+                + " message).");
+        pw.println(getIndent(1) + " * @param v The value.");
+        pw.println(getIndent(1) + " * @param min The smallest value.");
+        pw.println(getIndent(1) + " * @param max The largest value.");
+        pw.println(getIndent(1) + " * @return v");
+        pw.println(getIndent(1) + " * @throws IllegalArgumentException If v is"
+                + " not NaN and not from min to max.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static double checkRange(String"
+                + " field, double v, double min,");
+        pw.println(getIndent(3) + "double max) {");
+        pw.println(getIndent(2) + "if (v < min || v > max) {");
+        pw.println(getIndent(3) + "throw new IllegalArgumentException(field"
+                + " + \" value \" + v");
+        pw.println(getIndent(5) + "+ \" is not from \" + min + \" to \" +"
+                + " max);");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "return v;");
+        pw.println(getIndent(1) + "}");
+        // checkScaled
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param field The field (for the"
+                + " message).");
+        pw.println(getIndent(1) + " * @param v The value.");
+        pw.println(getIndent(1) + " * @param min The smallest value.");
+        pw.println(getIndent(1) + " * @param max The largest value.");
+        pw.println(getIndent(1) + " * @param pow10 The power of ten to scale"
+                + " by.");
+        pw.println(getIndent(1) + " * @return v times pow10 rounded.");
+        pw.println(getIndent(1) + " * @throws IllegalArgumentException If v is"
+                + " not from min to max or has more");
+        pw.println(getIndent(1) + " * digits after the decimal point than"
+                + " pow10 has zeros.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static long checkScaled(String"
+                + " field, double v, double min,");
+        pw.println(getIndent(3) + "double max, double pow10) {");
+        pw.println(getIndent(2) + "checkRange(field, v, min, max);");
+        pw.println(getIndent(2) + "long r = Math.round(v * pow10);");
+        pw.println(getIndent(2) + "if (r / pow10 != v) {");
+        pw.println(getIndent(3) + "throw new IllegalArgumentException(field"
+                + " + \" value \" + v");
+        pw.println(getIndent(5) + "+ \" has too many decimal places\");");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "return r;");
+        pw.println(getIndent(1) + "}");
+        // checkFloat
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param field The field (for the"
+                + " message).");
+        pw.println(getIndent(1) + " * @param v The value.");
+        pw.println(getIndent(1) + " * @return v");
+        pw.println(getIndent(1) + " * @throws IllegalArgumentException If v is"
+                + " not exactly a float.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static double checkFloat(String"
+                + " field, double v) {");
+        pw.println(getIndent(2) + "if ((float) v != v && !Double.isNaN(v)) {");
+        pw.println(getIndent(3) + "throw new IllegalArgumentException(field"
+                + " + \" value \" + v");
+        pw.println(getIndent(5) + "+ \" is not exactly a float\");");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "return v;");
+        pw.println(getIndent(1) + "}");
+        pw.println("}");
+        pw.flush();
+    }
+
+    private static String getLiteral(double v) {
+        if (Double.isInfinite(v)) {
+            return v > 0 ? "Double.POSITIVE_INFINITY"
+                    : "Double.NEGATIVE_INFINITY";
+        }
+        return Double.toString(v);
+    }
+}
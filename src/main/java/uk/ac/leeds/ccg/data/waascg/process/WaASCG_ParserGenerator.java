@@ -0,0 +1,348 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.io.PrintWriter;
+import uk.ac.leeds.ccg.cg.process.CG_Process;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Strings;
+
+/**
+ * For writing the source code of a class of static methods for parsing the
+ * values of a line of a WaAS tab separated values file directly from ranges
+ * of the line. The generated record constructors and loaders walk a line with
+ * an index cursor and use these methods, so only values to be stored as
+ * Strings need to be copied out of the line.
+ *
+ * Each parse method has the same result as the equivalent of
+ * Double.parseDouble, Integer.parseInt, Short.parseShort or Byte.parseByte
+ * applied to the substring (including throwing a NumberFormatException). For
+ * the common cases of plain decimal and integer values, no substring is
+ * created.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_ParserGenerator extends CG_Process {
+
+    /**
+     * The maximum number of values parsed by each generated method that walks
+     * a line. WaAS files have thousands of columns, so walking a whole line in
+     * one method would give a method too large to be compiled by the JIT.
+     */
+    public static final int VALUES_PER_METHOD = 64;
+
+    /**
+     * For the shared header, package and import writing methods.
+     */
+    protected final WaASCG_Main p;
+
+    /**
+     * @param p For the shared header, package and import writing methods.
+     */
+    public WaASCG_ParserGenerator(WaASCG_Main p) {
+        super();
+        this.p = p;
+    }
+
+    /**
+     * @param type The type letter (H or P).
+     * @return The name of the parser class for type.
+     */
+    public static String getClassName(String type) {
+        return WaASCG_Strings.s_WaAS + WaASCG_Strings.symbol_underscore + type
+                + "Parser";
+    }
+
+    /**
+     * @param fieldType The field type (as for
+     * {@link WaASCG_Main#getFieldTypes(java.lang.String)}).
+     * @param v0 The code for false if fieldType is 5, may be null.
+     * @param parser The name of the parser class.
+     * @param line The name of the line variable.
+     * @param start The expression for the start of the value in line.
+     * @param end The expression for the end of the value in line.
+     * @return An expression that parses the value.
+     */
+    public static String getParseExpression(int fieldType, Byte v0,
+            String parser, String line, String start, String end) {
+        String args = "(" + line + ", " + start + ", " + end;
+        switch (fieldType) {
+            case 0:
+                return parser + ".parseString" + args + ")";
+            case 1:
+                return parser + ".parseDouble" + args + ")";
+            case 2:
+                return parser + ".parseInt" + args + ")";
+            case 3:
+                return parser + ".parseShort" + args + ")";
+            case 4:
+                return parser + ".parseByte" + args + ")";
+            default:
+                if (v0 == null) {
+                    return parser + ".parseBoolean" + args
+                            + ", Byte.MIN_VALUE)";
+                }
+                return parser + ".parseBoolean" + args + ", (byte) " + v0
+                        + ")";
+        }
+    }
+
+    /**
+     * Prints the statements that walk a line with the methods printed by
+     * {@link #printWalkMethods(java.io.PrintWriter, java.lang.String, java.lang.String[])}.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param n The number of values in a line.
+     */
+    public void printWalkCalls(PrintWriter pw, int n) {
+        pw.println(getIndent(2) + "int p = 0;");
+        for (int m = 0; m * VALUES_PER_METHOD < n; m++) {
+            pw.println(getIndent(2) + "p = walk" + m + "(line, p);");
+        }
+    }
+
+    /**
+     * Prints private methods that each walk a run of the values of a line
+     * with an index cursor. Each method is given the line and the index of
+     * the start of its first value, and returns the index of the start of the
+     * value after its last value.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param parser The name of the parser class.
+     * @param statements A statement for each value in which the range of the
+     * value in line is from p to q.
+     */
+    public void printWalkMethods(PrintWriter pw, String parser,
+            String[] statements) {
+        for (int m = 0; m * VALUES_PER_METHOD < statements.length; m++) {
+            pw.println();
+            pw.println(getIndent(1) + "private int walk" + m
+                    + "(String line, int p) {");
+            pw.println(getIndent(2) + "int q;");
+            int end = Math.min(statements.length, (m + 1) * VALUES_PER_METHOD);
+            for (int j = m * VALUES_PER_METHOD; j < end; j++) {
+                pw.println(getIndent(2) + "q = " + parser + ".next(line, p);");
+                pw.println(getIndent(2) + statements[j]);
+                pw.println(getIndent(2) + "p = q + 1;");
+            }
+            pw.println(getIndent(2) + "return p;");
+            pw.println(getIndent(1) + "}");
+        }
+    }
+
+    /**
+     * Writes the parser class.
+     *
+     * @param pw The PrintWriter to write to.
+     * @param packageName The package name.
+     * @param className The class name.
+     */
+    public void write(PrintWriter pw, String packageName, String className) {
+        p.writeHeaderPackageAndImports(pw, packageName, null);
+        pw.println();
+        pw.println("/**");
+        pw.println(" * Methods for parsing the values of a line of a WaAS tab"
+                + " separated values");
+        pw.println(" * file from ranges of the line without splitting it.");
+        pw.println(" */");
+        pw.println("public final class " + className + " {");
+        pw.println();
+        pw.print(getIndent(1) + "private static final double[] POW10 = {");
+        for (int i = 0; i <= 22; i++) {
+            if (i > 0) {
+                pw.print(", ");
+            }
+            pw.print("1e" + i);
+        }
+        pw.println("};");
+        pw.println();
+        pw.println(getIndent(1) + "private " + className + "() {");
+        pw.println(getIndent(1) + "}");
+        // next
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param line The line.");
+        pw.println(getIndent(1) + " * @param p The index of the start of a value.");
+        pw.println(getIndent(1) + " * @return The index of the tab after the value"
+                + " or the length of line.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static int next(String line, int p) {");
+        pw.println(getIndent(2) + "if (p >= line.length()) {");
+        pw.println(getIndent(3) + "return p;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "int q = line.indexOf('\\t', p);");
+        pw.println(getIndent(2) + "return q < 0 ? line.length() : q;");
+        pw.println(getIndent(1) + "}");
+        // getStarts
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @param line The line.");
+        pw.println(getIndent(1) + " * @param n The number of values.");
+        pw.println(getIndent(1) + " * @return The index of the start of each"
+                + " value, then the index after the");
+        pw.println(getIndent(1) + " * end of the last value plus 1. A value"
+                + " missing from the end of line has");
+        pw.println(getIndent(1) + " * an empty range.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static int[] getStarts(String line,"
+                + " int n) {");
+        pw.println(getIndent(2) + "int[] r = new int[n + 1];");
+        pw.println(getIndent(2) + "int p = 0;");
+        pw.println(getIndent(2) + "for (int j = 0; j < n; j++) {");
+        pw.println(getIndent(3) + "r[j] = p;");
+        pw.println(getIndent(3) + "p = next(line, p) + 1;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "r[n] = p;");
+        pw.println(getIndent(2) + "return r;");
+        pw.println(getIndent(1) + "}");
+        // isBlank
+        pw.println();
+        pw.println(getIndent(1) + "public static boolean isBlank(String line,"
+                + " int start, int end) {");
+        pw.println(getIndent(2) + "for (int i = start; i < end; i++) {");
+        pw.println(getIndent(3) + "if (line.charAt(i) > ' ') {");
+        pw.println(getIndent(4) + "return false;");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "return true;");
+        pw.println(getIndent(1) + "}");
+        // digits
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @return The value of an optionally signed"
+                + " integer of up to 18 digits or");
+        pw.println(getIndent(1) + " * Long.MIN_VALUE if the range is not such"
+                + " an integer.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "private static long digits(String line, int"
+                + " start, int end) {");
+        pw.println(getIndent(2) + "int i = start;");
+        pw.println(getIndent(2) + "char c = line.charAt(i);");
+        pw.println(getIndent(2) + "boolean negative = c == '-';");
+        pw.println(getIndent(2) + "if (negative || c == '+') {");
+        pw.println(getIndent(3) + "i++;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "if (i == end || end - i > 18) {");
+        pw.println(getIndent(3) + "return Long.MIN_VALUE;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "long v = 0;");
+        pw.println(getIndent(2) + "for (; i < end; i++) {");
+        pw.println(getIndent(3) + "c = line.charAt(i);");
+        pw.println(getIndent(3) + "if (c < '0' || c > '9') {");
+        pw.println(getIndent(4) + "return Long.MIN_VALUE;");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "v = v * 10 + (c - '0');");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "return negative ? -v : v;");
+        pw.println(getIndent(1) + "}");
+        // parseString
+        pw.println();
+        pw.println(getIndent(1) + "public static String parseString(String line,"
+                + " int start, int end) {");
+        pw.println(getIndent(2) + "if (isBlank(line, start, end)) {");
+        pw.println(getIndent(3) + "return null;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "return line.substring(start, end);");
+        pw.println(getIndent(1) + "}");
+        // parseDouble
+        pw.println();
+        pw.println(getIndent(1) + "public static double parseDouble(String line,"
+                + " int start, int end) {");
+        pw.println(getIndent(2) + "if (isBlank(line, start, end)) {");
+        pw.println(getIndent(3) + "return Double.NaN;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "int i = start;");
+        pw.println(getIndent(2) + "char c = line.charAt(i);");
+        pw.println(getIndent(2) + "boolean negative = c == '-';");
+        pw.println(getIndent(2) + "if (negative || c == '+') {");
+        pw.println(getIndent(3) + "i++;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "long m = 0;");
+        pw.println(getIndent(2) + "int digits = 0;");
+        pw.println(getIndent(2) + "int scale = -1;");
+        pw.println(getIndent(2) + "for (; i < end; i++) {");
+        pw.println(getIndent(3) + "c = line.charAt(i);");
+        pw.println(getIndent(3) + "if (c >= '0' && c <= '9') {");
+        pw.println(getIndent(4) + "m = m * 10 + (c - '0');");
+        pw.println(getIndent(4) + "digits++;");
+        pw.println(getIndent(4) + "if (scale >= 0) {");
+        pw.println(getIndent(5) + "scale++;");
+        pw.println(getIndent(4) + "}");
+        pw.println(getIndent(3) + "} else if (c == '.' && scale < 0) {");
+        pw.println(getIndent(4) + "scale = 0;");
+        pw.println(getIndent(3) + "} else {");
+        pw.println(getIndent(4) + "break;");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "if (i == end && digits > 0 && digits <= 15) {");
+        pw.println(getIndent(3) + "// m and 10^scale are exact, so the division"
+                + " is correctly rounded.");
+        pw.println(getIndent(3) + "double d = m;");
+        pw.println(getIndent(3) + "if (scale > 0) {");
+        pw.println(getIndent(4) + "d = d / POW10[scale];");
+        pw.println(getIndent(3) + "}");
+        pw.println(getIndent(3) + "return negative ? -d : d;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "return Double.parseDouble(line.substring(start,"
+                + " end));");
+        pw.println(getIndent(1) + "}");
+        // parseInt, parseShort, parseByte
+        printParseInteger(pw, "int", "Int", "Integer");
+        printParseInteger(pw, "short", "Short", "Short");
+        printParseInteger(pw, "byte", "Byte", "Byte");
+        // parseBoolean
+        pw.println();
+        pw.println(getIndent(1) + "/**");
+        pw.println(getIndent(1) + " * @return false if the range is blank or"
+                + " v0 is Byte.MIN_VALUE, otherwise");
+        pw.println(getIndent(1) + " * true if the byte value is not v0.");
+        pw.println(getIndent(1) + " */");
+        pw.println(getIndent(1) + "public static boolean parseBoolean(String line,"
+                + " int start, int end,");
+        pw.println(getIndent(3) + "byte v0) {");
+        pw.println(getIndent(2) + "if (isBlank(line, start, end)) {");
+        pw.println(getIndent(3) + "return false;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "byte b = parseByte(line, start, end);");
+        pw.println(getIndent(2) + "return v0 != Byte.MIN_VALUE && b != v0;");
+        pw.println(getIndent(1) + "}");
+        pw.println("}");
+    }
+
+    /**
+     * @param pw The PrintWriter to write to.
+     * @param type The primitive type.
+     * @param name The name suffix of the parse method.
+     * @param wrapper The wrapper class name.
+     */
+    protected void printParseInteger(PrintWriter pw, String type, String name,
+            String wrapper) {
+        pw.println();
+        pw.println(getIndent(1) + "public static " + type + " parse" + name
+                + "(String line, int start, int end) {");
+        pw.println(getIndent(2) + "if (isBlank(line, start, end)) {");
+        pw.println(getIndent(3) + "return " + wrapper + ".MIN_VALUE;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "long v = digits(line, start, end);");
+        pw.println(getIndent(2) + "if (v >= " + wrapper + ".MIN_VALUE && v <= "
+                + wrapper + ".MAX_VALUE) {");
+        pw.println(getIndent(3) + "return (" + type + ") v;");
+        pw.println(getIndent(2) + "}");
+        pw.println(getIndent(2) + "return " + wrapper + ".parse" + name
+                + "(line.substring(start, end));");
+        pw.println(getIndent(1) + "}");
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.RecursiveTask;
+import uk.ac.leeds.ccg.data.waascg.io.WaASCG_TabReader;
+
+/**
+ * For working out the type states of the columns of a range of a WaAS input
+ * file. Ranges larger than the chunk size are split in two at a line start
+ * and the halves are scanned as separate fork-join tasks. The results are
+ * merged in file order, so they are the same as for a sequential scan.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_ScanTask extends RecursiveTask<WaASCG_ColumnTypes> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * For scanning.
+     */
+    protected final transient WaASCG_Main p;
+
+    /**
+     * For reading the file.
+     */
+    protected final transient WaASCG_TabReader reader;
+
+    /**
+     * The field names of the columns.
+     */
+    protected final String[] fields;
+
+    /**
+     * The start of the range (the start of a line).
+     */
+    protected final long start;
+
+    /**
+     * The end of the range (the start of a line or the end of the file).
+     */
+    protected final long end;
+
+    /**
+     * The size of range below which the range is scanned without splitting.
+     */
+    protected final long chunkSize;
+
+    /**
+     * @param p For scanning.
+     * @param reader For reading the file.
+     * @param fields The field names of the columns.
+     * @param start The start of the range (the start of a line).
+     * @param end The end of the range (the start of a line or the end of the
+     * file).
+     * @param chunkSize The size of range below which the range is scanned
+     * without splitting.
+     */
+    public WaASCG_ScanTask(WaASCG_Main p, WaASCG_TabReader reader,
+            String[] fields, long start, long end, long chunkSize) {
+        this.p = p;
+        this.reader = reader;
+        this.fields = fields;
+        this.start = start;
+        this.end = end;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    protected WaASCG_ColumnTypes compute() {
+        try {
+            if (end - start > chunkSize) {
+                long mid = reader.getLineStart(start + (end - start) / 2);
+                if (mid > start && mid < end) {
+                    WaASCG_ScanTask left = new WaASCG_ScanTask(p, reader,
+                            fields, start, mid, chunkSize);
+                    WaASCG_ScanTask right = new WaASCG_ScanTask(p, reader,
+                            fields, mid, end, chunkSize);
+                    right.fork();
+                    WaASCG_ColumnTypes r = left.compute();
+                    r.merge(right.join());
+                    return r;
+                }
+            }
+            return p.scan(reader, fields, start, end);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
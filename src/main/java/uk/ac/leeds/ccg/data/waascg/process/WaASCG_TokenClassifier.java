@@ -0,0 +1,338 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * For classifying the tokens of a WaAS input file. A token is given as a range
+ * of a byte array and its bytes are read once to find out together: if it is
+ * blank; if it is an integer, a decimal or not numeric; the value of it if it
+ * is an integer that fits in a long; and, the narrowest type that can
+ * represent it. For numeric tokens the number of digits after the decimal
+ * point and whether the value is exactly a float are also found.
+ *
+ * The classification agrees with Byte.parseByte, Short.parseShort,
+ * Integer.parseInt and Double.parseDouble for tokens in ASCII: integers are an
+ * optional sign followed by digits with no surrounding whitespace; decimals
+ * are anything else Double.parseDouble accepts once whitespace is trimmed.
+ * As with Math_Byte.isByte, Math_Short.isShort and Math_Integer.isInt, the
+ * MIN_VALUE of each integer type is not in its range as it is reserved for
+ * blanks, so a token of Byte.MIN_VALUE is a short and so on.
+ *
+ * An instance holds the results of the last classification, so an instance
+ * should not be shared between threads.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_TokenClassifier {
+
+    /**
+     * The kind of a blank token (all whitespace or empty).
+     */
+    public static final byte BLANK = 0;
+
+    /**
+     * The kind of an integer token.
+     */
+    public static final byte INTEGER = 1;
+
+    /**
+     * The kind of a decimal token.
+     */
+    public static final byte DECIMAL = 2;
+
+    /**
+     * The kind of a token that is not numeric.
+     */
+    public static final byte NON_NUMERIC = 3;
+
+    /**
+     * The kind of the last token classified.
+     */
+    public byte kind;
+
+    /**
+     * The narrowest type that can represent the last token classified. This
+     * is one of {@link WaASCG_ColumnTypes#BYTE},
+     * {@link WaASCG_ColumnTypes#SHORT}, {@link WaASCG_ColumnTypes#INT},
+     * {@link WaASCG_ColumnTypes#DOUBLE} or {@link WaASCG_ColumnTypes#STRING}.
+     * It is not set for blank tokens.
+     */
+    public byte type;
+
+    /**
+     * The value of the last token classified if it is an integer that fits in
+     * a long.
+     */
+    public long value;
+
+    /**
+     * true if the last token classified is an integer that fits in a long.
+     */
+    public boolean isLong;
+
+    /**
+     * The value of the last token classified if it is numeric.
+     */
+    public double doubleValue;
+
+    /**
+     * The number of digits after the decimal point of the last token
+     * classified if it is numeric.
+     */
+    public int scale;
+
+    /**
+     * true if the last token classified is a plain decimal: an optional sign,
+     * at most 18 digits and an optional decimal point, with no exponent, no
+     * suffix and no surrounding whitespace (and not a negative zero). Such a
+     * value times a power of ten is an exact integer.
+     */
+    public boolean isPlain;
+
+    /**
+     * true if the last token classified is numeric and its value is exactly
+     * a float.
+     */
+    public boolean isFloat;
+
+    /**
+     * Powers of ten that are exact doubles.
+     */
+    private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6,
+        1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18};
+
+    /**
+     * The largest long that is exactly a double with all smaller longs.
+     */
+    private static final long MAX_EXACT = 1L << 53;
+
+    public WaASCG_TokenClassifier() {
+    }
+
+    /**
+     * Classifies the token in b from start to end.
+     *
+     * @param b The bytes.
+     * @param start The index of the first byte of the token.
+     * @param end The index after the last byte of the token.
+     * @return The kind of the token.
+     */
+    public byte classify(byte[] b, int start, int end) {
+        isLong = false;
+        // Trim
+        int s = start;
+        while (s < end && (b[s] & 0xff) <= ' ') {
+            s++;
+        }
+        if (s == end) {
+            kind = BLANK;
+            return kind;
+        }
+        int e = end;
+        while ((b[e - 1] & 0xff) <= ' ') {
+            e--;
+        }
+        boolean trimmed = s != start || e != end;
+        int i = s;
+        boolean negative = false;
+        if (b[i] == '-' || b[i] == '+') {
+            negative = b[i] == '-';
+            i++;
+        }
+        // Integer part
+        int ds = i;
+        long v = 0;
+        boolean overflow = false;
+        while (i < e) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) {
+                break;
+            }
+            if (v > (Long.MAX_VALUE - d) / 10) {
+                overflow = true;
+            } else {
+                v = v * 10 + d;
+            }
+            i++;
+        }
+        int nd = i - ds;
+        if (i == e && nd > 0 && !trimmed) {
+            kind = INTEGER;
+            scale = 0;
+            if (overflow) {
+                type = WaASCG_ColumnTypes.DOUBLE;
+                doubleValue = parseDouble(b, s, e);
+                isPlain = false;
+                isFloat = false;
+            } else {
+                isLong = true;
+                value = negative ? -v : v;
+                doubleValue = negative ? -(double) v : v;
+                isPlain = nd <= 18 && !(negative && v == 0);
+                isFloat = v <= MAX_EXACT && (float) doubleValue == doubleValue;
+                // MIN_VALUE of each type is reserved for blanks.
+                if (value > Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                    type = WaASCG_ColumnTypes.BYTE;
+                } else if (value > Short.MIN_VALUE
+                        && value <= Short.MAX_VALUE) {
+                    type = WaASCG_ColumnTypes.SHORT;
+                } else if (value > Integer.MIN_VALUE
+                        && value <= Integer.MAX_VALUE) {
+                    type = WaASCG_ColumnTypes.INT;
+                } else {
+                    type = WaASCG_ColumnTypes.DOUBLE;
+                }
+            }
+            return kind;
+        }
+        if (isDecimal(b, s, i, e, nd)) {
+            kind = DECIMAL;
+            type = WaASCG_ColumnTypes.DOUBLE;
+            setDecimal(b, s, i, e, nd, trimmed, negative, overflow, v);
+        } else {
+            kind = NON_NUMERIC;
+            type = WaASCG_ColumnTypes.STRING;
+        }
+        return kind;
+    }
+
+    /**
+     * Checks the rest of a trimmed token after any sign and integer digits.
+     *
+     * @param b The bytes.
+     * @param s The index of the first non whitespace byte.
+     * @param i The index after any sign and integer digits.
+     * @param e The index after the last non whitespace byte.
+     * @param nd The number of integer digits.
+     * @return true if the token is a decimal.
+     */
+    protected boolean isDecimal(byte[] b, int s, int i, int e, int nd) {
+        if (nd == 0 && i < e) {
+            if (matches(b, i, e, "NaN") || matches(b, i, e, "Infinity")) {
+                return true;
+            }
+        }
+        if (nd > 0 && i < e && (b[i] == 'x' || b[i] == 'X')) {
+            // Hexadecimal floating point is rare so is checked slowly.
+            return isDouble(b, s, e);
+        }
+        // Fraction
+        int fd = 0;
+        if (i < e && b[i] == '.') {
+            i++;
+            while (i < e && b[i] >= '0' && b[i] <= '9') {
+                i++;
+                fd++;
+            }
+        }
+        if (nd + fd == 0) {
+            return false;
+        }
+        // Exponent
+        if (i < e && (b[i] == 'e' || b[i] == 'E')) {
+            i++;
+            if (i < e && (b[i] == '-' || b[i] == '+')) {
+                i++;
+            }
+            int ed = 0;
+            while (i < e && b[i] >= '0' && b[i] <= '9') {
+                i++;
+                ed++;
+            }
+            if (ed == 0) {
+                return false;
+            }
+        }
+        // Suffix
+        if (i < e && (b[i] == 'f' || b[i] == 'F' || b[i] == 'd'
+                || b[i] == 'D')) {
+            i++;
+        }
+        return i == e;
+    }
+
+    /**
+     * Sets {@link #doubleValue}, {@link #scale}, {@link #isPlain} and
+     * {@link #isFloat} for a decimal token.
+     *
+     * @param b The bytes.
+     * @param s The index of the first non whitespace byte.
+     * @param i The index after any sign and integer digits.
+     * @param e The index after the last non whitespace byte.
+     * @param nd The number of integer digits.
+     * @param trimmed true if the token has surrounding whitespace.
+     * @param negative true if the token starts with '-'.
+     * @param overflow true if the integer digits overflowed v.
+     * @param v The value of the integer digits.
+     */
+    private void setDecimal(byte[] b, int s, int i, int e, int nd,
+            boolean trimmed, boolean negative, boolean overflow, long v) {
+        int fd = 0;
+        if (i < e && b[i] == '.') {
+            i++;
+            while (i < e && b[i] >= '0' && b[i] <= '9' && !overflow) {
+                if (nd + fd == 18) {
+                    overflow = true;
+                } else {
+                    v = v * 10 + (b[i] - '0');
+                    fd++;
+                    i++;
+                }
+            }
+        }
+        scale = fd;
+        isPlain = i == e && !trimmed && !overflow && nd + fd <= 18
+                && !(negative && v == 0);
+        if (isPlain && v <= MAX_EXACT) {
+            // Correctly rounded as both operands are exact.
+            doubleValue = (negative ? -v : v) / POW10[fd];
+            isFloat = (float) doubleValue == doubleValue;
+        } else {
+            doubleValue = parseDouble(b, s, e);
+            isFloat = false;
+        }
+    }
+
+    private static double parseDouble(byte[] b, int start, int end) {
+        return Double.parseDouble(new String(b, start, end - start,
+                StandardCharsets.UTF_8));
+    }
+
+    private static boolean matches(byte[] b, int i, int e, String s) {
+        if (e - i != s.length()) {
+            return false;
+        }
+        for (int j = 0; j < s.length(); j++) {
+            if (b[i + j] != s.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isDouble(byte[] b, int start, int end) {
+        try {
+            Double.parseDouble(new String(b, start, end - start,
+                    StandardCharsets.UTF_8));
+            return true;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A set of at most {@link #max} distinct tokens, each the bytes of a range of
+ * a line, with at most {@link #maxChars} chars in total. Tokens are looked up
+ * in an open addressing hash table directly from the bytes of the line, so
+ * only new tokens are copied.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_TokenSet {
+
+    /**
+     * The maximum number of tokens.
+     */
+    public final int max;
+
+    /**
+     * The maximum total number of chars of the tokens decoded as UTF-8, each
+     * counted with one more char for a separator.
+     */
+    public final int maxChars;
+
+    /**
+     * The tokens in the order they were added.
+     */
+    protected byte[][] tokens;
+
+    /**
+     * The hash of each token.
+     */
+    protected int[] hashes;
+
+    /**
+     * The number of tokens.
+     */
+    protected int size;
+
+    /**
+     * The total number of chars of the tokens, each counted with one more
+     * char for a separator.
+     */
+    protected int chars;
+
+    /**
+     * The hash table. Each entry is the index of a token plus 1, or 0 if the
+     * entry is empty.
+     */
+    protected int[] table;
+
+    /**
+     * @param max The maximum number of tokens.
+     */
+    public WaASCG_TokenSet(int max) {
+        this(max, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param max The maximum number of tokens.
+     * @param maxChars The maximum total number of chars of the tokens.
+     */
+    public WaASCG_TokenSet(int max, int maxChars) {
+        this.max = max;
+        this.maxChars = maxChars;
+        tokens = new byte[8][];
+        hashes = new int[8];
+        table = new int[16];
+    }
+
+    /**
+     * @return The number of tokens.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i The index of a token.
+     * @return The bytes of the token.
+     */
+    public byte[] get(int i) {
+        return tokens[i];
+    }
+
+    /**
+     * Adds the token in b from start to end unless it is already in the set.
+     *
+     * @param b The bytes.
+     * @param start The index of the first byte of the token.
+     * @param end The index after the last byte of the token.
+     * @return false if the token is not in the set and the set already holds
+     * {@link #max} tokens or adding it would make more than {@link #maxChars}
+     * chars, otherwise true.
+     */
+    public boolean add(byte[] b, int start, int end) {
+        int h = hash(b, start, end);
+        int mask = table.length - 1;
+        int i = h & mask;
+        int k;
+        while ((k = table[i]) != 0) {
+            if (hashes[k - 1] == h && equals(tokens[k - 1], b, start, end)) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        int c = chars(b, start, end) + 1;
+        if (size == max || c > maxChars - chars) {
+            return false;
+        }
+        chars += c;
+        if (size == tokens.length) {
+            tokens = Arrays.copyOf(tokens, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        tokens[size] = Arrays.copyOfRange(b, start, end);
+        hashes[size] = h;
+        size++;
+        table[i] = size;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Adds all the tokens of o.
+     *
+     * @param o The tokens to add. These are not modified.
+     * @return false if there are more than {@link #max} tokens or
+     * {@link #maxChars} chars in total, otherwise true.
+     */
+    public boolean addAll(WaASCG_TokenSet o) {
+        for (int i = 0; i < o.size; i++) {
+            byte[] t = o.tokens[i];
+            if (!add(t, 0, t.length)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The tokens decoded as UTF-8 in the order they were added.
+     */
+    public String[] toStrings() {
+        String[] r = new String[size];
+        for (int i = 0; i < size; i++) {
+            r[i] = new String(tokens[i], StandardCharsets.UTF_8);
+        }
+        return r;
+    }
+
+    private void rehash(int length) {
+        table = new int[length];
+        int mask = length - 1;
+        for (int k = 0; k < size; k++) {
+            int i = hashes[k] & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = k + 1;
+        }
+    }
+
+    /**
+     * @param b The bytes.
+     * @param start The index of the first byte.
+     * @param end The index after the last byte.
+     * @return The number of chars of the bytes decoded as UTF-8. Each byte
+     * other than a continuation byte is a char, other than the first byte of
+     * a 4 byte sequence which is a surrogate pair.
+     */
+    private static int chars(byte[] b, int start, int end) {
+        int r = 0;
+        for (int i = start; i < end; i++) {
+            int x = b[i] & 0xFF;
+            if (x >= 0xF0) {
+                r += 2;
+            } else if ((x & 0xC0) != 0x80) {
+                r++;
+            }
+        }
+        return r;
+    }
+
+    private static int hash(byte[] b, int start, int end) {
+        int h = 1;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + b[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(byte[] t, byte[] b, int start, int end) {
+        if (t.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < t.length; i++) {
+            if (t[i] != b[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
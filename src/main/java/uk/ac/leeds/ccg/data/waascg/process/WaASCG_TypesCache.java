@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * A cache of the results of scanning WaAS input files. The column type states
+ * of each input file are stored in a binary sidecar file together with a
+ * fingerprint of the input file: its size; its last modified time; and, a
+ * SHA-256 hash of its content. A cached result is used if the size and last
+ * modified time match, or if the size and the content hash match (as when the
+ * input files have been copied). Otherwise the input file has to be scanned
+ * again.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_TypesCache {
+
+    /**
+     * For identifying sidecar files.
+     */
+    public static final int MAGIC = 0x57614153;
+
+    /**
+     * The version of the sidecar file format. Sidecar files of other versions
+     * are ignored.
+     */
+    public static final int VERSION = 6;
+
+    /**
+     * The directory in which sidecar files are stored.
+     */
+    public final Path dir;
+
+    /**
+     * @param dir The directory in which sidecar files are stored.
+     */
+    public WaASCG_TypesCache(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @param f An input file.
+     * @return The sidecar file for f.
+     */
+    public Path getFile(Path f) {
+        return dir.resolve(f.getFileName().toString() + ".types");
+    }
+
+    /**
+     * @param f An input file.
+     * @return The cached column type states for f or null if there are none
+     * or if f has changed.
+     * @throws IOException If encountered.
+     */
+    public WaASCG_ColumnTypes get(Path f) throws IOException {
+        Path cf = getFile(f);
+        if (!Files.exists(cf)) {
+            return null;
+        }
+        long size = Files.size(f);
+        long modified = Files.getLastModifiedTime(f).toMillis();
+        WaASCG_ColumnTypes r;
+        byte[] hash = new byte[32];
+        long cmodified;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(cf)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            if (in.readLong() != size) {
+                return null;
+            }
+            cmodified = in.readLong();
+            in.readFully(hash);
+            r = WaASCG_ColumnTypes.read(in);
+        }
+        if (cmodified != modified) {
+            if (!Arrays.equals(hash, hash(f))) {
+                return null;
+            }
+            // Same content, so store the new modified time.
+            write(cf, size, modified, hash, r);
+        }
+        return r;
+    }
+
+    /**
+     * Stores the column type states for f.
+     *
+     * @param f An input file.
+     * @param ct The column type states from scanning f.
+     * @throws IOException If encountered.
+     */
+    public void put(Path f, WaASCG_ColumnTypes ct) throws IOException {
+        Files.createDirectories(dir);
+        long size = Files.size(f);
+        long modified = Files.getLastModifiedTime(f).toMillis();
+        write(getFile(f), size, modified, hash(f), ct);
+    }
+
+    private void write(Path cf, long size, long modified, byte[] hash,
+            WaASCG_ColumnTypes ct) throws IOException {
+        Path tmp = Files.createTempFile(dir, cf.getFileName().toString(),
+                ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(size);
+                out.writeLong(modified);
+                out.write(hash);
+                ct.write(out);
+            }
+            Files.move(tmp, cf, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // Only left if the write or move failed.
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * @param f A file.
+     * @return The SHA-256 hash of the content of f.
+     * @throws IOException If encountered.
+     */
+    public static byte[] hash(Path f) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException(ex);
+        }
+        ByteBuffer bb = ByteBuffer.allocate(1 << 20);
+        try (FileChannel fc = FileChannel.open(f, StandardOpenOption.READ)) {
+            while (fc.read(bb) > 0) {
+                bb.flip();
+                md.update(bb);
+                bb.clear();
+            }
+        }
+        return md.digest();
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.TreeSet;
+
+/**
+ * The groups of waves of a record class hierarchy and the fields declared in
+ * the record class of each group. Each field is mapped to a bitmask of the
+ * waves it is in (bit w for wave w + 1). The groups are: a group for each wave
+ * (indexes 0 to nwaves - 1), which are the leaves of the hierarchy; the group
+ * of all waves (index nwaves), which is the root; and, other groups chosen
+ * from the bitmasks of the fields (indexes from nwaves + 1).
+ *
+ * The other groups are chosen greedily, most fields saved first, such that
+ * any two groups are either disjoint or one contains the other (a laminar
+ * family). So the groups form a tree in which the parent of a group is the
+ * smallest group that contains it. A field is declared in the largest groups
+ * that are subsets of its bitmask. These partition its bitmask, so the record
+ * class of each wave the field is in inherits exactly one declaration of it.
+ *
+ * The bitmasks of the fields are found in a single pass of the headers, and
+ * the groups and declarations are worked out once for each distinct bitmask
+ * rather than for each field, so grouping takes time linear in the number of
+ * fields. There are fewer than twice as many groups as waves.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_WaveGroups {
+
+    /**
+     * The number of waves.
+     */
+    public final int nwaves;
+
+    /**
+     * Keys are the fields, values are the bitmasks of the waves they are in.
+     */
+    public final HashMap<String, Long> fieldMasks;
+
+    /**
+     * The bitmask of the waves of each group.
+     */
+    public final long[] masks;
+
+    /**
+     * The index of the parent of each group, or -1 for the root.
+     */
+    public final int[] parents;
+
+    /**
+     * The fields declared in the record class of each group.
+     */
+    public final TreeSet<String>[] fields;
+
+    /**
+     * @param headers The fields of the input file of each wave.
+     */
+    public WaASCG_WaveGroups(String[][] headers) {
+        nwaves = headers.length;
+        if (nwaves > Long.SIZE) {
+            throw new IllegalArgumentException("More than " + Long.SIZE
+                    + " waves.");
+        }
+        long all = nwaves == Long.SIZE ? -1L : (1L << nwaves) - 1L;
+        // Map each field to the bitmask of the waves it is in.
+        fieldMasks = new LinkedHashMap<>();
+        for (int w = 0; w < nwaves; w++) {
+            long bit = 1L << w;
+            for (String field : headers[w]) {
+                Long m = fieldMasks.get(field);
+                fieldMasks.put(field, m == null ? bit : m | bit);
+            }
+        }
+        // Count the fields of each bitmask.
+        HashMap<Long, Integer> counts = new HashMap<>();
+        for (long m : fieldMasks.values()) {
+            Integer c = counts.get(m);
+            counts.put(m, c == null ? 1 : c + 1);
+        }
+        // Choose the other groups.
+        ArrayList<long[]> candidates = new ArrayList<>();
+        for (long g : counts.keySet()) {
+            if (g != all && Long.bitCount(g) > 1) {
+                long benefit = 0;
+                for (long m : counts.keySet()) {
+                    if (m != all && (m & g) == g) {
+                        benefit += counts.get(m);
+                    }
+                }
+                candidates.add(new long[]{g,
+                    benefit * (Long.bitCount(g) - 1)});
+            }
+        }
+        Collections.sort(candidates, (a, b) -> {
+            if (a[1] != b[1]) {
+                return Long.compare(b[1], a[1]);
+            }
+            if (Long.bitCount(a[0]) != Long.bitCount(b[0])) {
+                return Integer.compare(Long.bitCount(b[0]),
+                        Long.bitCount(a[0]));
+            }
+            return Long.compareUnsigned(a[0], b[0]);
+        });
+        ArrayList<Long> chosen = new ArrayList<>();
+        for (long[] c : candidates) {
+            boolean laminar = true;
+            for (long g : chosen) {
+                long i = g & c[0];
+                if (i != 0 && i != g && i != c[0]) {
+                    laminar = false;
+                    break;
+                }
+            }
+            if (laminar) {
+                chosen.add(c[0]);
+            }
+        }
+        // Order the other groups by their first wave then largest first.
+        Collections.sort(chosen, (a, b) -> {
+            int ta = Long.numberOfTrailingZeros(a);
+            int tb = Long.numberOfTrailingZeros(b);
+            if (ta != tb) {
+                return Integer.compare(ta, tb);
+            }
+            return Integer.compare(Long.bitCount(b), Long.bitCount(a));
+        });
+        int n = nwaves + 1 + chosen.size();
+        masks = new long[n];
+        for (int w = 0; w < nwaves; w++) {
+            masks[w] = 1L << w;
+        }
+        masks[nwaves] = all;
+        for (int i = 0; i < chosen.size(); i++) {
+            masks[nwaves + 1 + i] = chosen.get(i);
+        }
+        parents = new int[n];
+        for (int i = 0; i < n; i++) {
+            parents[i] = -1;
+            if (i != nwaves) {
+                for (int j = nwaves; j < n; j++) {
+                    if (j != i && (masks[j] & masks[i]) == masks[i]
+                            && (parents[i] < 0 || Long.bitCount(masks[j])
+                            < Long.bitCount(masks[parents[i]]))) {
+                        parents[i] = j;
+                    }
+                }
+            }
+        }
+        // Declare each field in the largest groups that partition its mask.
+        fields = new TreeSet[n];
+        for (int i = 0; i < n; i++) {
+            fields[i] = new TreeSet<>();
+        }
+        Integer[] bySize = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            bySize[i] = i;
+        }
+        Arrays.sort(bySize, (a, b) -> Integer.compare(
+                Long.bitCount(masks[b]), Long.bitCount(masks[a])));
+        HashMap<Long, ArrayList<Integer>> partitions = new HashMap<>();
+        for (String field : fieldMasks.keySet()) {
+            long m = fieldMasks.get(field);
+            ArrayList<Integer> p = partitions.get(m);
+            if (p == null) {
+                p = new ArrayList<>();
+                long covered = 0;
+                for (int i : bySize) {
+                    if ((masks[i] & m) == masks[i]
+                            && (masks[i] & covered) == 0) {
+                        p.add(i);
+                        covered |= masks[i];
+                    }
+                }
+                partitions.put(m, p);
+            }
+            for (int i : p) {
+                fields[i].add(field);
+            }
+        }
+    }
+
+    /**
+     * @return The number of groups.
+     */
+    public int size() {
+        return masks.length;
+    }
+
+    /**
+     * @return The index of the root group of all waves.
+     */
+    public int getRoot() {
+        return nwaves;
+    }
+
+    /**
+     * @param i The index of a group.
+     * @return true if i is the index of the root group.
+     */
+    public boolean isRoot(int i) {
+        return i == nwaves;
+    }
+
+    /**
+     * @param i The index of a group.
+     * @return The name of group i, for example "W1W2".
+     */
+    public String getName(int i) {
+        StringBuilder sb = new StringBuilder();
+        long m = masks[i];
+        for (int w = 0; w < nwaves; w++) {
+            if ((m & (1L << w)) != 0) {
+                sb.append('W').append(w + 1);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param i The index of a group.
+     * @return The indexes of the groups from the root to group i.
+     */
+    public int[] getLineage(int i) {
+        int n = 0;
+        for (int j = i; j >= 0; j = parents[j]) {
+            n++;
+        }
+        int[] r = new int[n];
+        for (int j = i; j >= 0; j = parents[j]) {
+            r[--n] = j;
+        }
+        return r;
+    }
+}
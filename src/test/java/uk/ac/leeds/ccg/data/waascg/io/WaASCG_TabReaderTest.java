@@ -0,0 +1,213 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of {@link WaASCG_TabReader}.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_TabReaderTest {
+
+    /**
+     * A header with a carriage return, rows with blank and empty cells, an
+     * empty line, and a last line with no newline.
+     */
+    private static final String CONTENT = "A\tB\tC\r\n"
+            + "1\t2\t3\n"
+            + "\t \tx\r\n"
+            + "\n"
+            + "-1\t2.5\t\n"
+            + "abc\tdef\tghi\r\n"
+            + "7\t8\t9";
+
+    /**
+     * The cells of the rows of {@link #CONTENT} in order.
+     */
+    private static final String[][] ROWS = {{"1", "2", "3"},
+    {"", " ", "x"}, {"-1", "2.5", ""}, {"abc", "def", "ghi"},
+    {"7", "8", "9"}};
+
+    private Path f;
+
+    /**
+     * For collecting the cells of the rows read.
+     */
+    private static class Rows implements WaASCG_TabReader.Handler {
+
+        final List<List<String>> rows = new ArrayList<>();
+        List<String> row = new ArrayList<>();
+        final int last;
+
+        Rows(int last) {
+            this.last = last;
+        }
+
+        @Override
+        public void cell(int col, byte[] b, int start, int end) {
+            assertEquals(row.size(), col);
+            row.add(new String(b, start, end - start,
+                    StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void endRow() {
+            rows.add(row);
+            row = new ArrayList<>();
+        }
+
+        @Override
+        public int getLastColumn() {
+            return last;
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        f = Files.createTempFile("WaASCG_TabReaderTest", ".tab");
+        Files.write(f, CONTENT.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.delete(f);
+    }
+
+    /**
+     * @param rows The rows read.
+     * @param last The index of the last column read.
+     */
+    private static void assertRows(List<List<String>> rows, int last) {
+        assertEquals(ROWS.length, rows.size());
+        for (int i = 0; i < ROWS.length; i++) {
+            List<String> row = rows.get(i);
+            assertEquals(last + 1, row.size());
+            for (int j = 0; j <= last; j++) {
+                assertEquals(ROWS[i][j], row.get(j));
+            }
+        }
+    }
+
+    /**
+     * Test of readHeader and getDataStart.
+     *
+     * @throws IOException If encountered.
+     */
+    @Test
+    public void testReadHeader() throws IOException {
+        try (WaASCG_TabReader r = new WaASCG_TabReader(f)) {
+            assertEquals("A\tB\tC", r.readHeader());
+            assertEquals(CONTENT.indexOf('\n') + 1, r.getDataStart());
+            assertEquals(CONTENT.length(), r.size());
+        }
+    }
+
+    /**
+     * Test of getLineStart at every position after the header.
+     *
+     * @throws IOException If encountered.
+     */
+    @Test
+    public void testGetLineStart() throws IOException {
+        try (WaASCG_TabReader r = new WaASCG_TabReader(f)) {
+            r.readHeader();
+            long dataStart = r.getDataStart();
+            for (long pos = 0; pos <= CONTENT.length(); pos++) {
+                long expected;
+                int i = CONTENT.indexOf('\n', (int) pos - 1);
+                if (pos <= dataStart) {
+                    expected = dataStart;
+                } else if (i < 0) {
+                    expected = CONTENT.length();
+                } else {
+                    expected = i + 1;
+                }
+                assertEquals("" + pos, expected, r.getLineStart(pos));
+            }
+        }
+    }
+
+    /**
+     * Test of read for the whole file and for the file split at each line
+     * start.
+     *
+     * @throws IOException If encountered.
+     */
+    @Test
+    public void testRead() throws IOException {
+        try (WaASCG_TabReader r = new WaASCG_TabReader(f)) {
+            r.readHeader();
+            Rows h = new Rows(Integer.MAX_VALUE);
+            assertEquals(ROWS.length, r.read(h));
+            assertRows(h.rows, 2);
+            long start = r.getDataStart();
+            long end = r.size();
+            for (long pos = start; pos <= end; pos++) {
+                long mid = r.getLineStart(pos);
+                Rows h2 = new Rows(Integer.MAX_VALUE);
+                long rows = r.read(start, mid, h2) + r.read(mid, end, h2);
+                assertEquals(ROWS.length, rows);
+                assertRows(h2.rows, 2);
+            }
+        }
+    }
+
+    /**
+     * Test of read with a handler that only wants the first columns.
+     *
+     * @throws IOException If encountered.
+     */
+    @Test
+    public void testReadLastColumn() throws IOException {
+        try (WaASCG_TabReader r = new WaASCG_TabReader(f)) {
+            r.readHeader();
+            for (int last = 0; last < 3; last++) {
+                Rows h = new Rows(last);
+                assertEquals(ROWS.length, r.read(h));
+                assertRows(h.rows, last);
+            }
+            Rows h = new Rows(-1);
+            assertEquals(0, r.read(h));
+            assertTrue(h.rows.isEmpty());
+        }
+    }
+
+    /**
+     * Test of isBlank.
+     */
+    @Test
+    public void testIsBlank() {
+        byte[] b = "x \t\r y".getBytes(StandardCharsets.UTF_8);
+        assertTrue(WaASCG_TabReader.isBlank(b, 1, 5));
+        assertTrue(WaASCG_TabReader.isBlank(b, 1, 1));
+        assertFalse(WaASCG_TabReader.isBlank(b, 0, 2));
+        assertFalse(WaASCG_TabReader.isBlank(b, 4, 6));
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import org.junit.After;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.leeds.ccg.data.core.Data_Environment;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Environment;
+import uk.ac.leeds.ccg.data.waascg.io.WaASCG_TabReader;
+import uk.ac.leeds.ccg.generic.core.Generic_Environment;
+import uk.ac.leeds.ccg.generic.io.Generic_Defaults;
+
+/**
+ * Tests of {@link WaASCG_ColumnTypes}, in particular that scanning the parts
+ * of a file and merging the results in file order gives the same result as
+ * scanning the whole file.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_ColumnTypesTest {
+
+    /**
+     * The number of columns of the test file.
+     */
+    private static final int COLS = 20;
+
+    /**
+     * The number of rows of the test file.
+     */
+    private static final int ROWS = 3000;
+
+    private Path dir;
+    private WaASCG_Main p;
+    private Path f;
+    private String[] fields;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("WaASCG_ColumnTypesTest");
+        Data_Environment de = new Data_Environment(new Generic_Environment(
+                new Generic_Defaults(dir)));
+        p = new WaASCG_Main(new WaASCG_Environment(de, de.files.getDir()));
+        fields = new String[COLS];
+        for (int c = 0; c < COLS; c++) {
+            fields[c] = "V" + c;
+        }
+        f = dir.resolve("test.tab");
+        Files.write(f, getLines().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> s = Files.walk(dir)) {
+            Iterator<Path> ite = s.sorted(Comparator.reverseOrder())
+                    .iterator();
+            while (ite.hasNext()) {
+                Files.delete(ite.next());
+            }
+        }
+    }
+
+    /**
+     * @return A header and rows with columns that stay boolean, move through
+     * the states at different rows, overflow the distinct tokens or are
+     * blank. The tokens that move a column are on rows that are multiples of
+     * 100, which have no blanks. The last line has no newline.
+     */
+    private String getLines() {
+        Random r = new Random(0L);
+        StringBuilder sb = new StringBuilder(String.join("\t", fields));
+        for (int row = 0; row < ROWS; row++) {
+            sb.append(row % 7 == 0 ? "\r\n" : "\n");
+            for (int c = 0; c < COLS; c++) {
+                if (c > 0) {
+                    sb.append('\t');
+                }
+                if (c != 5 && row % 100 != 0 && r.nextInt(10) == 0) {
+                    sb.append(' ');
+                    continue;
+                }
+                switch (c % 10) {
+                    case 0:
+                        sb.append(1 + r.nextInt(2));
+                        break;
+                    case 1:
+                        sb.append(row == 2000 + 100 * (c / 10) ? 3
+                                : 1 + r.nextInt(2));
+                        break;
+                    case 2:
+                        sb.append(row == 2500 ? 300 : r.nextInt(100));
+                        break;
+                    case 3:
+                        sb.append(row == 1500 ? "x" : "" + r.nextInt());
+                        break;
+                    case 4:
+                        sb.append(r.nextInt(1000)).append('.')
+                                .append(r.nextInt(100));
+                        break;
+                    case 5:
+                        sb.append(' ');
+                        break;
+                    case 6:
+                        sb.append(row == ROWS - 100 ? -128 : 1 + r.nextInt(2));
+                        break;
+                    case 7:
+                        sb.append("s").append(r.nextInt(5000));
+                        break;
+                    case 8:
+                        sb.append(r.nextBoolean() ? -9 : 1);
+                        break;
+                    default:
+                        sb.append(r.nextBoolean() ? "" + r.nextInt(40000)
+                                : r.nextInt(10) + "." + r.nextInt(10));
+                        break;
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param e The expected states.
+     * @param a The actual states.
+     */
+    private static void assertSameStates(WaASCG_ColumnTypes e,
+            WaASCG_ColumnTypes a) {
+        assertArrayEquals(e.fields, a.fields);
+        assertArrayEquals("types", e.types, a.types);
+        assertArrayEquals("v0", e.v0, a.v0);
+        assertArrayEquals("v1", e.v1, a.v1);
+        for (int c = 0; c < e.fields.length; c++) {
+            String m = e.fields[c];
+            assertEquals(m, e.isSaturated(c), a.isSaturated(c));
+            if (e.isSaturated(c)) {
+                /**
+                 * Tokens of a saturated column are not looked at, so its
+                 * statistics depend on where it saturated in each part.
+                 */
+                continue;
+            }
+            assertEquals(m, e.min[c], a.min[c], 0d);
+            assertEquals(m, e.max[c], a.max[c], 0d);
+            assertEquals(m, e.scale[c], a.scale[c]);
+            assertEquals(m, e.plain[c], a.plain[c]);
+            assertEquals(m, e.floats[c], a.floats[c]);
+            assertEquals(m, e.counts[c], a.counts[c]);
+            assertEquals(m, e.nulls[c], a.nulls[c]);
+            assertArrayEquals(m, e.getDistinct(c), a.getDistinct(c));
+        }
+        assertEquals("rows", e.rows, a.rows);
+        assertEquals("nLive", e.getNLive(), a.getNLive());
+        assertEquals("lastLive", e.getLastLive(), a.getLastLive());
+    }
+
+    /**
+     * Test of the states from a sequential scan.
+     *
+     * @throws IOException If encountered.
+     */
+    @Test
+    public void testScan() throws IOException {
+        try (WaASCG_TabReader reader = new WaASCG_TabReader(f)) {
+            reader.readHeader();
+            WaASCG_ColumnTypes ct = p.scan(reader, fields,
+                    reader.getDataStart(), reader.size());
+            assertEquals(ROWS, ct.rows);
+            byte[] types = {WaASCG_ColumnTypes.BOOLEAN,
+                WaASCG_ColumnTypes.BYTE, WaASCG_ColumnTypes.SHORT,
+                WaASCG_ColumnTypes.STRING, WaASCG_ColumnTypes.DOUBLE,
+                WaASCG_ColumnTypes.BOOLEAN, WaASCG_ColumnTypes.SHORT,
+                WaASCG_ColumnTypes.STRING, WaASCG_ColumnTypes.BOOLEAN,
+                WaASCG_ColumnTypes.DOUBLE};
+            for (int c = 0; c < COLS; c++) {
+                assertEquals(fields[c], types[c % 10], ct.types[c]);
+            }
+            // The String columns have too many distinct tokens to be coded,
+            // so are saturated.
+            assertEquals(COLS - 4, ct.getNLive());
+            assertEquals(COLS - 1, ct.getLastLive());
+            assertNull(ct.getDistinct(7));
+            assertEquals(ROWS, ct.nulls[5]);
+            assertArrayEquals(new String[]{"-9", "1"}, ct.getDistinct(8));
+            assertEquals(-9, ct.getV0m().get("V8").byteValue());
+            assertEquals(1, ct.getV1m().get("V8").byteValue());
+        }
+    }
+
+    /**
+     * Test of a sequential scan with {@link WaASCG_Main#dictionaries} false:
+     * the states are the same as with it true, but no distinct tokens are
+     * stored.
+     *
+     * @throws IOException If encountered.
+     */
+    @Test
+    public void testScanNoDictionaries() throws IOException {
+        try (WaASCG_TabReader reader = new WaASCG_TabReader(f)) {
+            reader.readHeader();
+            WaASCG_ColumnTypes e = p.scan(reader, fields,
+                    reader.getDataStart(), reader.size());
+            p.dictionaries = false;
+            WaASCG_ColumnTypes a = p.scan(reader, fields,
+                    reader.getDataStart(), reader.size());
+            assertFalse(a.dictionaries);
+            assertArrayEquals(e.types, a.types);
+            assertArrayEquals(e.v0, a.v0);
+            assertArrayEquals(e.v1, a.v1);
+            for (int c = 0; c < COLS; c++) {
+                assertNull(fields[c], a.getDistinct(c));
+                // The String columns are saturated sooner so fewer of their
+                // tokens are counted.
+                if (e.types[c] != WaASCG_ColumnTypes.STRING) {
+                    assertEquals(fields[c], e.counts[c], a.counts[c]);
+                    assertEquals(fields[c], e.nulls[c], a.nulls[c]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of when a String column is saturated: with distinct tokens stored
+     * it is once there are too many chars of them for a dictionary, and
+     * without it is at once.
+     */
+    @Test
+    public void testSaturated() {
+        String[] names = {"A"};
+        WaASCG_ColumnTypes ct = new WaASCG_ColumnTypes(names, true);
+        ct.add(0, WaASCG_ColumnTypes.STRING, (byte) 0);
+        assertFalse(ct.isSaturated(0));
+        byte[] b = new byte[99];
+        int n = WaASCG_DictionaryGenerator.MAX_CHARS / (b.length + 1);
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(b, (byte) ('a' + i % 26));
+            b[0] = (byte) ('a' + i / 26);
+            ct.addToken(0, b, 0, b.length);
+        }
+        assertNotNull(ct.getDistinct(0));
+        assertEquals(1, ct.getNLive());
+        b[0] = '#';
+        ct.addToken(0, b, 0, b.length);
+        assertTrue(n < WaASCG_ColumnTypes.MAX_DISTINCT);
+        assertNull(ct.getDistinct(0));
+        assertTrue(ct.isSaturated(0));
+        assertEquals(0, ct.getNLive());
+        assertEquals(-1, ct.getLastLive());
+        ct = new WaASCG_ColumnTypes(names, false);
+        assertNull(ct.getDistinct(0));
+        assertFalse(ct.isSaturated(0));
+        ct.add(0, WaASCG_ColumnTypes.STRING, (byte) 0);
+        assertTrue(ct.isSaturated(0));
+        assertEquals(0, ct.getNLive());
+    }
+
+    /**
+     * Test of merge: scanning the file in two and three parts split at
+     * different line starts and merging gives the same states as scanning it
+     * sequentially.
+     *
+     * @throws IOException If encountered.
+     */
+    @Test
+    public void testMerge() throws IOException {
+        try (WaASCG_TabReader reader = new WaASCG_TabReader(f)) {
+            reader.readHeader();
+            long start = reader.getDataStart();
+            long end = reader.size();
+            WaASCG_ColumnTypes e = p.scan(reader, fields, start, end);
+            for (int k = 1; k < 8; k++) {
+                long mid = reader.getLineStart(start + (end - start) * k / 8);
+                WaASCG_ColumnTypes a = p.scan(reader, fields, start, mid);
+                a.merge(p.scan(reader, fields, mid, end));
+                assertSameStates(e, a);
+                long mid2 = reader.getLineStart(mid + (end - mid) / 2);
+                WaASCG_ColumnTypes b = p.scan(reader, fields, start, mid);
+                WaASCG_ColumnTypes b2 = p.scan(reader, fields, mid, mid2);
+                b2.merge(p.scan(reader, fields, mid2, end));
+                b.merge(b2);
+                assertSameStates(e, b);
+            }
+        }
+    }
+
+    /**
+     * Test of scanning with a {@link WaASCG_ScanTask} that splits the file
+     * into many small parts.
+     *
+     * @throws IOException If encountered.
+     */
+    @Test
+    public void testScanTask() throws IOException {
+        try (WaASCG_TabReader reader = new WaASCG_TabReader(f)) {
+            reader.readHeader();
+            long start = reader.getDataStart();
+            long end = reader.size();
+            WaASCG_ColumnTypes e = p.scan(reader, fields, start, end);
+            ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+                WaASCG_ColumnTypes a = pool.invoke(new WaASCG_ScanTask(p,
+                        reader, fields, start, end, 1024));
+                assertSameStates(e, a);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,812 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.leeds.ccg.data.core.Data_Environment;
+import uk.ac.leeds.ccg.data.waas.data.id.WaAS_RecordID;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Environment;
+import uk.ac.leeds.ccg.data.waascg.core.WaASCG_Strings;
+import uk.ac.leeds.ccg.generic.core.Generic_Environment;
+import uk.ac.leeds.ccg.generic.io.Generic_Defaults;
+
+/**
+ * Tests of the generated source code. Source code is generated from small
+ * synthetic hhold input files for the five waves with the options of the
+ * generator set in different ways, compiled and loaded, and the values of the
+ * records are compared field by field with those of the records of source
+ * code generated with the optimisations turned off.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_GeneratedCodeTest {
+
+    /**
+     * The number of waves.
+     */
+    private static final int NWAVES = 5;
+
+    /**
+     * The number of rows of each input file. This is more than
+     * the number of distinct values some columns have.
+     */
+    private static final int ROWS = 1500;
+
+    /**
+     * The package of the generated classes.
+     */
+    private static final String PACKAGE = "uk.ac.leeds.ccg.data.waas.data."
+            + WaASCG_Strings.s_hhold;
+
+    private Path dir;
+
+    /**
+     * The lines of the input file of each wave including the header.
+     */
+    private String[][] lines;
+
+    /**
+     * The input file of each wave written by the last call of
+     * {@link #generate(java.lang.String, java.util.function.Consumer)}.
+     */
+    private Path[] files;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("WaASCG_GeneratedCodeTest");
+        lines = new String[NWAVES][];
+        Random r = new Random(0L);
+        for (int w = 0; w < NWAVES; w++) {
+            lines[w] = getLines(w + 1, r);
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> s = Files.walk(dir)) {
+            Iterator<Path> ite = s.sorted(Comparator.reverseOrder())
+                    .iterator();
+            while (ite.hasNext()) {
+                Files.delete(ite.next());
+            }
+        }
+    }
+
+    /**
+     * @param wave The wave.
+     * @param r For generating the values.
+     * @return The header and rows of an input file for wave. There are fields
+     * in all waves (some named with the wave suffix), fields in waves 1 and 2,
+     * in waves 3, 4 and 5, in waves 4 and 5 and in only the one wave. The
+     * fields are of each type, some with blanks, one is always blank, one
+     * has more distinct values than can be coded and one has a small range
+     * of large values.
+     */
+    private static String[] getLines(int wave, Random r) {
+        ArrayList<String> h = new ArrayList<>(Arrays.asList("CASEW" + wave,
+                "BOOLW" + wave, "CODE", "BYTE", "SHORTW" + wave, "INT", "DEC",
+                "LOW", "HIGH", "BLANK", "MIXED", "YEAR"));
+        if (wave < 3) {
+            h.add("GA");
+        } else {
+            h.add("GB");
+            if (wave > 3) {
+                h.add("GC");
+            }
+        }
+        h.add("P" + wave);
+        String[] result = new String[ROWS + 1];
+        result[0] = String.join("\t", h);
+        for (int row = 0; row < ROWS; row++) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(row + 1);
+            for (int c = 1; c < h.size(); c++) {
+                sb.append('\t');
+                String f = h.get(c);
+                if (r.nextInt(10) == 0 && !f.equals("MIXED")) {
+                    sb.append(' ');
+                    continue;
+                }
+                if (f.startsWith("BOOL")) {
+                    sb.append(1 + r.nextInt(2));
+                } else if (f.equals("CODE")) {
+                    sb.append(r.nextBoolean() ? -9 : 1);
+                } else if (f.equals("BYTE") || f.startsWith("P")) {
+                    sb.append(r.nextInt(200) - 100);
+                } else if (f.startsWith("SHORT") || f.equals("GA")) {
+                    sb.append(r.nextInt(60000) - 30000);
+                } else if (f.equals("INT")) {
+                    sb.append(r.nextInt(2000000000) - 1000000000);
+                } else if (f.equals("DEC") || f.equals("GB")) {
+                    sb.append(r.nextInt(100000) - 50000).append('.')
+                            .append(r.nextInt(100));
+                } else if (f.equals("LOW") || f.equals("GC")) {
+                    sb.append((char) ('a' + r.nextInt(5)));
+                } else if (f.equals("HIGH")) {
+                    sb.append('s').append(r.nextInt(100000));
+                } else if (f.equals("YEAR")) {
+                    sb.append(1900 + r.nextInt(120));
+                } else if (f.equals("BLANK")) {
+                    sb.append(' ');
+                } else {
+                    sb.append(row == ROWS / 2 ? "x" : "" + r.nextInt(10));
+                }
+            }
+            result[row + 1] = sb.toString();
+        }
+        return result;
+    }
+
+    /**
+     * Generates the source code for the hhold input files with the options of
+     * the generator set by options, compiles it and loads it.
+     *
+     * @param name The name of the directory to generate in.
+     * @param options For setting the options of the generator.
+     * @return A class loader for the generated classes.
+     * @throws Exception If encountered.
+     */
+    private ClassLoader generate(String name, Consumer<WaASCG_Main> options)
+            throws Exception {
+        Path base = dir.resolve(name);
+        Data_Environment de = new Data_Environment(new Generic_Environment(
+                new Generic_Defaults(base)));
+        WaASCG_Environment e = new WaASCG_Environment(de, de.files.getDir());
+        files = new Path[NWAVES];
+        for (int w = 0; w < NWAVES; w++) {
+            files[w] = e.files.getInputFile((byte) (w + 1),
+                    WaASCG_Strings.s_hhold);
+            Files.createDirectories(files[w].getParent());
+            Files.write(files[w], String.join("\n", lines[w]).getBytes(
+                    StandardCharsets.UTF_8));
+        }
+        WaASCG_Main p = new WaASCG_Main(e);
+        p.cache = null;
+        options.accept(p);
+        HashMap<String, Object[]> types = p.getFieldTypes(
+                new String[]{WaASCG_Strings.s_hhold});
+        Path src = p.run(WaASCG_Strings.s_hhold,
+                types.get(WaASCG_Strings.s_hhold));
+        Path classes = base.resolve("classes");
+        GeneratedClassLoader.compile(src, classes);
+        return new GeneratedClassLoader(classes, getClass().getClassLoader());
+    }
+
+    /**
+     * Generates the source code with the optimisations turned off: the
+     * record constructors split the line into Strings, there are no
+     * columnar store, binary or loader classes, each boolean field is a boolean, each
+     * String field is a String and each number is stored in its type.
+     *
+     * @return A class loader for the generated classes.
+     * @throws Exception If encountered.
+     */
+    private ClassLoader generateReference() throws Exception {
+        return generate("reference", p -> {
+            p.cursorConstructors = false;
+            p.columnStores = false;
+            p.binaryCodecs = false;
+            p.streamLoaders = false;
+            p.packBooleans = false;
+            p.dictionaries = false;
+            p.narrowNumbers = false;
+        });
+    }
+
+    /**
+     * @param cl The class loader.
+     * @param wave The wave.
+     * @param suffix The suffix of the class name (e.g. "Record").
+     * @return The class of wave loaded by cl.
+     * @throws ClassNotFoundException If not found.
+     */
+    private static Class<?> getClass(ClassLoader cl, int wave, String suffix)
+            throws ClassNotFoundException {
+        return cl.loadClass(PACKAGE + ".WaAS_W" + wave + "H" + suffix);
+    }
+
+    /**
+     * @param cl The class loader.
+     * @param wave The wave.
+     * @return The record class of wave loaded by cl.
+     * @throws ClassNotFoundException If not found.
+     */
+    private static Class<?> getRecordClass(ClassLoader cl, int wave)
+            throws ClassNotFoundException {
+        return getClass(cl, wave, "Record");
+    }
+
+    /**
+     * @param c A record class.
+     * @return The getters of the fields of c.
+     */
+    private static ArrayList<Method> getGetters(Class<?> c) {
+        ArrayList<Method> r = new ArrayList<>();
+        for (Method m : c.getMethods()) {
+            if (m.getName().startsWith("get") && m.getParameterCount() == 0
+                    && m.getDeclaringClass().getName().startsWith(PACKAGE)
+                    && !m.getName().equals("getId")) {
+                r.add(m);
+            }
+        }
+        r.sort(Comparator.comparing(Method::getName));
+        return r;
+    }
+
+    /**
+     * Asserts that the values returned by the getters of a are the same as
+     * those of e.
+     *
+     * @param e The expected record.
+     * @param a The actual record.
+     * @param m The message.
+     * @throws Exception If encountered.
+     */
+    private static void assertSameValues(Object e, Object a, String m)
+            throws Exception {
+        for (Method g : getGetters(e.getClass())) {
+            Method ag = a.getClass().getMethod(g.getName());
+            assertEquals(m + " " + g.getName(), g.invoke(e), ag.invoke(a));
+        }
+    }
+
+    /**
+     * @param cl The class loader.
+     * @param wave The wave.
+     * @param row The row.
+     * @return The record constructed from the line of row of the input file
+     * of wave with the class loaded by cl.
+     * @throws Exception If encountered.
+     */
+    private Object newRecord(ClassLoader cl, int wave, int row)
+            throws Exception {
+        Constructor<?> c = getRecordClass(cl, wave).getConstructor(
+                WaAS_RecordID.class, String.class);
+        return c.newInstance(new WaAS_RecordID(row), lines[wave - 1][row + 1]);
+    }
+
+    /**
+     * Asserts that the records of each wave constructed with the classes
+     * loaded by a have the same values as those constructed with the classes
+     * loaded by e.
+     *
+     * @param e The class loader of the expected records.
+     * @param a The class loader of the actual records.
+     * @throws Exception If encountered.
+     */
+    private void assertSameRecords(ClassLoader e, ClassLoader a)
+            throws Exception {
+        for (int wave = 1; wave <= NWAVES; wave++) {
+            assertTrue(getGetters(getRecordClass(e, wave)).size() > 10);
+            for (int row = 0; row < ROWS; row++) {
+                assertSameValues(newRecord(e, wave, row),
+                        newRecord(a, wave, row), "W" + wave + " row " + row);
+            }
+        }
+    }
+
+    /**
+     * Test of the records with the default options: the record constructors
+     * parse the values from the ranges of the line and the boolean fields
+     * are packed into bits.
+     *
+     * @throws Exception If encountered.
+     */
+    @Test
+    public void testRecords() throws Exception {
+        ClassLoader e = generateReference();
+        ClassLoader a = generate("records", p -> {
+        });
+        assertSameRecords(e, a);
+    }
+
+    /**
+     * Test of the columnar store classes: the values of each column loaded
+     * are the same as those stored in the records, which for the numbers
+     * stored in fewer bytes and the String fields stored as dictionary codes
+     * are not those returned from their getters. The values of the columns
+     * of the packed boolean fields are compared with those returned from the
+     * getters.
+     *
+     * @throws Exception If encountered.
+     */
+    @Test
+    public void testColumns() throws Exception {
+        ClassLoader a = generate("columns", p -> {
+        });
+        for (int wave = 1; wave <= NWAVES; wave++) {
+            Class<?> c = getClass(a, wave, "Columns");
+            Object columns = c.getMethod("load", Path.class).invoke(null,
+                    files[wave - 1]);
+            assertEquals(ROWS, c.getMethod("size").invoke(columns));
+            Object[] records = new Object[ROWS];
+            for (int row = 0; row < ROWS; row++) {
+                records[row] = newRecord(a, wave, row);
+            }
+            ArrayList<Method> getters = getGetters(c);
+            assertEquals(getGetters(getRecordClass(a, wave)).size(),
+                    getters.size());
+            for (Method g : getters) {
+                Object values = g.invoke(columns);
+                assertEquals(g.getName(), ROWS, Array.getLength(values));
+                String field = g.getName().substring(3);
+                Method rg = records[0].getClass().getMethod(g.getName());
+                boolean stored = hasField(records[0], field);
+                for (int row = 0; row < ROWS; row++) {
+                    Object e = stored ? getFieldValue(records[row], field)
+                            : rg.invoke(records[row]);
+                    assertEquals("W" + wave + " row " + row + " " + field, e,
+                            Array.get(values, row));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of the binary classes: the records converted to and loaded from a
+     * binary cache file have the same values as those constructed from the
+     * lines, and the id of each record is created from the position of the
+     * start of its line as for the streaming loaders.
+     *
+     * @throws Exception If encountered.
+     */
+    @Test
+    public void testBinary() throws Exception {
+        ClassLoader e = generateReference();
+        ClassLoader a = generate("binary", p -> {
+        });
+        HashMap<Object, Long> positions = new HashMap<>();
+        LongFunction<WaAS_RecordID> ids = p -> {
+            WaAS_RecordID id = new WaAS_RecordID(p);
+            positions.put(id, p);
+            return id;
+        };
+        for (int wave = 1; wave <= NWAVES; wave++) {
+            Class<?> c = getClass(a, wave, "Binary");
+            Path tab = files[wave - 1];
+            Path bin = (Path) c.getMethod("getBinaryFile", Path.class)
+                    .invoke(null, tab);
+            assertEquals(false, c.getMethod("isCurrent", Path.class,
+                    Path.class).invoke(null, tab, bin));
+            List<?> records = (List<?>) c.getMethod("load", Path.class,
+                    Path.class, LongFunction.class).invoke(null, tab, bin, ids);
+            assertEquals(true, c.getMethod("isCurrent", Path.class,
+                    Path.class).invoke(null, tab, bin));
+            assertEquals(ROWS, records.size());
+            long pos = lines[wave - 1][0].length() + 1;
+            for (int row = 0; row < ROWS; row++) {
+                Object r = records.get(row);
+                assertEquals("W" + wave + " row " + row, pos, (long) positions
+                        .get(r.getClass().getMethod("getId").invoke(r)));
+                assertSameValues(newRecord(e, wave, row), r,
+                        "W" + wave + " row " + row);
+                pos += lines[wave - 1][row + 1].length() + 1;
+            }
+            // No temporary file is left.
+            try (Stream<Path> s = Files.list(bin.getParent())) {
+                assertEquals(NWAVES + wave, s.count());
+            }
+        }
+        // A conversion that fails to replace bin leaves no temporary file.
+        Class<?> c = getClass(a, 1, "Binary");
+        Path bin = dir.resolve("failed").resolve("bin");
+        Files.createDirectories(bin);
+        Files.createFile(bin.resolve("blocker"));
+        try {
+            c.getMethod("convert", Path.class, Path.class).invoke(null,
+                    files[0], bin);
+            fail("Converted onto a directory that is not empty");
+        } catch (InvocationTargetException ex) {
+            assertTrue(ex.getCause() instanceof IOException);
+        }
+        try (Stream<Path> s = Files.list(bin.getParent())) {
+            assertEquals(1, s.count());
+        }
+    }
+
+    /**
+     * @param o A record.
+     * @param name The name of a field declared in the record class or one of
+     * the classes it extends.
+     * @return The value of the field of o.
+     * @throws Exception If encountered.
+     */
+    private static Object getFieldValue(Object o, String name)
+            throws Exception {
+        Field f = getField(o.getClass(), name);
+        if (f == null) {
+            throw new NoSuchFieldException(name);
+        }
+        f.setAccessible(true);
+        return f.get(o);
+    }
+
+    /**
+     * @param o A record.
+     * @param name A field name.
+     * @return true if the record class of o or one of the classes it extends
+     * declares a field named name.
+     */
+    private static boolean hasField(Object o, String name) {
+        return getField(o.getClass(), name) != null;
+    }
+
+    /**
+     * @param c A class.
+     * @param name A field name.
+     * @return The field named name declared in c or one of the classes it
+     * extends, or null if there is none.
+     */
+    private static Field getField(Class<?> c, String name) {
+        for (; c != null; c = c.getSuperclass()) {
+            try {
+                return c.getDeclaredField(name);
+            } catch (NoSuchFieldException ex) {
+                // Try the class extended.
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Test of the records that decode lazily: they have the same values as
+     * those decoded in the constructor, and they keep their line until the
+     * last field is decoded.
+     *
+     * @throws Exception If encountered.
+     */
+    @Test
+    public void testLazyRecords() throws Exception {
+        ClassLoader e = generateReference();
+        ClassLoader a = generate("lazy", p -> {
+            p.lazyRecords = true;
+        });
+        assertSameRecords(e, a);
+        for (int wave = 1; wave <= NWAVES; wave++) {
+            ArrayList<Method> getters = getGetters(getRecordClass(a, wave));
+            for (int row = 0; row < ROWS; row += 100) {
+                Object r = newRecord(a, wave, row);
+                for (int i = 0; i < getters.size() - 1; i++) {
+                    getters.get(i).invoke(r);
+                }
+                assertNotNull(getFieldValue(r, "line"));
+                getters.get(getters.size() - 1).invoke(r);
+                assertNull(getFieldValue(r, "line"));
+                assertNull(getFieldValue(r, "starts"));
+            }
+        }
+    }
+
+    /**
+     * Test of the streaming loaders: the records streamed sequentially, and
+     * in parallel from a file large enough to be split, have the same values
+     * as those constructed from the lines, and the id of each record is
+     * created from the position of the start of its line.
+     *
+     * @throws Exception If encountered.
+     */
+    @Test
+    public void testStream() throws Exception {
+        ClassLoader e = generateReference();
+        ClassLoader a = generate("stream", p -> {
+        });
+        for (int wave = 1; wave <= NWAVES; wave++) {
+            assertSameStream(e, a, wave, files[wave - 1], 1, false);
+            Class<?> c = getClass(a, wave, "Loader");
+            try (Stream<?> s = (Stream<?>) c.getMethod("stream", Path.class,
+                    LongFunction.class, long.class).invoke(null,
+                    files[wave - 1], (LongFunction<WaAS_RecordID>)
+                    WaAS_RecordID::new, ROWS)) {
+                assertEquals(ROWS, s.spliterator().getExactSizeIfKnown());
+            }
+        }
+        // A file of the rows of wave 1 repeated that is split at least twice.
+        Class<?> c = getClass(a, 1, "Loader");
+        long minSplit = c.getField("MIN_SPLIT").getLong(null);
+        long size = Files.size(files[0]) - lines[0][0].length();
+        int repeats = (int) (4 * minSplit / size) + 1;
+        Path tab = dir.resolve("repeated.tab");
+        ArrayList<String> repeated = new ArrayList<>();
+        repeated.add(lines[0][0]);
+        for (int i = 0; i < repeats; i++) {
+            repeated.addAll(Arrays.asList(lines[0]).subList(1, ROWS + 1));
+        }
+        Files.write(tab, String.join("\n", repeated).getBytes(
+                StandardCharsets.UTF_8));
+        try (Stream<?> s = (Stream<?>) c.getMethod("stream", Path.class,
+                LongFunction.class).invoke(null, tab,
+                (LongFunction<WaAS_RecordID>) WaAS_RecordID::new)) {
+            assertNotNull(s.spliterator().trySplit());
+        }
+        assertSameStream(e, a, 1, tab, repeats, true);
+    }
+
+    /**
+     * Asserts that the records streamed from tab are in order, have the same
+     * values as the records constructed with the classes loaded by e from
+     * the lines of wave, and have ids created from the positions of their
+     * lines.
+     *
+     * @param e The class loader of the expected records.
+     * @param a The class loader of the loader class.
+     * @param wave The wave.
+     * @param tab The header and the rows of wave repeated repeats times.
+     * @param repeats The number of times the rows are repeated.
+     * @param parallel If true the stream is made parallel.
+     * @throws Exception If encountered.
+     */
+    private void assertSameStream(ClassLoader e, ClassLoader a, int wave,
+            Path tab, int repeats, boolean parallel) throws Exception {
+        String[] l = lines[wave - 1];
+        HashMap<Long, Integer> rows = new HashMap<>();
+        long pos = l[0].length() + 1;
+        for (int i = 0; i < ROWS * repeats; i++) {
+            rows.put(pos, i);
+            pos += l[i % ROWS + 1].length() + 1;
+        }
+        ConcurrentHashMap<Object, Long> positions = new ConcurrentHashMap<>();
+        LongFunction<WaAS_RecordID> ids = p -> {
+            WaAS_RecordID id = new WaAS_RecordID(p);
+            positions.put(id, p);
+            return id;
+        };
+        List<?> records;
+        Class<?> c = getClass(a, wave, "Loader");
+        try (Stream<?> s = (Stream<?>) c.getMethod("stream", Path.class,
+                LongFunction.class).invoke(null, tab, ids)) {
+            records = (parallel ? s.parallel() : s).collect(
+                    Collectors.toList());
+        }
+        assertEquals(ROWS * repeats, records.size());
+        Object[] expected = new Object[ROWS];
+        for (int row = 0; row < ROWS; row++) {
+            expected[row] = newRecord(e, wave, row);
+        }
+        for (int i = 0; i < records.size(); i++) {
+            Object r = records.get(i);
+            Object id = r.getClass().getMethod("getId").invoke(r);
+            assertEquals("W" + wave + " record " + i, i,
+                    (int) rows.get(positions.get(id)));
+            assertSameValues(expected[i % ROWS], r, "W" + wave + " record "
+                    + i);
+        }
+    }
+
+    /**
+     * Test of the filters of the streaming loaders: the records streamed
+     * with a filter are those of the lines whose tokens pass the tests, in
+     * order, with the same values as those constructed from the lines.
+     *
+     * @throws Exception If encountered.
+     */
+    @Test
+    public void testFilter() throws Exception {
+        ClassLoader e = generateReference();
+        ClassLoader a = generate("filter", p -> {
+        });
+        for (int wave = 1; wave <= NWAVES; wave++) {
+            String[] l = lines[wave - 1];
+            HashMap<Long, Integer> rows = new HashMap<>();
+            ArrayList<Integer> expected = new ArrayList<>();
+            long pos = l[0].length() + 1;
+            for (int row = 0; row < ROWS; row++) {
+                rows.put(pos, row);
+                pos += l[row + 1].length() + 1;
+                String[] t = l[row + 1].split("\t", -1);
+                if ((t[2].equals("-9") || t[2].equals("1"))
+                        && t[3].matches("[0-9]+")
+                        && Integer.parseInt(t[3]) <= 50) {
+                    expected.add(row);
+                }
+            }
+            Class<?> c = getClass(a, wave, "Loader");
+            Class<?> fc = getClass(a, wave, "Loader$Filter");
+            Class<?> tc = getClass(a, wave, "Loader$TokenTest");
+            Object in = c.getMethod("in", String[].class).invoke(null,
+                    (Object) new String[]{"-9", "1"});
+            Object between = c.getMethod("between", long.class, long.class)
+                    .invoke(null, 0L, 50L);
+            Object filter = fc.getMethod("where", String.class, tc).invoke(
+                    null, "byte", between);
+            filter = fc.getMethod("and", String.class, tc).invoke(filter,
+                    "CODE", in);
+            ConcurrentHashMap<Object, Long> positions
+                    = new ConcurrentHashMap<>();
+            LongFunction<WaAS_RecordID> ids = p -> {
+                WaAS_RecordID id = new WaAS_RecordID(p);
+                positions.put(id, p);
+                return id;
+            };
+            List<?> records;
+            try (Stream<?> s = (Stream<?>) c.getMethod("stream", Path.class,
+                    LongFunction.class, fc).invoke(null, files[wave - 1],
+                    ids, filter)) {
+                records = s.collect(Collectors.toList());
+            }
+            assertTrue(expected.size() > 100);
+            assertEquals(expected.size(), records.size());
+            for (int i = 0; i < records.size(); i++) {
+                Object r = records.get(i);
+                int row = expected.get(i);
+                Object id = r.getClass().getMethod("getId").invoke(r);
+                assertEquals("W" + wave + " record " + i, row,
+                        (int) rows.get(positions.get(id)));
+                assertSameValues(newRecord(e, wave, row), r, "W" + wave
+                        + " row " + row);
+            }
+        }
+    }
+
+    /**
+     * Test of the projections of the streaming loaders: the fields of the
+     * records streamed with a set of fields have the same values as those
+     * constructed from the lines if they are in the set, otherwise they have
+     * the same values as those of a record constructed from a line of blanks.
+     *
+     * @throws Exception If encountered.
+     */
+    @Test
+    public void testProjection() throws Exception {
+        ClassLoader e = generateReference();
+        ClassLoader a = generate("projection", p -> {
+        });
+        for (int wave = 1; wave <= NWAVES; wave++) {
+            String[] header = lines[wave - 1][0].split("\t");
+            // The field names do not have the wave suffix.
+            String[] selected = {"CASEW" + wave, "BOOL", "CODE", "SHORT",
+                "DEC", "HIGH"};
+            Class<?> fc = getClass(a, wave, "Fields");
+            int[] columns = new int[selected.length];
+            for (int i = 0; i < selected.length; i++) {
+                columns[i] = fc.getField(selected[i]).getInt(null);
+            }
+            Object fields = fc.getConstructor(int[].class).newInstance(
+                    (Object) columns);
+            String[] blanks = new String[header.length];
+            Arrays.fill(blanks, " ");
+            Object blank = getRecordClass(a, wave).getConstructor(
+                    WaAS_RecordID.class, String.class).newInstance(
+                    new WaAS_RecordID(0), String.join("\t", blanks));
+            List<?> records;
+            Class<?> c = getClass(a, wave, "Loader");
+            try (Stream<?> s = (Stream<?>) c.getMethod("stream", Path.class,
+                    LongFunction.class, fc).invoke(null, files[wave - 1],
+                    (LongFunction<WaAS_RecordID>) WaAS_RecordID::new,
+                    fields)) {
+                records = s.collect(Collectors.toList());
+            }
+            assertEquals(ROWS, records.size());
+            List<String> sl = Arrays.asList(selected);
+            for (int row = 0; row < ROWS; row++) {
+                Object r = records.get(row);
+                Object x = newRecord(e, wave, row);
+                for (Method g : getGetters(r.getClass())) {
+                    String m = "W" + wave + " row " + row + " " + g.getName();
+                    Object v = g.invoke(r);
+                    if (sl.contains(g.getName().substring(3))) {
+                        assertEquals(m, x.getClass().getMethod(g.getName())
+                                .invoke(x), v);
+                    } else {
+                        assertEquals(m, g.invoke(blank), v);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * For loading the generated classes from the compiled classes in
+     * preference to any of the same name on the class path (such as those of
+     * the WaAS library).
+     */
+    static class GeneratedClassLoader extends URLClassLoader {
+
+        /**
+         * @param classes The directory of the compiled classes.
+         * @param parent The parent class loader.
+         * @throws IOException If encountered.
+         */
+        GeneratedClassLoader(Path classes, ClassLoader parent)
+                throws IOException {
+            super(new URL[]{classes.toUri().toURL()}, parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve)
+                throws ClassNotFoundException {
+            if (!name.startsWith(PACKAGE)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> r = findLoadedClass(name);
+                if (r == null) {
+                    r = findClass(name);
+                }
+                if (resolve) {
+                    resolveClass(r);
+                }
+                return r;
+            }
+        }
+
+        /**
+         * Compiles the source code files in src against the class path of
+         * this JVM.
+         *
+         * @param src The directory of the source code files.
+         * @param classes The directory to write the compiled classes to.
+         * @throws IOException If there is no Java compiler, if the source
+         * code does not compile or if otherwise encountered.
+         */
+        static void compile(Path src, Path classes) throws IOException {
+            JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+            if (compiler == null) {
+                throw new IOException("No Java compiler, run with a JDK.");
+            }
+            Files.createDirectories(classes);
+            ArrayList<String> args = new ArrayList<>(Arrays.asList("-nowarn",
+                    "-proc:none", "-classpath",
+                    System.getProperty("java.class.path"), "-d",
+                    classes.toString()));
+            try (Stream<Path> s = Files.walk(src)) {
+                Iterator<Path> ite = s.iterator();
+                while (ite.hasNext()) {
+                    Path f = ite.next();
+                    if (f.toString().endsWith(".java")) {
+                        args.add(f.toString());
+                    }
+                }
+            }
+            if (compiler.run(null, null, null, args.toArray(new String[0]))
+                    != 0) {
+                throw new IOException("Failed to compile " + src);
+            }
+        }
+    }
+}
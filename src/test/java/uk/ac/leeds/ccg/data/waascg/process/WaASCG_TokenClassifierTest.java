@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import uk.ac.leeds.ccg.math.Math_Byte;
+import uk.ac.leeds.ccg.math.Math_Double;
+import uk.ac.leeds.ccg.math.Math_Integer;
+import uk.ac.leeds.ccg.math.Math_Short;
+
+/**
+ * Tests of {@link WaASCG_TokenClassifier} against the Math_Byte.isByte,
+ * Math_Short.isShort, Math_Integer.isInt and Math_Double.isDouble probes that
+ * the type of each token was worked out with before.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_TokenClassifierTest {
+
+    /**
+     * Tokens at and around the boundaries of the types, blanks, and the forms
+     * that only some of the probes accept.
+     */
+    private static final String[] TOKENS = {"0", "1", "-1", "+1", "-0", "+0",
+        "00", "007", "127", "128", "-127", "-128", "-129", "255", "32767",
+        "32768", "-32767", "-32768", "-32769", "2147483647", "2147483648",
+        "-2147483647", "-2147483648", "-2147483649", "9223372036854775807",
+        "9223372036854775808", "-9223372036854775808",
+        "-9223372036854775809", "123456789012345678901234567890", "", " ",
+        "  ", "\t", " 1", "1 ", " -128 ", "1.5", "-1.5", ".5", "5.", "-0.0",
+        "0.1", "1.25", "3.14159", "1e3", "1E-3", "1.5e+10", "1.5f", "2d",
+        "2D", "1.0F", "NaN", "-NaN", "Infinity", "-Infinity", "+Infinity",
+        "0x1p3", "0X1.8P1", "-0x1p-2", "0x1F", "0x", "abc", "1-2", "--1",
+        "+-1", "+", "-", ".", "e5", "1e", "1e+", "1.2.3", "1_000", "1,5",
+        "12345678901234567890.5", "0.000000000000000000001"};
+
+    /**
+     * @param s A token.
+     * @return The type the token was given by the probes, or -1 if it is
+     * blank.
+     */
+    private static byte getBaselineType(String s) {
+        if (s.trim().isEmpty()) {
+            return -1;
+        }
+        if (Math_Byte.isByte(s)) {
+            return WaASCG_ColumnTypes.BYTE;
+        }
+        if (Math_Short.isShort(s)) {
+            return WaASCG_ColumnTypes.SHORT;
+        }
+        if (Math_Integer.isInt(s)) {
+            return WaASCG_ColumnTypes.INT;
+        }
+        if (Math_Double.isDouble(s)) {
+            return WaASCG_ColumnTypes.DOUBLE;
+        }
+        return WaASCG_ColumnTypes.STRING;
+    }
+
+    /**
+     * Checks the kind, type and values of s classified in the middle of a
+     * larger array.
+     *
+     * @param tc The classifier.
+     * @param s The token.
+     */
+    private static void check(WaASCG_TokenClassifier tc, String s) {
+        byte[] t = s.getBytes(StandardCharsets.UTF_8);
+        byte[] b = new byte[t.length + 2];
+        b[0] = '9';
+        System.arraycopy(t, 0, b, 1, t.length);
+        b[b.length - 1] = '9';
+        byte kind = tc.classify(b, 1, b.length - 1);
+        byte expected = getBaselineType(s);
+        String m = "\"" + s + "\"";
+        if (expected < 0) {
+            assertEquals(m, WaASCG_TokenClassifier.BLANK, kind);
+            return;
+        }
+        assertEquals(m, expected, tc.type);
+        if (expected == WaASCG_ColumnTypes.STRING) {
+            assertEquals(m, WaASCG_TokenClassifier.NON_NUMERIC, kind);
+            return;
+        }
+        double d = Double.parseDouble(s);
+        assertEquals(m, d, tc.doubleValue, 0d);
+        if (tc.isFloat) {
+            assertTrue(m, (float) d == d);
+        }
+        if (expected != WaASCG_ColumnTypes.DOUBLE) {
+            assertEquals(m, WaASCG_TokenClassifier.INTEGER, kind);
+            assertTrue(m, tc.isLong);
+            assertEquals(m, Long.parseLong(s), tc.value);
+        }
+    }
+
+    /**
+     * Test of classify with the tokens of {@link #TOKENS}.
+     */
+    @Test
+    public void testClassify() {
+        WaASCG_TokenClassifier tc = new WaASCG_TokenClassifier();
+        for (String s : TOKENS) {
+            check(tc, s);
+        }
+    }
+
+    /**
+     * Test of classify with the MIN_VALUE of each integer type, which is
+     * reserved for blanks so must widen the type.
+     */
+    @Test
+    public void testClassifyMinValues() {
+        WaASCG_TokenClassifier tc = new WaASCG_TokenClassifier();
+        String[] tokens = {"-128", "-32768", "-2147483648"};
+        byte[] types = {WaASCG_ColumnTypes.SHORT, WaASCG_ColumnTypes.INT,
+            WaASCG_ColumnTypes.DOUBLE};
+        for (int i = 0; i < tokens.length; i++) {
+            byte[] b = tokens[i].getBytes(StandardCharsets.UTF_8);
+            tc.classify(b, 0, b.length);
+            assertEquals(tokens[i], types[i], tc.type);
+        }
+    }
+
+    /**
+     * Test of classify with random integers near the boundaries of the types
+     * and random decimals.
+     */
+    @Test
+    public void testClassifyRandom() {
+        WaASCG_TokenClassifier tc = new WaASCG_TokenClassifier();
+        Random r = new Random(0L);
+        long[] bounds = {0, Byte.MIN_VALUE, Byte.MAX_VALUE, Short.MIN_VALUE,
+            Short.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        ArrayList<String> tokens = new ArrayList<>();
+        for (long bound : bounds) {
+            for (long d = -3; d <= 3; d++) {
+                tokens.add(Long.toString(bound + d));
+            }
+        }
+        for (int i = 0; i < 10000; i++) {
+            tokens.add(Long.toString(r.nextLong() >> r.nextInt(64)));
+            tokens.add(Double.toString(r.nextDouble() * r.nextInt(100000)));
+            tokens.add(r.nextInt(1000) + "." + r.nextInt(100));
+        }
+        for (String s : tokens) {
+            check(tc, s);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2018 geoagdt.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.leeds.ccg.data.waascg.process;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import org.junit.After;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of {@link WaASCG_TypesCache}.
+ *
+ * @author Andy Turner
+ * @version 1.0.0
+ */
+public class WaASCG_TypesCacheTest {
+
+    private Path dir;
+    private Path f;
+    private WaASCG_TypesCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("WaASCG_TypesCacheTest");
+        f = dir.resolve("test.tab");
+        Files.write(f, "A\tB\tC\n1\tx\t2.5\n".getBytes(
+                StandardCharsets.UTF_8));
+        cache = new WaASCG_TypesCache(dir.resolve("types"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> s = Files.walk(dir)) {
+            Iterator<Path> ite = s.sorted(Comparator.reverseOrder())
+                    .iterator();
+            while (ite.hasNext()) {
+                Files.delete(ite.next());
+            }
+        }
+    }
+
+    /**
+     * @return Column type states for the fields A, B and C, of which B is
+     * saturated.
+     */
+    private static WaASCG_ColumnTypes getColumnTypes() {
+        WaASCG_ColumnTypes r = new WaASCG_ColumnTypes(
+                new String[]{"A", "B", "C"});
+        byte[] b = "1xyz".getBytes(StandardCharsets.UTF_8);
+        r.add(0, WaASCG_ColumnTypes.BYTE, (byte) 1);
+        r.addToken(0, b, 0, 1);
+        r.addValue(0, 1d, 0, true, true);
+        r.add(1, WaASCG_ColumnTypes.STRING, (byte) 0);
+        r.addToken(1, b, 1, 4);
+        r.addNull(1);
+        r.add(2, WaASCG_ColumnTypes.DOUBLE, (byte) 0);
+        r.addValue(2, 2.5d, 1, true, true);
+        for (int i = 0; i < WaASCG_ColumnTypes.MAX_DISTINCT + 1; i++) {
+            byte[] t = ("s" + i).getBytes(StandardCharsets.UTF_8);
+            r.addToken(1, t, 0, t.length);
+        }
+        r.rows = 2;
+        return r;
+    }
+
+    /**
+     * @param e The expected states.
+     * @param a The actual states.
+     */
+    private static void assertSameStates(WaASCG_ColumnTypes e,
+            WaASCG_ColumnTypes a) {
+        assertArrayEquals(e.fields, a.fields);
+        assertEquals("dictionaries", e.dictionaries, a.dictionaries);
+        assertArrayEquals("types", e.types, a.types);
+        assertArrayEquals("v0", e.v0, a.v0);
+        assertArrayEquals("v1", e.v1, a.v1);
+        for (int c = 0; c < e.fields.length; c++) {
+            String m = e.fields[c];
+            assertEquals(m, e.min[c], a.min[c], 0d);
+            assertEquals(m, e.max[c], a.max[c], 0d);
+            assertEquals(m, e.scale[c], a.scale[c]);
+            assertEquals(m, e.plain[c], a.plain[c]);
+            assertEquals(m, e.floats[c], a.floats[c]);
+            assertEquals(m, e.counts[c], a.counts[c]);
+            assertEquals(m, e.nulls[c], a.nulls[c]);
+            assertArrayEquals(m, e.getDistinct(c), a.getDistinct(c));
+        }
+        assertEquals("rows", e.rows, a.rows);
+        assertEquals("nLive", e.getNLive(), a.getNLive());
+        assertEquals("lastLive", e.getLastLive(), a.getLastLive());
+        assertEquals("promotions", 0, a.promotions);
+    }
+
+    /**
+     * Test of put and get.
+     *
+     * @throws IOException If encountered.
+     */
+    @Test
+    public void testPutGet() throws IOException {
+        assertNull(cache.get(f));
+        WaASCG_ColumnTypes ct = getColumnTypes();
+        cache.put(f, ct);
+        assertSameStates(ct, cache.get(f));
+        try (Stream<Path> s = Files.list(cache.dir)) {
+            assertEquals(1, s.count());
+        }
+        ct = new WaASCG_ColumnTypes(ct.fields, false);
+        ct.add(1, WaASCG_ColumnTypes.STRING, (byte) 0);
+        cache.put(f, ct);
+        assertSameStates(ct, cache.get(f));
+    }
+
+    /**
+     * Test of get after the content of the input file has changed but its
+     * size has not.
+     *
+     * @throws IOException If encountered.
+     */
+    @Test
+    public void testGetChanged() throws IOException {
+        cache.put(f, getColumnTypes());
+        FileTime t = Files.getLastModifiedTime(f);
+        Files.write(f, "A\tB\tC\n2\tx\t2.5\n".getBytes(
+                StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(f, FileTime.fromMillis(t.toMillis()
+                + 60000));
+        assertNull(cache.get(f));
+    }
+
+    /**
+     * Test of get after the last modified time of the input file has
+     * changed but its content has not, as when it is copied.
+     *
+     * @throws IOException If encountered.
+     */
+    @Test
+    public void testGetTouched() throws IOException {
+        WaASCG_ColumnTypes ct = getColumnTypes();
+        cache.put(f, ct);
+        FileTime t = Files.getLastModifiedTime(f);
+        Files.setLastModifiedTime(f, FileTime.fromMillis(t.toMillis()
+                + 60000));
+        assertSameStates(ct, cache.get(f));
+        // The new modified time is stored, so the content is not hashed.
+        Files.write(f, "A\tB\tC\n2\tx\t2.5\n".getBytes(
+                StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(f, FileTime.fromMillis(t.toMillis()
+                + 60000));
+        assertNotNull(cache.get(f));
+    }
+
+    /**
+     * Test of put when the sidecar file cannot be replaced: the put fails
+     * and no temporary file is left.
+     *
+     * @throws IOException If encountered.
+     */
+    @Test
+    public void testPutFails() throws IOException {
+        Path cf = cache.getFile(f);
+        Files.createDirectories(cf);
+        Files.createFile(cf.resolve("x"));
+        try {
+            cache.put(f, getColumnTypes());
+            fail("Expected the write to fail");
+        } catch (IOException ex) {
+            // Expected.
+        }
+        try (Stream<Path> s = Files.list(cache.dir)) {
+            assertEquals(1, s.count());
+        }
+        Files.delete(cf.resolve("x"));
+        Files.delete(cf);
+        assertNull(cache.get(f));
+    }
+
+    /**
+     * Test of put when the cache directory cannot be created as there is a
+     * file in its place.
+     *
+     * @throws IOException If encountered.
+     */
+    @Test
+    public void testPutFailsNoDir() throws IOException {
+        Files.createFile(cache.dir);
+        try {
+            cache.put(f, getColumnTypes());
+            fail("Expected the write to fail");
+        } catch (IOException ex) {
+            // Expected.
+        }
+        assertEquals(0, Files.size(cache.dir));
+        assertNull(cache.get(f));
+    }
+}